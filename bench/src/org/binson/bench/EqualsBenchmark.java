@@ -0,0 +1,57 @@
+package org.binson.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.binson.Binson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Binson.equals(), Binson.hashCode() and Binson.copy().
+ * 
+ * @author Frans Lundberg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EqualsBenchmark {
+    
+    @Param({Payloads.SMALL, Payloads.WIDE, Payloads.DEEP, Payloads.BLOB, Payloads.ARRAY})
+    public String payload;
+    
+    private Binson obj1;
+    private Binson obj2;
+    
+    @Setup
+    public void setup() {
+        obj1 = Payloads.create(payload);
+        obj2 = Payloads.create(payload);
+    }
+    
+    @Benchmark
+    public boolean equals() {
+        return obj1.equals(obj2);
+    }
+    
+    @Benchmark
+    public int hashCodeOf() {
+        return obj1.hashCode();
+    }
+    
+    @Benchmark
+    public Binson copy() {
+        return obj1.copy();
+    }
+}
@@ -0,0 +1,84 @@
+package org.binson.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.binson.Binson;
+import org.binson.lowlevel.Transcoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JSON generation, JSON parsing and conversion between JSON and Binson.
+ * 
+ * @author Frans Lundberg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    
+    @Param({Payloads.SMALL, Payloads.WIDE, Payloads.DEEP, Payloads.BLOB, Payloads.ARRAY})
+    public String payload;
+    
+    private Binson obj;
+    private byte[] bytes;
+    private String json;
+    
+    @Setup
+    public void setup() {
+        obj = Payloads.create(payload);
+        bytes = obj.toBytes();
+        json = obj.toJson();
+    }
+    
+    @Benchmark
+    public String toJson() {
+        return obj.toJson();
+    }
+    
+    @Benchmark
+    public Binson fromJson() {
+        return Binson.fromJson(json);
+    }
+    
+    @Benchmark
+    public byte[] jsonToBinsonViaObject() {
+        return Binson.fromJson(json).toBytes();
+    }
+    
+    @Benchmark
+    public int jsonToBinsonTranscoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transcoder.jsonToBinson(new StringReader(json), out);
+        return out.size();
+    }
+    
+    @Benchmark
+    public String binsonToJsonViaObject() {
+        return Binson.fromBytes(bytes).toJson();
+    }
+    
+    @Benchmark
+    public int binsonToJsonTranscoded() throws IOException {
+        StringWriter writer = new StringWriter();
+        Transcoder.binsonToJson(new ByteArrayInputStream(bytes), writer);
+        return writer.getBuffer().length();
+    }
+}
@@ -0,0 +1,72 @@
+package org.binson.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.binson.Binson;
+import org.binson.lowlevel.BinsonInput;
+import org.binson.lowlevel.BinsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing Binson bytes.
+ * 
+ * @author Frans Lundberg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    
+    @Param({Payloads.SMALL, Payloads.WIDE, Payloads.DEEP, Payloads.BLOB, Payloads.ARRAY})
+    public String payload;
+    
+    private byte[] bytes;
+    
+    @Setup
+    public void setup() {
+        bytes = Payloads.create(payload).toBytes();
+    }
+    
+    @Benchmark
+    public Binson fromBytes() {
+        return Binson.fromBytes(bytes);
+    }
+    
+    @Benchmark
+    public Binson fromInputStream() throws IOException {
+        return BinsonParser.parse(new ByteArrayInputStream(bytes));
+    }
+    
+    @Benchmark
+    public Binson projectOneField() throws IOException {
+        BinsonParser parser = new BinsonParser(new ByteArrayInputStream(bytes));
+        parser.setProjection("id");
+        return parser.parse();
+    }
+    
+    @Benchmark
+    public int pullAllTokens() throws IOException {
+        BinsonInput input = new BinsonInput(bytes);
+        int count = 0;
+        do {
+            input.next();
+            count++;
+        } while (input.getDepth() > 0);
+        return count;
+    }
+}
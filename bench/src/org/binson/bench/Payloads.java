@@ -0,0 +1,104 @@
+package org.binson.bench;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+
+/**
+ * Representative Binson objects used by the benchmarks.
+ * 
+ * @author Frans Lundberg
+ */
+public class Payloads {
+    
+    /** Names of the payloads, used as JMH parameter values. */
+    public static final String SMALL = "small";
+    public static final String WIDE = "wide";
+    public static final String DEEP = "deep";
+    public static final String BLOB = "blob";
+    public static final String ARRAY = "array";
+    
+    private Payloads() {}
+    
+    public static Binson create(String name) {
+        if (SMALL.equals(name)) {
+            return small();
+        } else if (WIDE.equals(name)) {
+            return wide();
+        } else if (DEEP.equals(name)) {
+            return deep();
+        } else if (BLOB.equals(name)) {
+            return blob();
+        } else if (ARRAY.equals(name)) {
+            return array();
+        } else {
+            throw new IllegalArgumentException("unknown payload, " + name);
+        }
+    }
+    
+    /**
+     * A small RPC request, about 150 bytes.
+     */
+    public static Binson small() {
+        return new Binson()
+                .put("id", 1234567)
+                .put("method", "getUser")
+                .put("version", 2)
+                .put("params", new Binson()
+                        .put("userId", 9876543210L)
+                        .put("fields", new BinsonArray().add("name").add("email").add("created"))
+                        .put("includeDeleted", false)
+                        .put("scale", 1.5));
+    }
+    
+    /**
+     * An object with 900 fields; close to the default maxFieldCount (1000) of the parser.
+     */
+    public static Binson wide() {
+        Binson obj = new Binson();
+        for (int i = 0; i < 900; i++) {
+            if (i % 3 == 0) {
+                obj.put("field" + i, i * 1000L);
+            } else if (i % 3 == 1) {
+                obj.put("field" + i, "value" + i);
+            } else {
+                obj.put("field" + i, i / 7.0);
+            }
+        }
+        return obj;
+    }
+    
+    /**
+     * An object nested 100 levels deep.
+     */
+    public static Binson deep() {
+        Binson obj = new Binson().put("leaf", "bottom");
+        for (int i = 0; i < 100; i++) {
+            obj = new Binson().put("level", i).put("child", obj);
+        }
+        return obj;
+    }
+    
+    /**
+     * An object with a 1 MB bytes field.
+     */
+    public static Binson blob() {
+        byte[] blob = new byte[1000*1000];
+        for (int i = 0; i < blob.length; i++) {
+            blob[i] = (byte) (i * 31);
+        }
+        return new Binson().put("id", 42).put("type", "image/png").put("data", blob);
+    }
+    
+    /**
+     * An object with two arrays of 10000 integers and 10000 doubles.
+     */
+    public static Binson array() {
+        BinsonArray integers = new BinsonArray();
+        BinsonArray doubles = new BinsonArray();
+        for (int i = 0; i < 10000; i++) {
+            integers.add(i * 97L);
+            doubles.add(i * 0.25);
+        }
+        return new Binson().put("integers", integers).put("doubles", doubles);
+    }
+}
@@ -0,0 +1,65 @@
+package org.binson.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.binson.Binson;
+import org.binson.lowlevel.BinsonBufferOutput;
+import org.binson.lowlevel.OutputWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializing Binson objects to bytes.
+ * 
+ * @author Frans Lundberg
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+    
+    @Param({Payloads.SMALL, Payloads.WIDE, Payloads.DEEP, Payloads.BLOB, Payloads.ARRAY})
+    public String payload;
+    
+    private Binson obj;
+    private BinsonBufferOutput reusedOutput;
+    
+    @Setup
+    public void setup() {
+        obj = Payloads.create(payload);
+        reusedOutput = new BinsonBufferOutput();
+    }
+    
+    @Benchmark
+    public byte[] toBytes() {
+        return obj.toBytes();
+    }
+    
+    @Benchmark
+    public int toReusedBuffer() throws IOException {
+        reusedOutput.reset();
+        OutputWriter.writeToOutput(obj, reusedOutput);
+        return reusedOutput.size();
+    }
+    
+    @Benchmark
+    public int toOutputStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.toBytes(out);
+        return out.size();
+    }
+}
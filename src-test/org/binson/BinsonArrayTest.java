@@ -1,5 +1,6 @@
 package org.binson;
 
+import org.binson.lowlevel.ValueType;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -224,4 +225,45 @@ public class BinsonArrayTest {
         BinsonArray a2 = new BinsonArray().add("Hello2");
         Assert.assertNotEquals(a1.hashCode(), a2.hashCode());
     }
+    
+    @Test
+    public void testGetType() {
+        BinsonArray a = new BinsonArray().add(true).add(1).add(1.5).add("s")
+                .add(new byte[1]).add(new BinsonArray()).add(new Binson());
+        Assert.assertEquals(ValueType.BOOLEAN, a.getType(0));
+        Assert.assertEquals(ValueType.INTEGER, a.getType(1));
+        Assert.assertEquals(ValueType.DOUBLE, a.getType(2));
+        Assert.assertEquals(ValueType.STRING, a.getType(3));
+        Assert.assertEquals(ValueType.BYTES, a.getType(4));
+        Assert.assertEquals(ValueType.ARRAY, a.getType(5));
+        Assert.assertEquals(ValueType.OBJECT, a.getType(6));
+    }
+    
+    @Test
+    public void testGetTypeOfParsedArray() {
+        BinsonArray a = new BinsonArray().add("s").add(new Binson().put("a", 1)).add(2);
+        BinsonArray a2 = Binson.fromBytes(new Binson().put("a", a).toBytes()).getArray("a");
+        Assert.assertEquals(ValueType.STRING, a2.getType(0));
+        Assert.assertEquals(ValueType.OBJECT, a2.getType(1));
+        Assert.assertEquals(ValueType.INTEGER, a2.getType(2));
+        Assert.assertEquals(a, a2);
+    }
+    
+    @Test
+    public void testGetTypeOfElementAddedAsObject() {
+        BinsonArray a = new BinsonArray().add("s").addElement(new Binson());
+        Assert.assertEquals(ValueType.OBJECT, a.getType(1));
+        Assert.assertTrue(a.isObject(1));
+        Assert.assertFalse(a.isArray(1));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testAddElementOfUnsupportedType() {
+        new BinsonArray().addElement(Integer.valueOf(1));
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testGetTypeOutOfBounds() {
+        new BinsonArray().add("s").getType(1);
+    }
 }
@@ -0,0 +1,140 @@
+package org.binson;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonPathTest {
+    private final Binson obj = new Binson()
+            .put("header", new Binson().put("route", "a/b").put("ttl", 5))
+            .put("items", new BinsonArray()
+                    .add(new Binson().put("price", 1.5).put("sku", "s1"))
+                    .add(new Binson().put("price", 2.5))
+                    .add(new Binson().put("price", 3.5).put("sku", "s3")))
+            .put("matrix", new BinsonArray()
+                    .add(new BinsonArray().add(1).add(2))
+                    .add(new BinsonArray().add(3).add(4)))
+            .put("blob", new byte[] {1, 2})
+            .put("ok", false);
+    private final ByteBuffer bytes = ByteBuffer.wrap(obj.toBytes());
+
+    @Test
+    public void testTypedGetters() {
+        Assert.assertEquals("a/b", BinsonPath.compile("header.route").getString(bytes));
+        Assert.assertEquals(5, BinsonPath.compile("header.ttl").getInteger(bytes));
+        Assert.assertEquals(2.5, BinsonPath.compile("items[1].price").getDouble(bytes), 0.0);
+        Assert.assertEquals(4, BinsonPath.compile("matrix[1][1]").getInteger(bytes));
+        Assert.assertArrayEquals(new byte[] {1, 2}, BinsonPath.compile("blob").getBytes(bytes));
+        Assert.assertEquals(false, BinsonPath.compile("ok").getBoolean(bytes));
+        Assert.assertEquals(obj.getArray("matrix"), BinsonPath.compile("matrix").getArray(bytes));
+        Assert.assertEquals(5, BinsonPath.compile("header").getObject(bytes).getInteger("ttl"));
+        Assert.assertEquals(0, bytes.position());
+    }
+
+    @Test
+    public void testMissing() {
+        Assert.assertFalse(BinsonPath.compile("header.x").exists(bytes));
+        Assert.assertFalse(BinsonPath.compile("a").exists(bytes));
+        Assert.assertFalse(BinsonPath.compile("zzz").exists(bytes));
+        Assert.assertFalse(BinsonPath.compile("items[5].price").exists(bytes));
+        Assert.assertFalse(BinsonPath.compile("items[1].sku").exists(bytes));
+        Assert.assertFalse(BinsonPath.compile("header[0]").exists(bytes));
+        Assert.assertTrue(BinsonPath.compile("items[2].sku").exists(bytes));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testWrongType() {
+        BinsonPath.compile("header.route").getInteger(bytes);
+    }
+
+    @Test
+    public void testFindAll() {
+        final List<byte[]> values = new ArrayList<byte[]>();
+        int count = BinsonPath.compile("items[*].sku").findAll(bytes, new BinsonPath.Handler() {
+            public void handle(ByteBuffer value) {
+                values.add(toArray(value));
+            }
+        });
+        Assert.assertEquals(2, count);
+        Assert.assertArrayEquals(new byte[] {0x14, 2, 's', '1'}, values.get(0));
+        Assert.assertArrayEquals(new byte[] {0x14, 2, 's', '3'}, values.get(1));
+    }
+
+    @Test
+    public void testFindReturnsValueBytes() {
+        ByteBuffer value = BinsonPath.compile("matrix[*][0]").find(bytes);
+        Assert.assertEquals(2, value.remaining());
+        Assert.assertEquals(0x10, value.get(0));
+        Assert.assertEquals(1, value.get(1));
+
+        ByteBuffer header = BinsonPath.compile("header").find(bytes);
+        Assert.assertArrayEquals(obj.getObject("header").toBytes(), toArray(header));
+    }
+
+    @Test
+    public void testFindAllIndexesAfterWildcard() {
+        final List<byte[]> values = new ArrayList<byte[]>();
+        BinsonPath.compile("matrix[*][1]").findAll(bytes, new BinsonPath.Handler() {
+            public void handle(ByteBuffer value) {
+                values.add(toArray(value));
+            }
+        });
+        Assert.assertEquals(2, values.size());
+        Assert.assertArrayEquals(new byte[] {0x10, 2}, values.get(0));
+        Assert.assertArrayEquals(new byte[] {0x10, 4}, values.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadPath1() {
+        BinsonPath.compile("a..b");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadPath2() {
+        BinsonPath.compile("a[x]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadPath3() {
+        BinsonPath.compile("a[1]b");
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testBadFieldOrder() {
+        // {"b": 1, "a": 2}
+        byte[] bad = new byte[] {0x40, 0x14, 0x01, 'b', 0x10, 0x01, 0x14, 0x01, 'a', 0x10, 0x02, 0x41};
+        BinsonPath.compile("c").exists(ByteBuffer.wrap(bad));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testHugeNameLength() {
+        // {name with 4-byte length 2^31-1, "a", }
+        byte[] bad = new byte[] {0x40, 0x16, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 'a', 0x41};
+        BinsonPath.compile("c").exists(ByteBuffer.wrap(bad));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testInvalidUtf8InName() {
+        // {"a\xff": 1, "c": 2}
+        byte[] bad = new byte[] {0x40, 0x14, 0x02, 'a', (byte) 0xff, 0x10, 0x01, 
+                0x14, 0x01, 'c', 0x10, 0x02, 0x41};
+        BinsonPath.compile("c").exists(ByteBuffer.wrap(bad));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testInvalidUtf8InSkippedValue() {
+        // {"a": "x\xe2\x82", "c": 2}
+        byte[] bad = new byte[] {0x40, 0x14, 0x01, 'a', 0x14, 0x03, 'x', (byte) 0xe2, (byte) 0x82, 
+                0x14, 0x01, 'c', 0x10, 0x02, 0x41};
+        BinsonPath.compile("c").exists(ByteBuffer.wrap(bad));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+}
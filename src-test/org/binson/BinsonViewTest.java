@@ -0,0 +1,135 @@
+package org.binson;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.binson.lowlevel.FieldNamePool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonViewTest {
+    private final Binson obj = new Binson()
+            .put("id", 123456789012L)
+            .put("ok", true)
+            .put("d", -2.5)
+            .put("s", "hello å")
+            .put("b", new byte[] {1, 2, 3})
+            .put("arr", new BinsonArray().add(1).add("x").add(new Binson().put("y", 2)))
+            .put("header", new Binson().put("route", "a/b").put("ttl", 5));
+
+    @Test
+    public void testGetters() {
+        BinsonView view = new BinsonView(obj.toBytes());
+
+        Assert.assertEquals(7, view.size());
+        Assert.assertEquals(123456789012L, view.getInteger("id"));
+        Assert.assertEquals(true, view.getBoolean("ok"));
+        Assert.assertEquals(-2.5, view.getDouble("d"), 0.0);
+        Assert.assertEquals("hello å", view.getString("s"));
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, view.getBytes("b"));
+        Assert.assertEquals(obj.getArray("arr"), view.getArray("arr"));
+        Assert.assertEquals("a/b", view.getObject("header").getString("route"));
+        Assert.assertEquals(5, view.getObject("header").getInteger("ttl"));
+        Assert.assertSame(view.getObject("header"), view.getObject("header"));
+    }
+
+    @Test
+    public void testHasX() {
+        BinsonView view = new BinsonView(obj.toBytes());
+
+        Assert.assertTrue(view.hasInteger("id"));
+        Assert.assertFalse(view.hasString("id"));
+        Assert.assertTrue(view.hasBoolean("ok"));
+        Assert.assertTrue(view.hasDouble("d"));
+        Assert.assertTrue(view.hasString("s"));
+        Assert.assertTrue(view.hasBytes("b"));
+        Assert.assertTrue(view.hasArray("arr"));
+        Assert.assertTrue(view.hasObject("header"));
+        Assert.assertFalse(view.hasObject("missing"));
+        Assert.assertFalse(view.containsKey("missing"));
+        Assert.assertTrue(view.containsKey("s"));
+    }
+
+    @Test
+    public void testLookupDoesNotFillPool() {
+        BinsonView view = new BinsonView(obj.toBytes());
+        int size = FieldNamePool.getDefault().size();
+        Assert.assertFalse(view.hasString("absent-9b1c4e0d"));
+        Assert.assertFalse(view.hasString("absent-åäö-" + new String(new char[100]).replace('\0', 'x')));
+        Assert.assertEquals(size, FieldNamePool.getDefault().size());
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testMissingField() {
+        new BinsonView(obj.toBytes()).getString("missing");
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testWrongType() {
+        new BinsonView(obj.toBytes()).getString("id");
+    }
+
+    @Test
+    public void testFieldNamesAndCopies() {
+        BinsonView view = new BinsonView(obj.toBytes());
+        Assert.assertEquals(obj.fieldNames(), view.fieldNames());
+        Assert.assertArrayEquals(obj.toBytes(), view.toBytes());
+        Assert.assertEquals(obj, view.toBinson());
+        Assert.assertArrayEquals(obj.getObject("header").toBytes(),
+                view.getObject("header").toBytes());
+    }
+
+    @Test
+    public void testDirectBufferWithOffset() {
+        byte[] bytes = obj.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10);
+        buffer.position(5);
+        buffer.put(bytes);
+        buffer.position(5);
+
+        BinsonView view = new BinsonView(buffer);
+        Assert.assertEquals(5, buffer.position());
+        Assert.assertEquals("hello å", view.getString("s"));
+        Assert.assertEquals("a/b", view.getObject("header").getString("route"));
+        Assert.assertEquals(obj, view.toBinson());
+    }
+
+    @Test
+    public void testArraySlice() {
+        byte[] bytes = obj.toBytes();
+        byte[] padded = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, padded, 2, bytes.length);
+        Assert.assertEquals(123456789012L, new BinsonView(padded, 2, bytes.length).getInteger("id"));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testBadFieldOrder() {
+        // {"b": 1, "a": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'b', 0x10, 0x01, 0x14, 0x01, 'a', 0x10, 0x02, 0x41};
+        new BinsonView(bytes).getInteger("a");
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testBadIntegerInSkippedValue() {
+        // {"a": {"x": 1 stored in two bytes}, "b": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 
+                0x40, 0x14, 0x01, 'x', 0x11, 0x01, 0x00, 0x41, 
+                0x14, 0x01, 'b', 0x10, 0x02, 0x41};
+        new BinsonView(bytes).getInteger("b");
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testTruncated() {
+        byte[] bytes = obj.toBytes();
+        new BinsonView(Arrays.copyOf(bytes, bytes.length - 1)).getInteger("id");
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testHugeNameLengthInSkippedValue() {
+        // {"a": {name with 4-byte length 2^31-1, ...}, "b": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 
+                0x40, 0x16, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 'x', 0x10, 0x01, 0x41, 
+                0x14, 0x01, 'b', 0x10, 0x02, 0x41};
+        new BinsonView(bytes).getInteger("b");
+    }
+}
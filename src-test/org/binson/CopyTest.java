@@ -26,4 +26,29 @@ public class CopyTest {
         Assert.assertEquals(2, arr2.size());
         Assert.assertEquals("string1", arr2.getString(0));
     }
+    
+    @Test
+    public void testCopyIsDeep() {
+        byte[] bytes = new byte[] {1, 2, 3};
+        BinsonArray array = new BinsonArray().add(new Binson().put("x", 1)).add(bytes);
+        Binson obj1 = new Binson().put("a", array).put("o", new Binson().put("s", "s"));
+        Binson obj2 = obj1.copy();
+        Assert.assertEquals(obj1, obj2);
+        
+        bytes[0] = 100;
+        array.getObject(0).put("x", 2);
+        obj1.getObject("o").put("s", "t");
+        
+        BinsonArray array2 = obj2.getArray("a");
+        Assert.assertEquals(1, array2.getObject(0).getInteger("x"));
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, array2.getBytes(1));
+        Assert.assertEquals("s", obj2.getObject("o").getString("s"));
+    }
+    
+    @Test
+    public void testCopyKeepsSortedFields() {
+        Binson obj = new Binson(true).put("b", 2).put("a", 1);
+        Assert.assertTrue(obj.copy().hasSortedFields());
+        Assert.assertFalse(new Binson().copy().hasSortedFields());
+    }
 }
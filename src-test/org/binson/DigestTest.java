@@ -0,0 +1,143 @@
+package org.binson;
+
+import static org.junit.Assert.*;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import org.binson.lowlevel.DigestOutput;
+import org.binson.lowlevel.OutputWriter;
+import org.junit.Test;
+
+public class DigestTest {
+    
+    private static Binson createObject() {
+        return new Binson()
+                .put("a", 123)
+                .put("b", "hello")
+                .put("c", new byte[] {1, 2, 3})
+                .put("d", new Binson().put("e", true).put("f", 1.5))
+                .put("g", new BinsonArray().add(1).add(new Binson().put("h", "x")));
+    }
+    
+    @Test
+    public void testDigestEqualsDigestOfBytes() throws Exception {
+        Binson obj = createObject();
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(obj.toBytes());
+        assertArrayEquals(expected, obj.digest("SHA-256"));
+    }
+    
+    @Test
+    public void testDigestOutput() throws Exception {
+        Binson obj = createObject();
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        OutputWriter.writeToOutput(obj, new DigestOutput(md));
+        assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(obj.toBytes()), md.digest());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAlgorithm() {
+        new Binson().digest("NO-SUCH-ALGORITHM");
+    }
+    
+    @Test
+    public void testTreeDigestOfEqualObjects() {
+        assertArrayEquals(createObject().treeDigest("SHA-256"), createObject().treeDigest("SHA-256"));
+    }
+    
+    @Test
+    public void testTreeDigestOfFlatObject() throws Exception {
+        Binson obj = new Binson().put("a", 1).put("b", "x");
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest(obj.toBytes());
+        assertArrayEquals(expected, obj.treeDigest("SHA-256"));
+    }
+    
+    @Test
+    public void testTreeDigestIsStable() {
+        Binson obj = createObject();
+        byte[] d1 = obj.treeDigest("SHA-256");
+        byte[] d2 = obj.treeDigest("SHA-256");
+        assertArrayEquals(d1, d2);
+        assertNotSame(d1, d2);
+    }
+    
+    @Test
+    public void testTreeDigestAfterNestedChange() {
+        Binson obj = createObject();
+        byte[] before = obj.treeDigest("SHA-256");
+        
+        obj.getArray("g").getObject(1).put("h", "y");
+        byte[] after = obj.treeDigest("SHA-256");
+        assertFalse(Arrays.equals(before, after));
+        
+        Binson expected = createObject();
+        expected.getArray("g").getObject(1).put("h", "y");
+        assertArrayEquals(expected.treeDigest("SHA-256"), after);
+    }
+    
+    @Test
+    public void testTreeDigestAfterChange() {
+        Binson obj = createObject();
+        byte[] before = obj.treeDigest("SHA-256");
+        obj.put("a", 124);
+        assertFalse(Arrays.equals(before, obj.treeDigest("SHA-256")));
+        obj.put("a", 123);
+        assertArrayEquals(before, obj.treeDigest("SHA-256"));
+    }
+    
+    @Test
+    public void testTreeDigestAfterReplacingChild() {
+        Binson obj = createObject();
+        byte[] before = obj.treeDigest("SHA-256");
+        obj.put("d", new Binson().put("e", false).put("f", 1.5));
+        assertFalse(Arrays.equals(before, obj.treeDigest("SHA-256")));
+    }
+    
+    @Test
+    public void testTreeDigestOfArray() {
+        BinsonArray array = new BinsonArray().add("x").add(new Binson().put("a", 1));
+        byte[] before = array.treeDigest("SHA-256");
+        array.getObject(1).put("a", 2);
+        assertFalse(Arrays.equals(before, array.treeDigest("SHA-256")));
+    }
+    
+    @Test
+    public void testTreeDigestWithOtherAlgorithm() {
+        Binson obj = createObject();
+        assertEquals(32, obj.treeDigest("SHA-256").length);
+        assertEquals(20, obj.treeDigest("SHA-1").length);
+    }
+    
+    @Test
+    public void testChangeOnlyInvalidatesPathToRoot() {
+        Binson obj = createObject();
+        obj.treeDigest("SHA-256");
+        TreeDigest sibling = obj.getObject("d").treeDigest;
+        assertNotNull(sibling);
+        
+        Binson nested = obj.getArray("g").getObject(1);
+        nested.put("h", "y");
+        assertNull(nested.treeDigest);
+        assertNull(obj.getArray("g").treeDigest);
+        assertNull(obj.treeDigest);
+        assertSame(sibling, obj.getObject("d").treeDigest);
+        
+        obj.treeDigest("SHA-256");
+        assertSame(sibling, obj.getObject("d").treeDigest);
+    }
+    
+    @Test
+    public void testSharedChild() {
+        Binson shared = new Binson().put("x", 1);
+        Binson p1 = new Binson().put("s", shared);
+        BinsonArray p2 = new BinsonArray().add(shared);
+        byte[] before1 = p1.treeDigest("SHA-256");
+        byte[] before2 = p2.treeDigest("SHA-256");
+        
+        shared.put("x", 2);
+        assertFalse(Arrays.equals(before1, p1.treeDigest("SHA-256")));
+        assertFalse(Arrays.equals(before2, p2.treeDigest("SHA-256")));
+        assertArrayEquals(new Binson().put("s", new Binson().put("x", 2)).treeDigest("SHA-256"),
+                p1.treeDigest("SHA-256"));
+    }
+}
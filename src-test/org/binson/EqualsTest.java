@@ -50,4 +50,51 @@ public class EqualsTest {
         assertTrue(o1.equals(o2));
         assertTrue(o2.equals(o1));
     }
+    
+    @Test
+    public void testEqualsBytesByContent() {
+        Binson o1 = new Binson().put("b", new byte[] {1, 2, 3});
+        Binson o2 = new Binson().put("b", new byte[] {1, 2, 3});
+        Binson o3 = new Binson().put("b", new byte[] {1, 2, 4});
+        assertTrue(o1.equals(o2));
+        assertFalse(o1.equals(o3));
+    }
+    
+    @Test
+    public void testEqualsNested() {
+        Binson o1 = new Binson().put("a", new BinsonArray().add(1).add(new Binson().put("x", 2.5)));
+        Binson o2 = new Binson().put("a", new BinsonArray().add(1).add(new Binson().put("x", 2.5)));
+        Binson o3 = new Binson().put("a", new BinsonArray().add(1).add(new Binson().put("x", 2.25)));
+        assertTrue(o1.equals(o2));
+        assertFalse(o1.equals(o3));
+    }
+    
+    @Test
+    public void testEqualsDifferentTypes() {
+        assertFalse(new Binson().put("k", 1).equals(new Binson().put("k", 1.0)));
+        assertFalse(new Binson().put("k", "1").equals(new Binson().put("k", 1)));
+        assertFalse(new Binson().put("k", true).equals(new Binson().put("k", false)));
+    }
+    
+    @Test
+    public void testEqualsDoubleAsSerialized() {
+        // Equal if and only if the serialized bytes are equal.
+        assertFalse(new Binson().put("d", 0.0).equals(new Binson().put("d", -0.0)));
+        assertTrue(new Binson().put("d", Double.NaN).equals(new Binson().put("d", Double.NaN)));
+    }
+    
+    @Test
+    public void testEqualsSortedFields() {
+        Binson o1 = new Binson(true).put("b", 2).put("a", 1);
+        Binson o2 = new Binson().put("a", 1).put("b", 2);
+        assertTrue(o1.equals(o2));
+        assertTrue(o2.equals(o1));
+    }
+    
+    @Test
+    public void testEqualsArray() {
+        assertTrue(new BinsonArray().add("a").add(2).equals(new BinsonArray().add("a").add(2)));
+        assertFalse(new BinsonArray().add("a").add(2).equals(new BinsonArray().add(2).add("a")));
+        assertFalse(new BinsonArray().add("a").equals(new BinsonArray().add("a").add("a")));
+    }
 }
@@ -31,4 +31,23 @@ public class HashCodeTest {
         Binson o2 = new Binson().put("k1", "v1").put("k2", 1);
         assertTrue(o1.hashCode() == o2.hashCode());
     }
+    
+    @Test
+    public void testBytesAndNested() {
+        Binson o1 = new Binson().put("b", new byte[] {1, 2})
+                .put("a", new BinsonArray().add(new Binson().put("d", 1.5)));
+        Binson o2 = new Binson().put("a", new BinsonArray().add(new Binson().put("d", 1.5)))
+                .put("b", new byte[] {1, 2});
+        assertEquals(o1.hashCode(), o2.hashCode());
+    }
+    
+    @Test
+    public void testChangesWithNestedMutation() {
+        BinsonArray array = new BinsonArray().add(1);
+        Binson o1 = new Binson().put("a", array);
+        int hash1 = o1.hashCode();
+        array.add(2);
+        assertTrue(hash1 != o1.hashCode());
+        assertEquals(new Binson().put("a", new BinsonArray().add(1).add(2)).hashCode(), o1.hashCode());
+    }
 }
@@ -0,0 +1,165 @@
+package org.binson;
+
+import java.util.Arrays;
+
+import org.binson.lowlevel.ValueType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitiveArrayTest {
+    
+    @Test
+    public void testEmptyArray() {
+        BinsonArray a = new BinsonArray();
+        Assert.assertNull(a.getPrimitiveType());
+        Assert.assertEquals(0, a.size());
+    }
+    
+    @Test
+    public void testIntegers() {
+        BinsonArray a = new BinsonArray();
+        for (int i = 0; i < 100; i++) {
+            a.add(i);
+        }
+        
+        Assert.assertEquals(ValueType.INTEGER, a.getPrimitiveType());
+        Assert.assertEquals(100, a.size());
+        Assert.assertEquals(99, a.getInteger(99));
+        Assert.assertEquals(Long.valueOf(7), a.getElement(7));
+        Assert.assertTrue(a.isInteger(5));
+        Assert.assertFalse(a.isDouble(5));
+        Assert.assertFalse(a.isString(5));
+    }
+    
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        new BinsonArray().add(1).add(2).getInteger(2);
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testWrongType() {
+        new BinsonArray().add(1.5).getInteger(0);
+    }
+    
+    @Test
+    public void testMixedTypes() {
+        BinsonArray a = new BinsonArray().add(1).add(2).add(2.5).add("x");
+        Assert.assertNull(a.getPrimitiveType());
+        Assert.assertEquals(4, a.size());
+        Assert.assertEquals(2, a.getInteger(1));
+        Assert.assertEquals(2.5, a.getDouble(2), 0.0);
+        Assert.assertEquals("x", a.getString(3));
+    }
+    
+    @Test
+    public void testAddAll() {
+        BinsonArray a = new BinsonArray().addAll(new double[] {1.0, 2.0}).addAll(new double[] {3.0});
+        Assert.assertEquals(ValueType.DOUBLE, a.getPrimitiveType());
+        
+        double[] dest = new double[10];
+        Assert.assertEquals(3, a.getDoubles(dest, 0));
+        Assert.assertArrayEquals(new double[] {1.0, 2.0, 3.0}, Arrays.copyOf(dest, 3), 0.0);
+        Assert.assertEquals(2, a.getDoubles(dest, 1));
+        Assert.assertEquals(0, a.getDoubles(dest, 3));
+    }
+    
+    @Test
+    public void testAddAllToMixedArray() {
+        BinsonArray a = new BinsonArray().add("x").addAll(new long[] {1, 2});
+        Assert.assertEquals(3, a.size());
+        Assert.assertEquals(2, a.getInteger(2));
+    }
+    
+    @Test
+    public void testGetIntegersInChunks() {
+        long[] values = new long[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 1000L;
+        }
+        BinsonArray a = new BinsonArray().addAll(values);
+        
+        long[] chunk = new long[64];
+        int from = 0;
+        while (from < a.size()) {
+            int count = a.getIntegers(chunk, from);
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(values[from + i], chunk[i]);
+            }
+            from += count;
+        }
+        Assert.assertEquals(1000, from);
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testGetIntegersOfMixedArray() {
+        new BinsonArray().add(1).add("x").getIntegers(new long[2], 0);
+    }
+    
+    @Test
+    public void testBooleans() {
+        BinsonArray a = new BinsonArray().addAll(new boolean[] {true, false}).add(true);
+        Assert.assertEquals(ValueType.BOOLEAN, a.getPrimitiveType());
+        boolean[] dest = new boolean[3];
+        a.getBooleans(dest, 0);
+        Assert.assertTrue(dest[0]);
+        Assert.assertFalse(dest[1]);
+        Assert.assertTrue(dest[2]);
+    }
+    
+    @Test
+    public void testParsedArrayIsPrimitive() {
+        Binson obj = new Binson()
+                .put("a", new BinsonArray().addAll(new long[] {1, 300, -70000, Long.MAX_VALUE}))
+                .put("b", new BinsonArray().addAll(new double[] {1.5, -0.0}))
+                .put("c", new BinsonArray().add(1).add(false));
+        Binson obj2 = Binson.fromBytes(obj.toBytes());
+        
+        Assert.assertEquals(ValueType.INTEGER, obj2.getArray("a").getPrimitiveType());
+        Assert.assertEquals(ValueType.DOUBLE, obj2.getArray("b").getPrimitiveType());
+        Assert.assertNull(obj2.getArray("c").getPrimitiveType());
+        Assert.assertEquals(Long.MAX_VALUE, obj2.getArray("a").getInteger(3));
+        Assert.assertEquals(obj, obj2);
+        Assert.assertArrayEquals(obj.toBytes(), obj2.toBytes());
+    }
+    
+    @Test
+    public void testSameBytesAsBoxed() {
+        BinsonArray primitive = new BinsonArray().add(1).add(2);
+        BinsonArray boxed = new BinsonArray().add("x").addAll(new long[] {1, 2});
+        byte[] bytes1 = new Binson().put("a", primitive).toBytes();
+        byte[] bytes2 = new Binson().put("a", boxed).toBytes();
+        
+        // the boxed array has one more element, "x" (0x14 0x01 'x')
+        Assert.assertEquals(bytes1.length + 3, bytes2.length);
+    }
+    
+    @Test
+    public void testEqualsAndHashCode() {
+        BinsonArray a1 = new BinsonArray().add(1.5).add(2.5);
+        BinsonArray a2 = new BinsonArray().addAll(new double[] {1.5, 2.5});
+        Assert.assertEquals(a1, a2);
+        Assert.assertEquals(a1.hashCode(), a2.hashCode());
+        Assert.assertNotEquals(new BinsonArray().add(0.0), new BinsonArray().add(-0.0));
+        
+        int expected = 1;
+        expected = 31 * expected + Values.hashCode(1.5);
+        expected = 31 * expected + Values.hashCode(2.5);
+        Assert.assertEquals(expected, a1.hashCode());
+    }
+    
+    @Test
+    public void testCopy() {
+        BinsonArray a1 = new BinsonArray().add(1).add(2);
+        BinsonArray a2 = a1.copy();
+        a1.add(3);
+        Assert.assertEquals(2, a2.size());
+        Assert.assertEquals(ValueType.INTEGER, a2.getPrimitiveType());
+        Assert.assertEquals(new BinsonArray().add(1).add(2), a2);
+    }
+    
+    @Test
+    public void testToJson() {
+        Binson obj = new Binson().put("a", new BinsonArray().add(1).add(2));
+        Assert.assertEquals(obj, Binson.fromJson(obj.toJson()));
+    }
+}
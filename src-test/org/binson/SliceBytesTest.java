@@ -0,0 +1,181 @@
+package org.binson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.binson.lowlevel.BinsonOutput;
+import org.binson.lowlevel.BinsonParser;
+import org.binson.lowlevel.OutputWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SliceBytesTest {
+    private static final byte[] BLOB = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+    
+    private static Binson parseSliced(byte[] bytes) throws IOException {
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setSliceBytes(true);
+        return parser.parse();
+    }
+    
+    private static byte[] remaining(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+    
+    @Test
+    public void testSliceSharesInput() throws IOException {
+        byte[] bytes = new Binson().put("blob", BLOB).put("x", 1).toBytes();
+        Binson obj = parseSliced(bytes);
+        
+        ByteBuffer slice = obj.getByteBuffer("blob");
+        Assert.assertTrue(slice.isReadOnly());
+        Assert.assertArrayEquals(BLOB, remaining(slice));
+        Assert.assertArrayEquals(BLOB, obj.getBytes("blob"));
+        Assert.assertTrue(obj.hasBytes("blob"));
+        
+        // BEGIN (1 byte), "blob" (6 bytes), bytes type and length (2 bytes), then the blob
+        bytes[9 + 9] = 100;
+        Assert.assertEquals(100, slice.get(9));
+    }
+    
+    @Test(expected=ReadOnlyBufferException.class)
+    public void testSliceIsReadOnly() throws IOException {
+        Binson obj = parseSliced(new Binson().put("blob", BLOB).toBytes());
+        obj.getByteBuffer("blob").put(0, (byte) 0);
+    }
+    
+    @Test
+    public void testSerializeSliced() throws Exception {
+        Binson original = new Binson().put("blob", BLOB)
+                .put("arr", new BinsonArray().add(BLOB).add("s"));
+        byte[] bytes = original.toBytes();
+        Binson obj = parseSliced(bytes);
+        
+        Assert.assertArrayEquals(bytes, obj.toBytes());
+        Assert.assertEquals(original, obj);
+        Assert.assertEquals(obj, original);
+        Assert.assertEquals(original.hashCode(), obj.hashCode());
+        Assert.assertEquals(original.toJson(), obj.toJson());
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.toBytes(out);
+        Assert.assertArrayEquals(bytes, out.toByteArray());
+        
+        Assert.assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(bytes), obj.digest("SHA-256"));
+    }
+    
+    @Test
+    public void testSliceInArray() throws IOException {
+        Binson obj = parseSliced(new Binson().put("arr", new BinsonArray().add(BLOB)).toBytes());
+        BinsonArray array = obj.getArray("arr");
+        Assert.assertTrue(array.isBytes(0));
+        Assert.assertArrayEquals(BLOB, remaining(array.getByteBuffer(0)));
+        Assert.assertArrayEquals(BLOB, array.getBytes(0));
+    }
+    
+    @Test
+    public void testForward() throws IOException {
+        Binson received = parseSliced(new Binson().put("blob", BLOB).put("to", "a").toBytes());
+        Binson forwarded = new Binson().put("payload", received.getByteBuffer("blob"));
+        Assert.assertArrayEquals(BLOB, Binson.fromBytes(forwarded.toBytes()).getBytes("payload"));
+    }
+    
+    @Test
+    public void testDirectBuffer() throws IOException {
+        byte[] bytes = new Binson().put("blob", BLOB).toBytes();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        
+        BinsonParser parser = new BinsonParser(direct);
+        parser.setSliceBytes(true);
+        Binson obj = parser.parse();
+        Assert.assertTrue(obj.getByteBuffer("blob").isDirect());
+        Assert.assertArrayEquals(bytes, obj.toBytes());
+    }
+    
+    @Test
+    public void testStream() throws IOException {
+        byte[] bytes = new Binson().put("blob", BLOB).toBytes();
+        BinsonParser parser = new BinsonParser(new ByteArrayInputStream(bytes));
+        parser.setSliceBytes(true);
+        Assert.assertArrayEquals(BLOB, remaining(parser.parse().getByteBuffer("blob")));
+    }
+    
+    @Test
+    public void testGetByteBufferOfArrayValue() {
+        Binson obj = new Binson().put("blob", BLOB);
+        Assert.assertArrayEquals(BLOB, remaining(obj.getByteBuffer("blob")));
+        Assert.assertTrue(obj.getByteBuffer("blob").isReadOnly());
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testGetByteBufferOfOtherType() {
+        new Binson().put("a", "s").getByteBuffer("a");
+    }
+    
+    @Test
+    public void testCopy() throws IOException {
+        Binson obj = parseSliced(new Binson().put("blob", BLOB).toBytes());
+        Binson copy = obj.copy();
+        Assert.assertEquals(obj, copy);
+        Assert.assertArrayEquals(BLOB, copy.getBytes("blob"));
+    }
+    
+    @Test
+    public void testValidate() throws IOException {
+        Binson schema = new Binson().put("blob", new byte[0]);
+        parseSliced(new Binson().put("blob", BLOB).toBytes()).validate(schema);
+    }
+    
+    @Test
+    public void testView() {
+        byte[] bytes = new Binson().put("blob", BLOB).toBytes();
+        ByteBuffer slice = new BinsonView(bytes).getByteBuffer("blob");
+        Assert.assertArrayEquals(BLOB, remaining(slice));
+        Assert.assertTrue(slice.isReadOnly());
+    }
+
+    @Test
+    public void testSliceWrittenToChannel() throws IOException {
+        byte[] bytes = new Binson().put("blob", BLOB).put("x", 1).toBytes();
+        Binson obj = parseSliced(bytes);
+        
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final List<ByteBuffer> readOnlyWrites = new ArrayList<ByteBuffer>();
+        WritableByteChannel channel = new WritableByteChannel() {
+            public int write(ByteBuffer src) {
+                if (src.isReadOnly()) {
+                    readOnlyWrites.add(src);
+                }
+                int n = src.remaining();
+                while (src.hasRemaining()) {
+                    written.write(src.get());
+                }
+                return n;
+            }
+            
+            public boolean isOpen() {
+                return true;
+            }
+            
+            public void close() {}
+        };
+        
+        BinsonOutput out = new BinsonOutput(channel);
+        OutputWriter.writeToOutput(obj, out);
+        out.flush();
+        
+        Assert.assertArrayEquals(bytes, written.toByteArray());
+        Assert.assertEquals(1, readOnlyWrites.size());
+        Assert.assertEquals(BLOB.length, readOnlyWrites.get(0).position());
+    }
+}
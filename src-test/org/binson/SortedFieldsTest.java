@@ -0,0 +1,55 @@
+package org.binson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.binson.lowlevel.BinsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests Binson objects created with sortedFields == true.
+ */
+public class SortedFieldsTest {
+
+    @Test
+    public void testSameBytes() {
+        Binson sorted = new Binson(true);
+        Binson unsorted = new Binson();
+        String[] names = {"b", "å", "aa", "a", "B", "€", "😀", "ab"};
+        
+        for (int i = 0; i < names.length; i++) {
+            sorted.put(names[i], i);
+            unsorted.put(names[i], i);
+        }
+        
+        Assert.assertTrue(sorted.hasSortedFields());
+        Assert.assertFalse(unsorted.hasSortedFields());
+        Assert.assertArrayEquals(unsorted.toBytes(), sorted.toBytes());
+        Assert.assertEquals(unsorted.fieldNames(), sorted.fieldNames());
+        Assert.assertEquals(sorted.fieldNames(), new ArrayList<String>(sorted.keySet()));
+        Assert.assertEquals(unsorted, sorted);
+    }
+    
+    @Test
+    public void testReplaceAndRemove() {
+        Binson b = new Binson(true).put("b", 1).put("a", 2).put("b", 3);
+        b.remove("a");
+        
+        List<String> names = b.fieldNames();
+        Assert.assertEquals(1, names.size());
+        Assert.assertEquals(3, b.getInteger("b"));
+    }
+    
+    @Test
+    public void testParseSorted() throws Exception {
+        byte[] bytes = new Binson().put("x", new Binson().put("z", 1).put("y", 2)).put("w", 0).toBytes();
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setSortedFields(true);
+        Binson b = parser.parse();
+        
+        Assert.assertTrue(b.hasSortedFields());
+        Assert.assertTrue(b.getObject("x").hasSortedFields());
+        Assert.assertArrayEquals(bytes, b.toBytes());
+    }
+}
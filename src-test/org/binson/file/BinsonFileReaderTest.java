@@ -0,0 +1,125 @@
+package org.binson.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinsonFileReaderTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("binson-objects", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static Binson object(int i) {
+        return new Binson().put("i", i).put("data", new byte[i % 50]);
+    }
+
+    private void write(int count) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        for (int i = 0; i < count; i++) {
+            object(i).toBytes(out);
+        }
+        out.close();
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        write(100);
+
+        BinsonFileReader reader = new BinsonFileReader(file);
+        Assert.assertEquals(100, reader.size());
+        Assert.assertEquals(0, reader.getOffset(0));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(object(i), reader.get(i));
+            Assert.assertEquals(i, reader.getView(i).getInteger("i"));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        BinsonFileReader reader = new BinsonFileReader(file);
+        Assert.assertEquals(0, reader.size());
+        Assert.assertEquals(0, reader.stream().parallel().count());
+        reader.close();
+    }
+
+    @Test
+    public void testSmallWindows() throws IOException {
+        write(300);
+
+        BinsonFileReader reader = new BinsonFileReader(file, 1000, 10, 100);
+        Assert.assertEquals(300, reader.size());
+        for (int i = 0; i < 300; i++) {
+            Assert.assertEquals(object(i), reader.get(i));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testParallelStream() throws IOException {
+        write(1000);
+
+        BinsonFileReader reader = new BinsonFileReader(file);
+        long sum = reader.stream().parallel().mapToLong(obj -> obj.getInteger("i")).sum();
+        Assert.assertEquals(999 * 1000 / 2, sum);
+
+        Object[] all = reader.stream().parallel().toArray();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(object(i), all[i]);
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testSplit() throws IOException {
+        write(5);
+
+        BinsonFileReader reader = new BinsonFileReader(file);
+        Spliterator<ByteBuffer> second = reader.spliterator();
+        Spliterator<ByteBuffer> first = second.trySplit();
+        Assert.assertEquals(2, first.estimateSize());
+        Assert.assertEquals(3, second.estimateSize());
+        Assert.assertTrue(second.hasCharacteristics(Spliterator.SIZED | Spliterator.ORDERED));
+
+        Assert.assertTrue(second.tryAdvance(bytes -> 
+                Assert.assertEquals(object(2), Binson.fromBytes(bytes))));
+        reader.close();
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testIncompleteObject() throws IOException {
+        write(3);
+        OutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] {0x40, 0x14});
+        out.close();
+
+        new BinsonFileReader(file);
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testNotBinson() throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        out.write("hello".getBytes("UTF-8"));
+        out.close();
+
+        new BinsonFileReader(file);
+    }
+}
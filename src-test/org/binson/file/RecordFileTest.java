@@ -0,0 +1,416 @@
+package org.binson.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RecordFileTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("binson-records", ".bin");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        RecordFormat.indexFile(file).delete();
+    }
+
+    private static Binson record(int i) {
+        return new Binson().put("i", i).put("data", new byte[i % 50]);
+    }
+
+    private void write(int count, int indexInterval) throws IOException {
+        RecordFileWriter writer = new RecordFileWriter(file, indexInterval);
+        for (int i = 0; i < count; i++) {
+            writer.append(record(i), 1000 + 10 * i);
+        }
+        writer.close();
+    }
+
+    @Test
+    public void testGetByIndex() throws IOException {
+        write(100, 8);
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(100, reader.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(record(i), reader.get(i));
+            Assert.assertEquals(1000 + 10 * i, reader.getTimestamp(i));
+            Assert.assertEquals(i, reader.getView(i).getInteger("i"));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testBytesAreObjectBytes() throws IOException {
+        write(3, 8);
+
+        RecordFileReader reader = new RecordFileReader(file);
+        ByteBuffer bytes = reader.getBytes(2);
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        Assert.assertArrayEquals(record(2).toBytes(), array);
+        reader.close();
+    }
+
+    @Test
+    public void testFindByTimestamp() throws IOException {
+        write(100, 8);
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(0, reader.findByTimestamp(0));
+        Assert.assertEquals(0, reader.findByTimestamp(1000));
+        Assert.assertEquals(1, reader.findByTimestamp(1001));
+        Assert.assertEquals(42, reader.findByTimestamp(1420));
+        Assert.assertEquals(43, reader.findByTimestamp(1421));
+        Assert.assertEquals(99, reader.findByTimestamp(1990));
+        Assert.assertEquals(100, reader.findByTimestamp(1991));
+        reader.close();
+    }
+
+    @Test
+    public void testFindByTimestampWithEqualTimestamps() throws IOException {
+        RecordFileWriter writer = new RecordFileWriter(file, 2);
+        for (int i = 0; i < 10; i++) {
+            writer.append(record(i), i < 5 ? 1 : 2);
+        }
+        writer.close();
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(0, reader.findByTimestamp(1));
+        Assert.assertEquals(5, reader.findByTimestamp(2));
+        reader.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecreasingTimestamp() throws IOException {
+        RecordFileWriter writer = new RecordFileWriter(file);
+        try {
+            writer.append(record(0), 100);
+            writer.append(record(1), 99);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testAppendAfterReopen() throws IOException {
+        write(10, 4);
+
+        RecordFileWriter writer = new RecordFileWriter(file, 1000);
+        Assert.assertEquals(10, writer.size());
+        writer.append(record(10), 2000);
+        writer.close();
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(11, reader.size());
+        Assert.assertEquals(record(10), reader.get(10));
+        Assert.assertEquals(10, reader.findByTimestamp(2000));
+        reader.close();
+    }
+
+    @Test
+    public void testRefresh() throws IOException {
+        write(5, 4);
+        RecordFileReader reader = new RecordFileReader(file);
+
+        RecordFileWriter writer = new RecordFileWriter(file);
+        writer.append(record(5), 5000);
+        writer.close();
+
+        Assert.assertEquals(5, reader.size());
+        reader.refresh();
+        Assert.assertEquals(6, reader.size());
+        Assert.assertEquals(record(5), reader.get(5));
+        reader.close();
+    }
+
+    @Test
+    public void testTruncatedRecordIsRemoved() throws IOException {
+        write(10, 4);
+        long size = file.length();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(size - 3);
+        raf.close();
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(9, reader.size());
+        reader.close();
+
+        RecordFileWriter writer = new RecordFileWriter(file);
+        Assert.assertEquals(9, writer.size());
+        writer.append(record(9), 5000);
+        writer.close();
+
+        Assert.assertEquals(size, file.length());
+        reader = new RecordFileReader(file);
+        Assert.assertEquals(10, reader.size());
+        Assert.assertEquals(record(9), reader.get(9));
+        reader.close();
+    }
+
+    @Test
+    public void testMissingIndexIsRebuilt() throws IOException {
+        write(20, 4);
+        RecordFormat.indexFile(file).delete();
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(20, reader.size());
+        Assert.assertEquals(record(17), reader.get(17));
+        reader.close();
+
+        new RecordFileWriter(file).close();
+        Assert.assertTrue(RecordFormat.indexFile(file).length() > RecordFormat.INDEX_HEADER_SIZE);
+    }
+
+    private byte[] rebuiltIndex(int indexInterval) throws IOException {
+        File indexFile = RecordFormat.indexFile(file);
+        byte[] current = Files.readAllBytes(indexFile.toPath());
+        indexFile.delete();
+        new RecordFileWriter(file, indexInterval).close();
+        byte[] rebuilt = Files.readAllBytes(indexFile.toPath());
+        Files.write(indexFile.toPath(), current);
+        return rebuilt;
+    }
+
+    @Test
+    public void testIndexIsKeptOnReopen() throws IOException {
+        write(100, 8);
+        File indexFile = RecordFormat.indexFile(file);
+        byte[] index = Files.readAllBytes(indexFile.toPath());
+
+        new RecordFileWriter(file).close();
+        Assert.assertArrayEquals(index, Files.readAllBytes(indexFile.toPath()));
+
+        RecordFileWriter writer = new RecordFileWriter(file);
+        for (int i = 100; i < 120; i++) {
+            writer.append(record(i), 1000 + 10 * i);
+        }
+        writer.close();
+
+        byte[] after = Files.readAllBytes(indexFile.toPath());
+        Assert.assertArrayEquals(index, Arrays.copyOf(after, index.length));
+        Assert.assertArrayEquals(rebuiltIndex(8), after);
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(120, reader.size());
+        Assert.assertEquals(record(117), reader.get(117));
+        reader.close();
+    }
+
+    @Test
+    public void testIndexAfterTruncation() throws IOException {
+        write(17, 4);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(file.length() - 3);
+        raf.close();
+
+        // the last index entry points to the truncated record 16
+        new RecordFileWriter(file).close();
+        byte[] index = Files.readAllBytes(RecordFormat.indexFile(file).toPath());
+        Assert.assertEquals(RecordFormat.INDEX_HEADER_SIZE + 4 * RecordFormat.INDEX_ENTRY_SIZE, index.length);
+        Assert.assertArrayEquals(rebuiltIndex(4), index);
+    }
+
+    @Test
+    public void testIndexFailureClosesDataFile() throws IOException {
+        File fdDir = new File("/proc/self/fd");
+        File indexFile = RecordFormat.indexFile(file);
+        Assert.assertTrue(indexFile.mkdir());
+
+        try {
+            int fdCount = fdDir.isDirectory() ? fdDir.list().length : -1;
+            try {
+                new RecordFileWriter(file);
+                Assert.fail("expected IOException");
+            } catch (IOException e) {
+                // expected, the index file is a directory
+            }
+            if (fdCount != -1) {
+                Assert.assertEquals(fdCount, fdDir.list().length);
+            }
+        } finally {
+            indexFile.delete();
+        }
+    }
+
+    @Test
+    public void testBadChecksum() throws IOException {
+        write(10, 4);
+        RecordFileReader reader = new RecordFileReader(file);
+        long offset = reader.getOffset(3) - 2;
+        reader.close();
+
+        // record 2 is before the last index point, it is verified when accessed
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(offset);
+        raf.write(0x7f);
+        raf.close();
+
+        reader = new RecordFileReader(file);
+        Assert.assertEquals(10, reader.size());
+        reader.get(1);
+        try {
+            reader.get(2);
+            Assert.fail("expected BinsonFormatException");
+        } catch (BinsonFormatException e) {
+            // expected
+        }
+
+        reader.setVerifyChecksums(false);
+        reader.getBytes(2);
+        reader.close();
+    }
+
+    @Test
+    public void testBadChecksumAfterLastIndexPoint() throws IOException {
+        write(10, 4);
+        RecordFileReader reader = new RecordFileReader(file);
+        long offset = reader.getOffset(9) - 2;
+        reader.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(offset);
+        raf.write(0x7f);
+        raf.close();
+
+        // record 8 is corrupt; it and record 9 are removed by the writer
+        reader = new RecordFileReader(file);
+        Assert.assertEquals(8, reader.size());
+        reader.close();
+
+        RecordFileWriter writer = new RecordFileWriter(file);
+        Assert.assertEquals(8, writer.size());
+        writer.append(record(8), 5000);
+        writer.close();
+
+        reader = new RecordFileReader(file);
+        Assert.assertEquals(9, reader.size());
+        Assert.assertEquals(record(8), reader.get(8));
+        reader.close();
+    }
+
+    @Test
+    public void testZeroBytesAfterRecordsAreRemoved() throws IOException {
+        write(10, 4);
+        long size = file.length();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(size);
+        raf.write(new byte[64]);
+        raf.close();
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Assert.assertEquals(10, reader.size());
+        Assert.assertEquals(size, reader.getEndOffset());
+        reader.close();
+
+        RecordFileWriter writer = new RecordFileWriter(file);
+        Assert.assertEquals(10, writer.size());
+        Assert.assertEquals(size, file.length());
+        writer.append(record(10), 5000);
+        writer.close();
+
+        reader = new RecordFileReader(file);
+        Assert.assertEquals(11, reader.size());
+        Assert.assertEquals(record(10), reader.get(10));
+        Assert.assertEquals(11, reader.stream().count());
+        reader.close();
+    }
+
+    @Test
+    public void testDecreasingTimestampAfterLastIndexPoint() throws IOException {
+        write(10, 4);
+        RecordFileReader reader = new RecordFileReader(file);
+        long offset = reader.getOffset(9);
+        reader.close();
+
+        // record 9 gets a timestamp less than that of record 8
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(offset + 8);
+        raf.write(new byte[8]);
+        raf.close();
+
+        reader = new RecordFileReader(file);
+        Assert.assertEquals(9, reader.size());
+        reader.close();
+    }
+
+    @Test
+    public void testRecordsSpanningSegments() throws IOException {
+        write(200, 16);
+
+        RecordFileReader reader = new RecordFileReader(file, 100);
+        for (int i = 0; i < 200; i++) {
+            Assert.assertEquals(record(i), reader.get(i));
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testParallelStream() throws IOException {
+        write(1000, 16);
+
+        RecordFileReader reader = new RecordFileReader(file, 100);
+        long sum = reader.stream().parallel().mapToLong(record -> record.getInteger("i")).sum();
+        Assert.assertEquals(999 * 1000 / 2, sum);
+
+        List<Long> list = reader.stream().parallel()
+                .map(record -> record.getInteger("i"))
+                .collect(Collectors.toList());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(i, list.get(i).longValue());
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testSplitAtRecordBoundaries() throws IOException {
+        write(37, 8);
+
+        RecordFileReader reader = new RecordFileReader(file);
+        Spliterator<ByteBuffer> second = reader.spliterator();
+        Spliterator<ByteBuffer> first = second.trySplit();
+        Spliterator<ByteBuffer> third = second.trySplit();
+        Assert.assertEquals(18, first.estimateSize());
+        Assert.assertEquals(9, third.estimateSize());
+        Assert.assertEquals(10, second.estimateSize());
+
+        final int[] expected = {0};
+        for (Spliterator<ByteBuffer> s : Arrays.asList(first, third, second)) {
+            s.forEachRemaining(bytes -> {
+                Assert.assertEquals(record(expected[0]), Binson.fromBytes(bytes));
+                expected[0]++;
+            });
+        }
+        Assert.assertEquals(37, expected[0]);
+        reader.close();
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testNotARecordFile() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.write(new Binson().put("a", 1).toBytes());
+        raf.close();
+
+        new RecordFileReader(file);
+    }
+}
@@ -0,0 +1,65 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonBufferOutputTest {
+    private final Binson obj = new Binson()
+            .put("i1", 1).put("i2", -200).put("i4", 70000).put("i8", -5000000000L)
+            .put("d", -1.25)
+            .put("s", "hello å")
+            .put("b", new byte[300])
+            .put("a", new BinsonArray().add(false).add(new Binson().put("x", true)));
+
+    @Test
+    public void testSameBytesAsBinsonOutput() throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        OutputWriter.writeToOutput(obj, new BinsonOutput(bout));
+
+        BinsonBufferOutput out = new BinsonBufferOutput();
+        OutputWriter.writeToOutput(obj, out);
+
+        Assert.assertArrayEquals(bout.toByteArray(), out.toByteArray());
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        BinsonBufferOutput out = new BinsonBufferOutput();
+        OutputWriter.writeToOutput(obj, out);
+        byte[] buffer = out.getBuffer();
+
+        out.reset();
+        Assert.assertEquals(0, out.size());
+
+        Binson small = new Binson().put("a", 1);
+        OutputWriter.writeToOutput(small, out);
+        Assert.assertSame(buffer, out.getBuffer());
+        Assert.assertArrayEquals(small.toBytes(), out.toByteArray());
+    }
+
+    @Test
+    public void testCallerSuppliedArrayGrows() throws IOException {
+        byte[] initial = new byte[4];
+        BinsonBufferOutput out = new BinsonBufferOutput(initial);
+        OutputWriter.writeToOutput(obj, out);
+
+        Assert.assertNotSame(initial, out.getBuffer());
+        Assert.assertArrayEquals(obj.toBytes(), out.toByteArray());
+    }
+
+    @Test
+    public void testToByteBuffer() throws IOException {
+        BinsonBufferOutput out = new BinsonBufferOutput(0);
+        OutputWriter.writeToOutput(obj, out);
+
+        ByteBuffer buffer = out.toByteBuffer();
+        Assert.assertEquals(out.size(), buffer.remaining());
+        Assert.assertArrayEquals(obj.toBytes(), Binson.fromBytes(buffer).toBytes());
+    }
+}
@@ -0,0 +1,44 @@
+package org.binson.lowlevel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonFieldNameComparatorTest {
+    private static final char[] CHARS = {
+        'a', 'b', 'z', 'A', '0', '\u007f', '\u0080', '\u00e5', '\u07ff', '\u0800', 
+        '\u20ac', '\ud7ff', '\ue000', '\uffff', '\ud83d', '\ude00', '\udbff', '\udfff'
+    };
+
+    @Test
+    public void testSameOrderAsUtf8Bytes() {
+        Random random = new Random(1234);
+        
+        for (int i = 0; i < 20000; i++) {
+            String s1 = randomString(random);
+            String s2 = randomString(random);
+            int expected = Integer.signum(ByteArrayComparator.compareArrays(
+                    s1.getBytes(StandardCharsets.UTF_8), s2.getBytes(StandardCharsets.UTF_8)));
+            int actual = Integer.signum(BinsonFieldNameComparator.INSTANCE.compare(s1, s2));
+            Assert.assertEquals(s1 + " vs " + s2, expected, actual);
+        }
+    }
+    
+    @Test
+    public void testSupplementaryAfterBmp() {
+        // U+1F600 is encoded with 4 UTF-8 bytes starting with 0xf0, 
+        // U+FFFF with 3 bytes starting with 0xef.
+        Assert.assertTrue(BinsonFieldNameComparator.INSTANCE.compare("\uffff", "\ud83d\ude00") < 0);
+    }
+    
+    private static String randomString(Random random) {
+        int length = random.nextInt(4);
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            b.append(CHARS[random.nextInt(CHARS.length)]);
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.binson.lowlevel.Constants.*;
+
+public class BinsonInputTest {
+    private final Binson obj = new Binson()
+            .put("a", 1234)
+            .put("b", new BinsonArray().add(true).add(2.5).add(new Binson().put("x", "y")))
+            .put("c", "hello")
+            .put("d", new byte[]{1, 2, 3})
+            .put("e", new Binson().put("f", false));
+
+    @Test
+    public void testTokens() throws IOException {
+        BinsonInput input = new BinsonInput(obj.toBytes());
+
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertNull(input.getName());
+
+        Assert.assertEquals(INTEGER, input.next());
+        Assert.assertEquals("a", input.getName());
+        Assert.assertEquals(1234, input.getInteger());
+
+        Assert.assertEquals(BEGIN_ARRAY, input.next());
+        Assert.assertEquals("b", input.getName());
+        Assert.assertEquals(BOOLEAN, input.next());
+        Assert.assertNull(input.getName());
+        Assert.assertEquals(true, input.getBoolean());
+        Assert.assertEquals(DOUBLE, input.next());
+        Assert.assertEquals(2.5, input.getDouble(), 0.0);
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertEquals(STRING, input.next());
+        Assert.assertEquals("x", input.getName());
+        Assert.assertEquals("y", input.getString());
+        Assert.assertEquals(END, input.next());
+        Assert.assertEquals(END_ARRAY, input.next());
+
+        Assert.assertEquals(STRING, input.next());
+        Assert.assertEquals("c", input.getName());
+        Assert.assertEquals("hello", input.getString());
+        Assert.assertEquals("hello", input.getString());
+
+        Assert.assertEquals(BYTES, input.next());
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, input.getBytes());
+
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertEquals("e", input.getName());
+        Assert.assertEquals(2, input.getDepth());
+        Assert.assertEquals(BOOLEAN, input.next());
+        Assert.assertEquals(false, input.getBoolean());
+        Assert.assertEquals(END, input.next());
+
+        Assert.assertEquals(END, input.next());
+        Assert.assertEquals(0, input.getDepth());
+        Assert.assertEquals(obj.toBytes().length, input.getOffset());
+    }
+
+    @Test
+    public void testExtractFieldFromStream() throws IOException {
+        byte[] bytes = obj.toBytes();
+        BinsonInput input = new BinsonInput(new ByteArrayInputStream(bytes));
+        String c = null;
+
+        input.next();
+        while (input.next() != END) {
+            if ("c".equals(input.getName())) {
+                c = input.getString();
+            }
+            input.skipValue();
+        }
+
+        Assert.assertEquals("hello", c);
+        Assert.assertEquals(bytes.length, input.getOffset());
+    }
+
+    @Test(expected=BinsonFormatException.class)
+    public void testBadFieldOrder() throws IOException {
+        // {"b": 1, "a": 2}
+        byte[] bytes = new byte[]{0x40, 0x14, 1, 'b', 0x10, 1, 0x14, 1, 'a', 0x10, 2, 0x41};
+        readAll(new BinsonInput(bytes));
+    }
+
+    @Test(expected=BinsonFormatException.class)
+    public void testNonMinimalInteger() throws IOException {
+        // {"a": 1} with the integer stored in two bytes.
+        byte[] bytes = new byte[]{0x40, 0x14, 1, 'a', 0x11, 1, 0, 0x41};
+        readAll(new BinsonInput(bytes));
+    }
+
+    @Test(expected=BinsonFormatException.class)
+    public void testWrongTokenType() throws IOException {
+        BinsonInput input = new BinsonInput(obj.toBytes());
+        input.next();
+        input.next();
+        input.getString();
+    }
+
+    @Test(expected=MaxSizeException.class)
+    public void testTooManyFields() throws IOException {
+        Binson b = new Binson();
+        for (int i = 0; i < 20; i++) {
+            b.put("f" + i, i);
+        }
+
+        BinsonInput input = new BinsonInput(b.toBytes());
+        input.setMaxFieldCount(10);
+        readAll(input);
+    }
+
+    @Test(expected=MaxSizeException.class)
+    public void testMaxSizeAppliesToSkippedBytes() throws IOException {
+        BinsonInput input = new BinsonInput(new Binson().put("a", new byte[10000]).toBytes());
+        input.setMaxSize(1000);
+        readAll(input);
+    }
+
+    private static void readAll(BinsonInput input) throws IOException {
+        do {
+            input.next();
+        } while (input.getDepth() > 0);
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testSkippedStringMustBeValidUtf8() throws IOException {
+        // {"a": <string 0xc3 0x28>, "b": 1}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 0x14, 0x02, (byte) 0xc3, 0x28,
+                0x14, 0x01, 'b', 0x10, 0x01, 0x41};
+        BinsonInput input = new BinsonInput(new ByteArrayInputStream(bytes));
+        while (input.next() != END) {
+            input.skipValue();
+        }
+    }
+
+    @Test
+    public void testStringReadAsStreamIsNotValidated() throws IOException {
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 0x14, 0x02, (byte) 0xc3, 0x28,
+                0x14, 0x01, 'b', 0x10, 0x01, 0x41};
+        BinsonInput input = new BinsonInput(bytes);
+        input.next();
+        Assert.assertEquals(STRING, input.next());
+        Assert.assertEquals(0xc3, input.getContentStream().read());
+        Assert.assertEquals(INTEGER, input.next());
+        Assert.assertEquals(END, input.next());
+    }
+}
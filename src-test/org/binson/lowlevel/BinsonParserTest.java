@@ -1,8 +1,12 @@
 package org.binson.lowlevel;
 
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import org.binson.Binson;
+import org.binson.BinsonArray;
 import org.binson.BinsonFormatException;
 import org.junit.Assert;
 import org.junit.Test;
@@ -86,4 +90,192 @@ public class BinsonParserTest {
         BinsonParser parser = new BinsonParser(in);
         parser.setMaxFieldCount(-3);    // throws IllegalArgumentException
     }
+    
+    @Test
+    public void testParseByteArraySlice() {
+        Binson b = new Binson().put("a", 1234).put("b", 1.5).put("c", "hello")
+                .put("d", new byte[]{1, 2, 3}).put("e", -5000000000L);
+        byte[] bytes = b.toBytes();
+        byte[] padded = new byte[bytes.length + 10];
+        System.arraycopy(bytes, 0, padded, 7, bytes.length);
+        
+        Binson b2 = BinsonParser.parse(padded, 7, bytes.length);
+        Assert.assertArrayEquals(bytes, b2.toBytes());
+    }
+    
+    @Test
+    public void testParseHeapByteBuffer() {
+        Binson b = new Binson().put("a", "\u00e5\u00e4\u00f6").put("b", new Binson().put("c", 300));
+        byte[] bytes = b.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.position(3);
+        buffer.put(bytes);
+        buffer.position(3);
+        
+        Binson b2 = BinsonParser.parse(buffer);
+        Assert.assertArrayEquals(bytes, b2.toBytes());
+        Assert.assertEquals(3, buffer.position());
+    }
+    
+    @Test
+    public void testParseDirectByteBuffer() {
+        Binson b = new Binson().put("a", "abc").put("b", new byte[]{1, 2}).put("c", 70000);
+        byte[] bytes = b.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        
+        Binson b2 = BinsonParser.parse(buffer);
+        Assert.assertArrayEquals(bytes, b2.toBytes());
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testParseTruncatedByteArray() {
+        byte[] bytes = new Binson().put("a", 1234).toBytes();
+        BinsonParser.parse(bytes, 0, bytes.length - 1);
+    }
+    
+    @Test(expected=MaxSizeException.class)
+    public void testTooBigObjectFromByteArray() throws IOException {
+        byte[] bytes = new Binson().put("a", new byte[100*1000]).toBytes();
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setMaxSize(4000);
+        parser.parse();
+    }
+    
+    @Test
+    public void testProjection() throws IOException {
+        Binson b = new Binson()
+                .put("id", 17)
+                .put("body", new byte[100*1000])
+                .put("header", new Binson().put("route", "a/b").put("ttl", 5).put("z", "z"))
+                .put("items", new BinsonArray()
+                        .add(new Binson().put("sku", "s1").put("price", 1.5))
+                        .add(new Binson().put("sku", "s2").put("price", 2.5)))
+                .put("zzz", new Binson().put("x", 1));
+        
+        BinsonParser parser = new BinsonParser(new ByteArrayInputStream(b.toBytes()));
+        parser.setProjection("id", "header.route", "items.sku", "missing.x");
+        Binson result = parser.parse();
+        
+        Binson expected = new Binson()
+                .put("id", 17)
+                .put("header", new Binson().put("route", "a/b"))
+                .put("items", new BinsonArray()
+                        .add(new Binson().put("sku", "s1"))
+                        .add(new Binson().put("sku", "s2")));
+        Assert.assertEquals(expected, result);
+    }
+    
+    @Test
+    public void testProjectionWholeValueWins() throws IOException {
+        Binson b = new Binson().put("a", new Binson().put("x", 1).put("y", 2)).put("b", 3);
+        BinsonParser parser = new BinsonParser(b.toBytes());
+        parser.setProjection("a.x", "a");
+        Assert.assertEquals(new Binson().put("a", b.getObject("a")), parser.parse());
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testProjectionChecksSkippedValues() throws IOException {
+        // {"a": 1 stored in two bytes, "b": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 0x11, 0x01, 0x00, 
+                0x14, 0x01, 'b', 0x10, 0x02, 0x41};
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setProjection("b");
+        parser.parse();
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testProjectionChecksFieldOrder() throws IOException {
+        // {"b": 1, "a": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'b', 0x10, 0x01, 
+                0x14, 0x01, 'a', 0x10, 0x02, 0x41};
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setProjection("a");
+        parser.parse();
+    }
+    
+    @Test(expected=MaxSizeException.class)
+    public void testProjectionChecksMaxSize() throws IOException {
+        byte[] bytes = new Binson().put("a", 1).put("b", new byte[1000]).toBytes();
+        BinsonParser parser = new BinsonParser(new ByteArrayInputStream(bytes));
+        parser.setMaxSize(500);
+        parser.setProjection("a");
+        parser.parse();
+    }
+    
+    @Test(expected=MaxSizeException.class)
+    public void testProjectionHugeNameLength() throws IOException {
+        // {name with 4-byte length 2^31-1, "a", }
+        byte[] bytes = new byte[] {0x40, 0x16, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 'a', 0x41};
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setProjection("a");
+        parser.parse();
+    }
+    
+    @Test(expected=EOFException.class)
+    public void testProjectionNameLongerThanInput() throws IOException {
+        // {name with 4-byte length 30e6 (below maxSize), "a", }
+        byte[] bytes = new byte[] {0x40, 0x16, (byte) 0x80, (byte) 0xc3, (byte) 0xc9, 0x01, 'a', 0x41};
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setProjection("a");
+        parser.parse();
+    }
+    
+    private static byte[] objectWithInvalidString() {
+        // {"a": "x\xe2\x82"}, the string is a truncated '€'
+        return new byte[] {0x40, 0x14, 0x01, 'a', 0x14, 0x03, 'x', (byte) 0xe2, (byte) 0x82, 0x41};
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testProjectionChecksUtf8OfSkippedValue() throws IOException {
+        // {"a": {"x": "x\xe2\x82"}, "b": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 
+                0x40, 0x14, 0x01, 'x', 0x14, 0x03, 'x', (byte) 0xe2, (byte) 0x82, 0x41, 
+                0x14, 0x01, 'b', 0x10, 0x02, 0x41};
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setProjection("b");
+        parser.parse();
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testProjectionChecksUtf8OfSkippedName() throws IOException {
+        // {"a\xff": 1, "b": 2}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x02, 'a', (byte) 0xff, 0x10, 0x01, 
+                0x14, 0x01, 'b', 0x10, 0x02, 0x41};
+        BinsonParser parser = new BinsonParser(bytes);
+        parser.setProjection("b");
+        parser.parse();
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testInvalidUtf8InString() {
+        byte[] bytes = objectWithInvalidString();
+        BinsonParser.parse(bytes, 0, bytes.length);
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testInvalidUtf8InStringFromStream() throws IOException {
+        BinsonParser.parse(new ByteArrayInputStream(objectWithInvalidString()));
+    }
+    
+    @Test(expected=BinsonFormatException.class)
+    public void testInvalidUtf8InName() {
+        byte[] bytes = {0x40, 0x14, 0x01, (byte) 0x80, 0x10, 0x01, 0x41};
+        BinsonParser.parse(bytes, 0, bytes.length);
+    }
+    
+    @Test
+    public void testStrings() throws IOException {
+        String big = new String(new char[5000]).replace('\0', 'å');
+        Binson obj = new Binson().put("a", "ascii").put("b", "å€😀").put("c", big);
+        byte[] bytes = obj.toBytes();
+        
+        Assert.assertEquals(obj, BinsonParser.parse(bytes, 0, bytes.length));
+        Assert.assertEquals(obj, BinsonParser.parse(new ByteArrayInputStream(bytes)));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.toBytes(out);
+        Assert.assertArrayEquals(bytes, out.toByteArray());
+    }
 }
@@ -0,0 +1,69 @@
+package org.binson.lowlevel;
+
+import java.nio.ByteBuffer;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonPushParserTest {
+    private final Binson obj = new Binson()
+            .put("a", 1234)
+            .put("b", new BinsonArray().add(true).add(2.5).add(new Binson().put("x", "y")))
+            .put("c", "hello")
+            .put("d", new byte[300])
+            .put("e", new Binson().put("f", -5000000000L));
+
+    @Test
+    public void testOneByteAtATime() {
+        byte[] bytes = obj.toBytes();
+        BinsonPushParser parser = new BinsonPushParser();
+
+        for (int i = 0; i < bytes.length - 1; i++) {
+            Assert.assertNull(parser.parse(ByteBuffer.wrap(bytes, i, 1)));
+        }
+        Assert.assertEquals(bytes.length - 1, parser.getBufferedSize());
+
+        Binson result = parser.parse(ByteBuffer.wrap(bytes, bytes.length - 1, 1));
+        Assert.assertEquals(obj, result);
+        Assert.assertEquals(0, parser.getBufferedSize());
+    }
+
+    @Test
+    public void testSeveralObjectsInOneChunk() {
+        byte[] bytes = obj.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(3 * bytes.length);
+        buffer.put(bytes).put(bytes).put(bytes, 0, 10);
+        buffer.flip();
+
+        BinsonPushParser parser = new BinsonPushParser();
+        Assert.assertEquals(obj, parser.parse(buffer));
+        Assert.assertEquals(bytes.length, buffer.position());
+        Assert.assertEquals(obj, parser.parse(buffer));
+        Assert.assertNull(parser.parse(buffer));
+        Assert.assertEquals(10, parser.getBufferedSize());
+
+        Assert.assertEquals(obj, parser.parse(ByteBuffer.wrap(bytes, 10, bytes.length - 10)));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testMustStartWithBegin() {
+        new BinsonPushParser().parse(ByteBuffer.wrap(new byte[] {0x42}));
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testHugeLengthRejectedEarly() {
+        // A bytes field claiming 100 MB; rejected when the length arrives.
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 0x1a, 0x00, (byte) 0xe1, (byte) 0xf5, 0x05};
+        new BinsonPushParser().parse(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testCompleteObjectIsChecked() {
+        // {"b": 1, "a": 2}, bad field order.
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'b', 0x10, 0x01, 0x14, 0x01, 'a', 0x10, 0x02, 0x41};
+        new BinsonPushParser().parse(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,147 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonSchemaTest {
+
+    private static Binson schemaObject() {
+        return new Binson()
+                .put("name", "Maria")
+                .put("born", 1980)
+                .put("born-info", new Binson().put("optional", true))
+                .put("boss", new Binson()
+                        .put("name", "Anton")
+                        .put("id", new byte[] {1}))
+                .put("permissions", new BinsonArray()
+                        .add(new Binson().put("name", "read")))
+                .put("tags", new BinsonArray());
+    }
+
+    private static Binson valid() {
+        return new Binson()
+                .put("name", "Natalia")
+                .put("boss", new Binson().put("name", "Lars").put("id", new byte[2]))
+                .put("permissions", new BinsonArray()
+                        .add(new Binson().put("name", "read"))
+                        .add(new Binson().put("name", "write").put("extra", 1)))
+                .put("tags", new BinsonArray().add(1).add("x"))
+                .put("zzz", 1.5);
+    }
+
+    private static Binson without(Binson obj, String name) {
+        obj.remove(name);
+        return obj;
+    }
+
+    /**
+     * Checks that the compiled schema, the parser and Binson.validate() agree.
+     */
+    private static boolean check(Binson obj) {
+        Binson schemaObject = schemaObject();
+        BinsonSchema schema = BinsonSchema.compile(schemaObject);
+
+        boolean expected;
+        try {
+            obj.validate(schemaObject);
+            expected = true;
+        } catch (BinsonFormatException e) {
+            expected = false;
+        }
+
+        Assert.assertEquals(expected, schema.isValid(obj));
+
+        BinsonParser parser = new BinsonParser(obj.toBytes());
+        parser.setSchema(schema);
+        boolean parsed;
+        try {
+            Assert.assertEquals(obj, parser.parse());
+            parsed = true;
+        } catch (BinsonFormatException e) {
+            parsed = false;
+        } catch (IOException e) {
+            throw new Error(e);
+        }
+
+        Assert.assertEquals(expected, parsed);
+        return expected;
+    }
+
+    @Test
+    public void testValid() {
+        Assert.assertTrue(check(valid()));
+        Assert.assertTrue(check(valid().put("born", 2011)));
+    }
+
+    @Test
+    public void testMissingMandatoryField() {
+        Assert.assertFalse(check(without(valid(), "name")));
+        Assert.assertFalse(check(without(valid(), "tags")));
+        Assert.assertFalse(check(valid().put("boss", new Binson().put("name", "x"))));
+    }
+
+    @Test
+    public void testBadType() {
+        Assert.assertFalse(check(valid().put("born", "2011")));
+        Assert.assertFalse(check(valid().put("boss", "Lars")));
+        Assert.assertFalse(check(valid().put("tags", 1)));
+        Assert.assertFalse(check(valid().put("name", new BinsonArray())));
+    }
+
+    @Test
+    public void testBadArrayElement() {
+        Binson obj = valid().put("permissions", new BinsonArray()
+                .add(new Binson().put("name", "read"))
+                .add(new Binson().put("NAME", "write")));
+        Assert.assertFalse(check(obj));
+
+        obj = valid().put("permissions", new BinsonArray()
+                .add(new Binson().put("name", "read"))
+                .add("write"));
+        Assert.assertFalse(check(obj));
+    }
+
+    @Test
+    public void testMessage() {
+        try {
+            BinsonSchema.compile(schemaObject()).validate(valid().put("born", "2011"));
+            Assert.fail();
+        } catch (BinsonFormatException e) {
+            Assert.assertEquals("bad field type of field 'born' expected Long, got String",
+                    e.getMessage());
+        }
+    }
+
+    @Test
+    public void testParserFailsAtFirstBadByte() throws IOException {
+        // "born" is the first field in Binson field order, 
+        // the rest of the object is never read.
+        byte[] bytes = valid().put("born", "2011").toBytes();
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+
+        BinsonParser parser = new BinsonParser(in);
+        parser.setSchema(BinsonSchema.compile(schemaObject()));
+        try {
+            parser.parse();
+            Assert.fail();
+        } catch (BinsonFormatException e) {
+            // expected
+        }
+
+        Assert.assertEquals(bytes.length - 8, in.available());
+    }
+
+    @Test
+    public void testSchemaReplacesProjection() throws IOException {
+        BinsonParser parser = new BinsonParser(valid().toBytes());
+        parser.setProjection("name");
+        parser.setSchema(BinsonSchema.compile(schemaObject()));
+        Assert.assertEquals(valid(), parser.parse());
+    }
+}
@@ -0,0 +1,98 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonStreamReaderTest {
+
+    private static byte[] messages(int count, int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            new Binson().put("i", i).put("data", new byte[size]).toBytes(out);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testManyMessagesWithPerMessageMaxSize() throws IOException {
+        byte[] bytes = messages(100, 100);
+        int messageSize = bytes.length / 100;
+
+        BinsonStreamReader reader = new BinsonStreamReader(new ByteArrayInputStream(bytes));
+        reader.setMaxSize(messageSize + 1);
+
+        for (int i = 0; i < 100; i++) {
+            Binson message = reader.read();
+            Assert.assertEquals(i, message.getInteger("i"));
+            Assert.assertEquals((long) i * messageSize, reader.getMessageOffset());
+            Assert.assertEquals((long) (i + 1) * messageSize, reader.getOffset());
+        }
+
+        Assert.assertNull(reader.read());
+        Assert.assertEquals(100, reader.getMessageCount());
+        reader.close();
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testMaxSizeStillApplies() throws IOException {
+        BinsonStreamReader reader = new BinsonStreamReader(
+                new ByteArrayInputStream(messages(2, 100)));
+        reader.setMaxSize(50);
+        reader.read();
+    }
+
+    @Test
+    public void testSkip() throws IOException {
+        byte[] bytes = messages(3, 10);
+        BinsonStreamReader reader = new BinsonStreamReader(
+                Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+        Assert.assertTrue(reader.skip());
+        Assert.assertTrue(reader.skip());
+        Assert.assertEquals(2, reader.read().getInteger("i"));
+        Assert.assertFalse(reader.skip());
+        Assert.assertEquals(bytes.length, reader.getOffset());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedLastMessage() throws IOException {
+        byte[] bytes = messages(2, 10);
+        BinsonStreamReader reader = new BinsonStreamReader(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 2)));
+        reader.read();
+        reader.read();
+    }
+
+    @Test
+    public void testReadAndSkipAgreeOnInvalidUtf8() throws IOException {
+        // {"a": "x\xe2\x82"}, {"a\xff": 1}
+        byte[][] invalid = {
+                {0x40, 0x14, 0x01, 'a', 0x14, 0x03, 'x', (byte) 0xe2, (byte) 0x82, 0x41},
+                {0x40, 0x14, 0x02, 'a', (byte) 0xff, 0x10, 0x01, 0x41}};
+
+        for (byte[] bytes : invalid) {
+            try {
+                new BinsonStreamReader(new ByteArrayInputStream(bytes)).read();
+                Assert.fail("expected BinsonFormatException from read()");
+            } catch (BinsonFormatException e) {
+                // expected
+            }
+
+            try {
+                new BinsonStreamReader(new ByteArrayInputStream(bytes)).skip();
+                Assert.fail("expected BinsonFormatException from skip()");
+            } catch (BinsonFormatException e) {
+                // expected
+            }
+        }
+    }
+}
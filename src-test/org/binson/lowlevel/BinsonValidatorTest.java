@@ -0,0 +1,201 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinsonValidatorTest {
+
+    private static byte[] sample() {
+        return new Binson()
+                .put("a", new Binson().put("b", 1).put("c", "åäö"))
+                .put("d", new BinsonArray().add(1.5).add(new byte[300]).add(Long.MIN_VALUE))
+                .put("€", true)
+                .toBytes();
+    }
+
+    @Test
+    public void testValid() {
+        byte[] bytes = sample();
+        BinsonValidator validator = new BinsonValidator();
+        Assert.assertEquals(bytes.length, validator.validate(bytes, 0, bytes.length));
+        Assert.assertTrue(validator.isValid(bytes));
+        Assert.assertEquals(bytes.length, validator.validate(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void testTrailingBytes() {
+        byte[] bytes = sample();
+        byte[] longer = new byte[bytes.length + 5];
+        System.arraycopy(bytes, 0, longer, 0, bytes.length);
+
+        BinsonValidator validator = new BinsonValidator();
+        Assert.assertEquals(bytes.length, validator.validate(longer, 0, longer.length));
+        Assert.assertFalse(validator.isValid(longer));
+    }
+
+    @Test
+    public void testMessageLengthForFraming() {
+        byte[] bytes = sample();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * bytes.length);
+        BinsonValidator validator = new BinsonValidator();
+
+        buffer.put(bytes, 0, 10).flip();
+        Assert.assertEquals(-1, validator.messageLength(buffer));
+
+        buffer.compact();
+        buffer.put(bytes, 10, bytes.length - 10).put(bytes).flip();
+        Assert.assertEquals(bytes.length, validator.messageLength(buffer));
+        Assert.assertEquals(0, buffer.position());
+        buffer.position(bytes.length);
+        Assert.assertEquals(bytes.length, validator.messageLength(buffer));
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        byte[] bytes = sample();
+        byte[] twice = new byte[2 * bytes.length];
+        System.arraycopy(bytes, 0, twice, 0, bytes.length);
+        System.arraycopy(bytes, 0, twice, bytes.length, bytes.length);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(twice);
+        BinsonValidator validator = new BinsonValidator();
+        Assert.assertEquals(bytes.length, validator.validate(in));
+        Assert.assertEquals(bytes.length, in.available());
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testIncomplete() {
+        byte[] bytes = sample();
+        new BinsonValidator().validate(bytes, 0, bytes.length - 1);
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testInvalidUtf8InString() {
+        // {"a": "\xc3"}
+        byte[] bytes = {0x40, 0x14, 0x01, 'a', 0x14, 0x01, (byte) 0xc3, 0x41};
+        new BinsonValidator().validate(bytes, 0, bytes.length);
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testInvalidUtf8InStream() throws IOException {
+        byte[] bytes = {0x40, 0x14, 0x01, 'a', 0x14, 0x01, (byte) 0xc3, 0x41};
+        new BinsonValidator().validate(new ByteArrayInputStream(bytes));
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testInvalidUtf8InName() {
+        byte[] bytes = {0x40, 0x14, 0x01, (byte) 0xff, 0x44, 0x41};
+        new BinsonValidator().validate(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testUtf8CheckCanBeTurnedOff() {
+        byte[] bytes = {0x40, 0x14, 0x01, 'a', 0x14, 0x01, (byte) 0xc3, 0x41};
+        BinsonValidator validator = new BinsonValidator();
+        validator.setValidateUtf8(false);
+        Assert.assertTrue(validator.isValid(bytes));
+    }
+
+    @Test
+    public void testNonMinimalInteger() {
+        // {"a": 1} with a 2-byte integer
+        byte[] bytes = {0x40, 0x14, 0x01, 'a', 0x11, 0x01, 0x00, 0x41};
+        Assert.assertFalse(new BinsonValidator().isValid(bytes));
+    }
+
+    @Test
+    public void testBadFieldOrder() {
+        byte[] bytes = {0x40, 0x14, 0x01, 'b', 0x44, 0x14, 0x01, 'a', 0x44, 0x41};
+        Assert.assertFalse(new BinsonValidator().isValid(bytes));
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testMaxSize() {
+        byte[] bytes = sample();
+        BinsonValidator validator = new BinsonValidator();
+        validator.setMaxSize(100);
+        validator.messageLength(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testMaxFieldCount() {
+        byte[] bytes = sample();
+        BinsonValidator validator = new BinsonValidator();
+        validator.setMaxFieldCount(2);
+        validator.validate(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testAgreesWithParser() {
+        byte[] bytes = sample();
+        BinsonValidator validator = new BinsonValidator();
+
+        for (int i = 0; i < bytes.length; i++) {
+            for (int delta : new int[] {1, 0x40, 0x80}) {
+                byte[] changed = bytes.clone();
+                changed[i] = (byte) (changed[i] + delta);
+
+                boolean parsed;
+                try {
+                    parsed = BinsonParser.parse(changed, 0, changed.length) != null;
+                } catch (BinsonFormatException e) {
+                    parsed = false;
+                }
+
+                if (validator.isValid(changed)) {
+                    Assert.assertTrue("index " + i, parsed);
+                }
+            }
+        }
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testDeepNesting() {
+        // {"a": [[[[... 200 kB of BEGIN_ARRAY bytes
+        byte[] bytes = new byte[200 * 1024];
+        Arrays.fill(bytes, (byte) 0x42);
+        bytes[0] = 0x40;
+        bytes[1] = 0x14;
+        bytes[2] = 0x01;
+        bytes[3] = 'a';
+        new BinsonValidator().messageLength(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void testMaxDepth() {
+        BinsonArray array = new BinsonArray();
+        for (int i = 0; i < 9; i++) {
+            array = new BinsonArray().add(array);
+        }
+        byte[] bytes = new Binson().put("a", array).toBytes();
+
+        BinsonValidator validator = new BinsonValidator();
+        validator.setMaxDepth(11);
+        Assert.assertTrue(validator.isValid(bytes));
+        validator.setMaxDepth(10);
+        Assert.assertFalse(validator.isValid(bytes));
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testHugeNameLength() {
+        // {, name with 4-byte length 2^31-1, "a", }
+        byte[] bytes = {0x40, 0x16, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x7f, 0x61, 0x41};
+        new BinsonValidator().messageLength(ByteBuffer.wrap(bytes));
+    }
+
+    @Test
+    public void testNameLongerThanBuffer() {
+        // {, name with 4-byte length 30e6 (below maxSize), "a", }
+        byte[] bytes = {0x40, 0x16, (byte) 0x80, (byte) 0xc3, (byte) 0xc9, 0x01, 0x61, 0x41};
+        Assert.assertEquals(-1, new BinsonValidator().messageLength(ByteBuffer.wrap(bytes)));
+        Assert.assertFalse(new BinsonValidator().isValid(bytes));
+    }
+}
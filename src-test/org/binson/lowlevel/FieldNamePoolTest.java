@@ -0,0 +1,120 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.binson.Binson;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FieldNamePoolTest {
+
+    @Test
+    public void testSameInstance() {
+        FieldNamePool pool = new FieldNamePool(10);
+        byte[] bytes = "xhellox".getBytes(StandardCharsets.UTF_8);
+        
+        String s1 = pool.toName(bytes, 1, 5);
+        String s2 = pool.toName("hello".getBytes(StandardCharsets.UTF_8), 0, 5);
+        
+        Assert.assertEquals("hello", s1);
+        Assert.assertSame(s1, s2);
+        Assert.assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), pool.toUtf8("hello"));
+        Assert.assertSame(pool.toUtf8("hello"), pool.toUtf8(new String("hello")));
+        Assert.assertEquals(1, pool.size());
+    }
+    
+    @Test
+    public void testBounded() {
+        FieldNamePool pool = new FieldNamePool(2);
+        for (int i = 0; i < 100; i++) {
+            String name = "name" + i;
+            Assert.assertArrayEquals(name.getBytes(StandardCharsets.UTF_8), pool.toUtf8(name));
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(name, pool.toName(bytes, 0, bytes.length));
+        }
+        Assert.assertEquals(2, pool.size());
+    }
+    
+    @Test
+    public void testLookupDoesNotAdd() {
+        FieldNamePool pool = new FieldNamePool(10);
+        Assert.assertNull(pool.lookupUtf8("a"));
+        Assert.assertEquals(0, pool.size());
+        
+        byte[] utf8 = pool.toUtf8("a");
+        Assert.assertSame(utf8, pool.lookupUtf8("a"));
+    }
+    
+    @Test
+    public void testLongNamesNotPooled() {
+        FieldNamePool pool = new FieldNamePool(10);
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i <= FieldNamePool.MAX_NAME_LENGTH; i++) {
+            b.append('a');
+        }
+        String name = b.toString();
+        
+        Assert.assertArrayEquals(name.getBytes(StandardCharsets.UTF_8), pool.toUtf8(name));
+        Assert.assertEquals(0, pool.size());
+    }
+    
+    @Test
+    public void testParsersUsePool() throws IOException {
+        FieldNamePool pool = new FieldNamePool(10);
+        byte[] bytes = new Binson().put("name", 1).put("åäö", 2).toBytes();
+        
+        BinsonParser p1 = new BinsonParser(bytes);
+        p1.setFieldNamePool(pool);
+        BinsonParser p2 = new BinsonParser(new ByteArrayInputStream(bytes));
+        p2.setFieldNamePool(pool);
+        
+        String name1 = p1.parse().fieldNames().get(0);
+        String name2 = p2.parse().fieldNames().get(0);
+        Assert.assertEquals("name", name1);
+        Assert.assertSame(name1, name2);
+        Assert.assertEquals(2, pool.size());
+    }
+    
+    @Test
+    public void testParsersDoNotUseDefaultPool() throws IOException {
+        byte[] bytes = new Binson().put("junk-c2a8f7e1", 1).toBytes();
+        Assert.assertNull(new BinsonParser(bytes).getFieldNamePool());
+        Assert.assertNull(new BinsonInput(bytes).getFieldNamePool());
+        
+        int size = FieldNamePool.getDefault().size();
+        Binson.fromBytes(bytes);
+        BinsonInput input = new BinsonInput(bytes);
+        input.next();
+        input.next();
+        Assert.assertEquals(size, FieldNamePool.getDefault().size());
+    }
+    
+    @Test
+    public void testOutputsUsePool() throws IOException {
+        Binson obj = new Binson().put("a", 1).put("å", 2);
+        
+        BinsonBufferOutput out = new BinsonBufferOutput();
+        out.setFieldNamePool(null);
+        OutputWriter.writeToOutput(obj, out);
+        byte[] expected = out.toByteArray();
+        
+        out = new BinsonBufferOutput();
+        out.setFieldNamePool(new FieldNamePool(10));
+        OutputWriter.writeToOutput(obj, out);
+        Assert.assertArrayEquals(expected, out.toByteArray());
+    }
+    
+    @Test
+    public void testOutputsDoNotUseDefaultPool() throws IOException {
+        Binson obj = new Binson().put("junk-5e03b9d4", 1);
+        int size = FieldNamePool.getDefault().size();
+        
+        obj.toBytes();
+        obj.digest("SHA-256");
+        OutputWriter.writeToOutput(obj, new BinsonOutput(new ByteArrayOutputStream()));
+        Assert.assertEquals(size, FieldNamePool.getDefault().size());
+    }
+}
@@ -0,0 +1,93 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.binson.lowlevel.Constants.*;
+
+public class JsonInputTest {
+
+    @Test
+    public void testTokens() throws IOException {
+        String json = "{\"z\": 1, \"a\": [true, -2.5e1, {\"x\": \"y\"}, []], \"b\": {}, \"c\": \"0x0102\"}";
+        JsonInput input = new JsonInput(new StringReader(json));
+        input.setEnableHex(true);
+
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertEquals(INTEGER, input.next());
+        Assert.assertEquals("z", input.getName());
+        Assert.assertEquals(1, input.getInteger());
+
+        Assert.assertEquals(BEGIN_ARRAY, input.next());
+        Assert.assertEquals("a", input.getName());
+        Assert.assertEquals(BOOLEAN, input.next());
+        Assert.assertNull(input.getName());
+        Assert.assertEquals(true, input.getBoolean());
+        Assert.assertEquals(DOUBLE, input.next());
+        Assert.assertEquals(-25.0, input.getDouble(), 0.0);
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertEquals(STRING, input.next());
+        Assert.assertEquals("x", input.getName());
+        Assert.assertEquals("y", input.getString());
+        Assert.assertEquals(END, input.next());
+        Assert.assertEquals(BEGIN_ARRAY, input.next());
+        Assert.assertEquals(END_ARRAY, input.next());
+        Assert.assertEquals(END_ARRAY, input.next());
+
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertEquals("b", input.getName());
+        Assert.assertEquals(END, input.next());
+
+        Assert.assertEquals(BYTES, input.next());
+        Assert.assertEquals("c", input.getName());
+        Assert.assertArrayEquals(new byte[]{1, 2}, input.getBytes());
+
+        Assert.assertEquals(END, input.next());
+        Assert.assertEquals(0, input.getDepth());
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        String json = "{\"a\": {\"b\": [1, 2, {\"c\": 3}]}, \"d\": \"e\"}";
+        JsonInput input = new JsonInput(new StringReader(json));
+        String d = null;
+
+        input.next();
+        while (input.next() != END) {
+            if ("d".equals(input.getName())) {
+                d = input.getString();
+            }
+            input.skipValue();
+        }
+
+        Assert.assertEquals("e", d);
+    }
+
+    @Test(expected=JsonParseException.class)
+    public void testMissingComma() throws IOException {
+        readAll(new JsonInput(new StringReader("{\"a\": 1 \"b\": 2}")));
+    }
+
+    @Test(expected=JsonParseException.class)
+    public void testNull() throws IOException {
+        readAll(new JsonInput(new StringReader("{\"a\": null}")));
+    }
+
+    @Test(expected=BinsonFormatException.class)
+    public void testWrongTokenType() throws IOException {
+        JsonInput input = new JsonInput(new StringReader("{\"a\": 1}"));
+        input.next();
+        input.next();
+        input.getString();
+    }
+
+    private static void readAll(JsonInput input) throws IOException {
+        do {
+            input.next();
+        } while (input.getDepth() > 0);
+    }
+}
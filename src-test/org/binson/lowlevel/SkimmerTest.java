@@ -0,0 +1,58 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SkimmerTest {
+
+    @Test
+    public void testSkipsWholeObject() throws IOException {
+        Binson obj = new Binson()
+                .put("a", new Binson().put("c", new Binson().put("x", 1).put("y", 2)).put("d", 1))
+                .put("b", new BinsonArray().add(new Binson().put("z", "z")).add(new byte[1000]))
+                .put("c", 1.5);
+        byte[] bytes = obj.toBytes();
+        byte[] twice = new byte[2 * bytes.length];
+        System.arraycopy(bytes, 0, twice, 0, bytes.length);
+        System.arraycopy(bytes, 0, twice, bytes.length, bytes.length);
+
+        ByteReader reader = new ByteReader(new ByteArrayInputStream(twice));
+        Skimmer skimmer = new Skimmer(reader);
+        skimmer.skipValue(reader.readOne());
+        Assert.assertEquals(bytes.length, reader.getOffset());
+        skimmer.skipValue(reader.readOne());
+        Assert.assertEquals(twice.length, reader.getOffset());
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testBadFieldOrderInNestedObject() throws IOException {
+        // {"a": {"y": 1, "x": 2}}
+        byte[] bytes = new byte[] {0x40, 0x14, 0x01, 'a', 
+                0x40, 0x14, 0x01, 'y', 0x10, 0x01, 0x14, 0x01, 'x', 0x10, 0x02, 0x41, 0x41};
+        ByteReader reader = new ByteReader(bytes, 0, bytes.length);
+        new Skimmer(reader).skipValue(reader.readOne());
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testMaxFieldCount() throws IOException {
+        byte[] bytes = new Binson().put("a", 1).put("b", 2).put("c", 3).toBytes();
+        ByteReader reader = new ByteReader(bytes, 0, bytes.length);
+        Skimmer skimmer = new Skimmer(reader);
+        skimmer.setMaxFieldCount(2);
+        skimmer.skipValue(reader.readOne());
+    }
+
+    @Test(expected = MaxSizeException.class)
+    public void testMaxSize() throws IOException {
+        byte[] bytes = new Binson().put("a", new byte[100]).toBytes();
+        ByteReader reader = new ByteReader(bytes, 0, bytes.length);
+        reader.setMaxSize(50);
+        new Skimmer(reader).skipValue(reader.readOne());
+    }
+}
@@ -0,0 +1,296 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.binson.lowlevel.Constants.*;
+
+public class StreamingBytesTest {
+    private static byte[] content(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+
+    private static byte[] expected(byte[] content) {
+        return new Binson().put("a", 1).put("b", content).put("c", "end").toBytes();
+    }
+
+    private static void writeStart(BinsonOutput out) throws IOException {
+        out.writeBegin();
+        out.writeName("a");
+        out.writeInteger(1);
+        out.writeName("b");
+    }
+
+    private static void writeFinish(BinsonOutput out) throws IOException {
+        out.writeName("c");
+        out.writeString("end");
+        out.writeEnd();
+        out.flush();
+    }
+
+    @Test
+    public void testWriteFromInputStream() throws IOException {
+        byte[] content = content(70000);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinsonOutput out = new BinsonOutput(bout);
+
+        writeStart(out);
+        out.writeBytes(new ByteArrayInputStream(content), content.length);
+        writeFinish(out);
+
+        Assert.assertArrayEquals(expected(content), bout.toByteArray());
+    }
+
+    @Test
+    public void testWriteFromChannel() throws IOException {
+        byte[] content = content(20000);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinsonOutput out = new BinsonOutput(bout);
+
+        writeStart(out);
+        out.writeBytes(Channels.newChannel(new ByteArrayInputStream(content)), content.length);
+        writeFinish(out);
+
+        Assert.assertArrayEquals(expected(content), bout.toByteArray());
+    }
+
+    @Test
+    public void testWriteEmpty() throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinsonOutput out = new BinsonOutput(bout);
+
+        writeStart(out);
+        out.writeBytes(new ByteArrayInputStream(new byte[0]), 0);
+        writeFinish(out);
+
+        Assert.assertArrayEquals(expected(new byte[0]), bout.toByteArray());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testWriteShortStream() throws IOException {
+        BinsonOutput out = new BinsonOutput(new ByteArrayOutputStream());
+        out.writeBytes(new ByteArrayInputStream(content(10)), 11);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteTooLong() throws IOException {
+        BinsonOutput out = new BinsonOutput(new ByteArrayOutputStream());
+        out.writeBytes(new ByteArrayInputStream(content(10)), Integer.MAX_VALUE + 1L);
+    }
+
+    @Test
+    public void testTransferToFileOutputStream() throws IOException {
+        byte[] content = content(100000);
+        File source = File.createTempFile("binson", ".src");
+        File dest = File.createTempFile("binson", ".dest");
+
+        try {
+            Files.write(source.toPath(), content(100));
+            Files.write(source.toPath(), content, StandardOpenOption.APPEND);
+
+            try (FileChannel in = new RandomAccessFile(source, "r").getChannel();
+                    FileOutputStream fout = new FileOutputStream(dest)) {
+                in.position(100);
+                BinsonOutput out = new BinsonOutput(fout);
+                writeStart(out);
+                out.writeBytes(in, content.length);
+                writeFinish(out);
+                Assert.assertEquals(100 + content.length, in.position());
+            }
+
+            Assert.assertArrayEquals(expected(content), Files.readAllBytes(dest.toPath()));
+        } finally {
+            source.delete();
+            dest.delete();
+        }
+    }
+
+    @Test
+    public void testTransferToChannel() throws IOException {
+        byte[] content = content(5000);
+        File source = File.createTempFile("binson", ".src");
+        File dest = File.createTempFile("binson", ".dest");
+
+        try {
+            Files.write(source.toPath(), content);
+
+            try (FileChannel in = new RandomAccessFile(source, "r").getChannel();
+                    FileChannel destChannel = new RandomAccessFile(dest, "rw").getChannel()) {
+                BinsonOutput out = new BinsonOutput(destChannel);
+                writeStart(out);
+                out.writeBytes(in, content.length);
+                writeFinish(out);
+            }
+
+            Assert.assertArrayEquals(expected(content), Files.readAllBytes(dest.toPath()));
+        } finally {
+            source.delete();
+            dest.delete();
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTransferShortFile() throws IOException {
+        File source = File.createTempFile("binson", ".src");
+        File dest = File.createTempFile("binson", ".dest");
+
+        try {
+            Files.write(source.toPath(), content(10));
+
+            try (FileChannel in = new RandomAccessFile(source, "r").getChannel();
+                    FileOutputStream fout = new FileOutputStream(dest)) {
+                new BinsonOutput(fout).writeBytes(in, 11);
+            }
+        } finally {
+            source.delete();
+            dest.delete();
+        }
+    }
+
+    @Test
+    public void testContentStream() throws IOException {
+        byte[] content = content(70000);
+        testContentStream(new BinsonInput(expected(content)), content);
+        testContentStream(new BinsonInput(new ByteArrayInputStream(expected(content))), content);
+    }
+
+    private void testContentStream(BinsonInput input, byte[] content) throws IOException {
+        Assert.assertEquals(BEGIN, input.next());
+        Assert.assertEquals(INTEGER, input.next());
+        Assert.assertEquals(BYTES, input.next());
+
+        InputStream in = input.getContentStream();
+        Assert.assertSame(in, input.getContentStream());
+
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bout.write(buffer, 0, n);
+        }
+        Assert.assertArrayEquals(content, bout.toByteArray());
+        Assert.assertEquals(-1, in.read());
+
+        Assert.assertEquals(STRING, input.next());
+        Assert.assertEquals("c", input.getName());
+        Assert.assertEquals("end", input.getString());
+        Assert.assertEquals(END, input.next());
+    }
+
+    @Test
+    public void testContentStreamPartlyRead() throws IOException {
+        byte[] content = content(1000);
+        BinsonInput input = new BinsonInput(new ByteArrayInputStream(expected(content)));
+        input.next();
+        input.next();
+        input.next();
+
+        InputStream in = input.getContentStream();
+        Assert.assertEquals(content[0] & 0xff, in.read());
+        Assert.assertEquals(100, in.skip(100));
+        Assert.assertEquals(content[101] & 0xff, in.read());
+
+        Assert.assertEquals(STRING, input.next());
+        Assert.assertEquals("end", input.getString());
+
+        try {
+            in.read();
+            Assert.fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testContentStreamOfString() throws IOException {
+        BinsonInput input = new BinsonInput(new Binson().put("s", "héllo").toBytes());
+        input.next();
+        Assert.assertEquals(STRING, input.next());
+
+        InputStream in = input.getContentStream();
+        byte[] bytes = new byte[20];
+        int n = in.read(bytes);
+        Assert.assertEquals("héllo", Utf8.decode(bytes, 0, n));
+        Assert.assertEquals(END, input.next());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetBytesAfterStream() throws IOException {
+        BinsonInput input = new BinsonInput(expected(content(10)));
+        input.next();
+        input.next();
+        input.next();
+        input.getContentStream();
+        input.getBytes();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStreamAfterGetBytes() throws IOException {
+        BinsonInput input = new BinsonInput(expected(content(10)));
+        input.next();
+        input.next();
+        input.next();
+        input.getBytes();
+        input.getContentStream();
+    }
+
+    @Test(expected = BinsonFormatException.class)
+    public void testStreamOfInteger() throws IOException {
+        BinsonInput input = new BinsonInput(expected(content(10)));
+        input.next();
+        input.next();
+        input.getContentStream();
+    }
+
+    @Test
+    public void testChannelOutputIsBuffered() throws IOException {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final int[] writeCount = new int[1];
+        WritableByteChannel channel = new WritableByteChannel() {
+            public int write(ByteBuffer src) {
+                writeCount[0]++;
+                int n = src.remaining();
+                while (src.hasRemaining()) {
+                    written.write(src.get());
+                }
+                return n;
+            }
+
+            public boolean isOpen() {
+                return true;
+            }
+
+            public void close() {}
+        };
+
+        Binson obj = new Binson();
+        for (int i = 0; i < 100; i++) {
+            obj.put("f" + i, new Binson().put("x", i).put("y", "s"));
+        }
+
+        OutputWriter.writeToOutput(obj, new BinsonOutput(channel));
+        Assert.assertArrayEquals(obj.toBytes(), written.toByteArray());
+        Assert.assertEquals(1, writeCount[0]);
+    }
+}
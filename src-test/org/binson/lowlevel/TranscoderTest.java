@@ -0,0 +1,83 @@
+package org.binson.lowlevel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TranscoderTest {
+    private final Binson obj = new Binson()
+            .put("z", 1234)
+            .put("b", new BinsonArray().add(true).add(2.5).add(new Binson().put("y", 1).put("x", "x")))
+            .put("ccc", "hello")
+            .put("d", new byte[]{1, 2, 3})
+            .put("a", new Binson().put("f", false).put("e", new BinsonArray()));
+
+    @Test
+    public void testJsonToBinson() throws IOException {
+        String json = "{\"z\": 1234, \"b\": [true, 2.5, {\"y\": 1, \"x\": \"x\"}], \"ccc\": \"hello\", "
+                + "\"d\": \"0x010203\", \"a\": {\"f\": false, \"e\": []}}";
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonInput input = new JsonInput(new StringReader(json));
+        input.setEnableHex(true);
+        Transcoder.transcodeToBinson(input, out);
+
+        Assert.assertArrayEquals(obj.toBytes(), out.toByteArray());
+    }
+
+    @Test
+    public void testBinsonToJson() throws IOException {
+        StringWriter writer = new StringWriter();
+        Transcoder.binsonToJson(new ByteArrayInputStream(obj.toBytes()), writer);
+        Assert.assertEquals(obj.toJson(), writer.toString());
+    }
+
+    @Test
+    public void testBinsonToPrettyJson() throws IOException {
+        StringWriter writer = new StringWriter();
+        Transcoder.transcode(new BinsonInput(obj.toBytes()),
+                JsonOutput.createForPrettyOutput(writer, 2, 0));
+        Assert.assertEquals(obj.toPrettyJson(), writer.toString());
+    }
+
+    @Test
+    public void testBinsonToBinson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transcoder.transcodeToBinson(new BinsonInput(obj.toBytes()), out);
+        Assert.assertArrayEquals(obj.toBytes(), out.toByteArray());
+    }
+
+    @Test
+    public void testJsonToBinsonRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transcoder.jsonToBinson(new StringReader(obj.toJson()), out);
+        Assert.assertEquals(obj.toJson(), Binson.fromBytes(out.toByteArray()).toJson());
+    }
+
+    @Test
+    public void testJsonToBinsonNestedUnsorted() throws IOException {
+        String json = "{\"z\": {\"y\": [1, {\"d\": {\"b\": 2, \"a\": [{\"q\": 1, \"p\": 2}, 3]}, \"c\": 4}, 5], "
+                + "\"x\": {}}, \"a\": [[{\"b\": \"s\", \"a\": 1.5}]]}";
+        Binson expected = new Binson()
+                .put("a", new BinsonArray().add(new BinsonArray()
+                        .add(new Binson().put("a", 1.5).put("b", "s"))))
+                .put("z", new Binson()
+                        .put("x", new Binson())
+                        .put("y", new BinsonArray().add(1)
+                                .add(new Binson().put("c", 4).put("d", new Binson()
+                                        .put("a", new BinsonArray().add(new Binson().put("p", 2).put("q", 1)).add(3))
+                                        .put("b", 2)))
+                                .add(5)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transcoder.jsonToBinson(new StringReader(json), out);
+        Assert.assertArrayEquals(expected.toBytes(), out.toByteArray());
+    }
+}
@@ -0,0 +1,136 @@
+package org.binson.lowlevel;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.binson.BinsonFormatException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Utf8Test {
+
+    private static boolean valid(int... bytes) {
+        byte[] b = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            b[i] = (byte) bytes[i];
+        }
+        return Utf8.isValid(b);
+    }
+
+    @Test
+    public void testValid() {
+        String s = "ascii, åäö, €, 😀, ￿, \u0000";
+        Assert.assertTrue(Utf8.isValid(s.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertTrue(valid());
+        Assert.assertTrue(valid(0xf4, 0x8f, 0xbf, 0xbf));    // U+10FFFF
+    }
+
+    @Test
+    public void testInvalid() {
+        Assert.assertFalse(valid(0x80));                      // lone continuation byte
+        Assert.assertFalse(valid(0xc3));                      // truncated
+        Assert.assertFalse(valid(0xc0, 0x80));                // overlong
+        Assert.assertFalse(valid(0xe0, 0x80, 0x80));          // overlong
+        Assert.assertFalse(valid(0xf0, 0x80, 0x80, 0x80));    // overlong
+        Assert.assertFalse(valid(0xed, 0xa0, 0x80));          // surrogate
+        Assert.assertFalse(valid(0xf4, 0x90, 0x80, 0x80));    // > U+10FFFF
+        Assert.assertFalse(valid(0xff));
+        Assert.assertFalse(valid('a', 0xe2, 0x82, 'b'));
+    }
+
+    @Test
+    public void testChunks() {
+        byte[] bytes = "€😀".getBytes(StandardCharsets.UTF_8);
+        for (int split = 0; split <= bytes.length; split++) {
+            int state = Utf8.validate(Utf8.ACCEPT, bytes, 0, split);
+            Assert.assertNotEquals(Utf8.REJECT, state);
+            state = Utf8.validate(state, bytes, split, bytes.length - split);
+            Assert.assertEquals(Utf8.ACCEPT, state);
+        }
+    }
+
+    @Test
+    public void testDirectBuffer() {
+        byte[] bytes = "xå".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        Assert.assertEquals(Utf8.ACCEPT, Utf8.validate(Utf8.ACCEPT, buffer, 0, 3));
+        Assert.assertNotEquals(Utf8.ACCEPT, Utf8.validate(Utf8.ACCEPT, buffer, 0, 2));
+    }
+
+    private static final String[] STRINGS = {
+        "", "ascii", "åäö", "€", "😀", "a😀b€c", "\u0000\u007f\u0080\u07ff\u0800\uffff",
+        "\ud800", "x\udc00y", "\ud83d", "\ude00\ud83d"   // unpaired surrogates
+    };
+
+    @Test
+    public void testEncodeSameAsGetBytes() {
+        for (String s : STRINGS) {
+            byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(s, expected.length, Utf8.encodedLength(s));
+            Assert.assertArrayEquals(s, expected, Utf8.encode(s));
+
+            byte[] dest = new byte[expected.length + 2];
+            Assert.assertEquals(expected.length, Utf8.encode(s, dest, 1));
+            Assert.assertEquals(0, dest[0]);
+            Assert.assertEquals(0, dest[dest.length - 1]);
+        }
+    }
+
+    @Test
+    public void testDecode() {
+        for (String s : STRINGS) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8), Utf8.decode(bytes, 0, bytes.length));
+        }
+
+        byte[] bytes = "--a😀b€c--".getBytes(StandardCharsets.UTF_8);
+        Assert.assertEquals("a😀b€c", Utf8.decode(bytes, 2, bytes.length - 4));
+    }
+
+    @Test
+    public void testDecodeAllCodePoints() {
+        StringBuilder b = new StringBuilder();
+        for (int cp = 0; cp <= 0x10ffff; cp++) {
+            if (cp < 0xd800 || cp > 0xdfff) {
+                b.appendCodePoint(cp);
+            }
+        }
+        String s = b.toString();
+        byte[] bytes = Utf8.encode(s);
+        Assert.assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), bytes);
+        Assert.assertEquals(s, Utf8.decode(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void testDecodeDirectBuffer() {
+        byte[] bytes = "xå😀".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        Assert.assertEquals("å😀", Utf8.decode(buffer, 1, bytes.length - 1));
+        Assert.assertEquals(bytes.length, buffer.position());
+    }
+
+    @Test
+    public void testDecodeRejectsInvalid() {
+        int[][] invalid = {
+            {0x80}, {0xc3}, {0xc0, 0x80}, {0xe0, 0x80, 0x80}, {0xf0, 0x80, 0x80, 0x80},
+            {0xed, 0xa0, 0x80}, {0xf4, 0x90, 0x80, 0x80}, {0xff}, {'a', 0xe2, 0x82, 'b'},
+            {0xe2, 0x82}
+        };
+
+        for (int[] ints : invalid) {
+            byte[] bytes = new byte[ints.length];
+            for (int i = 0; i < ints.length; i++) {
+                bytes[i] = (byte) ints[i];
+            }
+
+            try {
+                Utf8.decode(bytes, 0, bytes.length);
+                Assert.fail("no exception for " + Hex.create(bytes));
+            } catch (BinsonFormatException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -1,8 +1,5 @@
 package org.binson;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -10,15 +7,20 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import org.binson.lowlevel.BinsonBufferOutput;
 import org.binson.lowlevel.BinsonFieldNameComparator;
 import org.binson.lowlevel.BinsonOutput;
+import org.binson.lowlevel.DigestOutput;
 import org.binson.lowlevel.JsonOutput;
 import org.binson.lowlevel.JsonParser;
 import org.binson.lowlevel.OutputWriter;
@@ -61,7 +63,7 @@ import org.binson.lowlevel.BinsonParser;
  * integer          Integer
  * double           Double
  * string           String
- * bytes            byte[]
+ * bytes            byte[] (or a read-only ByteBuffer, see BinsonParser.setSliceBytes())
  * array            BinsonArray
  * object           Binson
  * </pre>
@@ -71,12 +73,41 @@ import org.binson.lowlevel.BinsonParser;
 public class Binson {
 	private static final String[] EMPTY_STRING_ARRAY = new String[0];
     private final Map<String, Object> map;
+    private final boolean sortedFields;
+    
+    /** Cached tree digest and the objects and arrays it was computed for, see TreeDigest. */
+    TreeDigest treeDigest;
+    Object digestParents;
 
     /**
      * Creates an empty Binson object backed by a newly created HashMap.
      */
     public Binson() {
-        map = new HashMap<String, Object>();
+        this(false);
+    }
+    
+    /**
+     * Creates an empty Binson object. If 'sortedFields' is true, the fields 
+     * are kept in Binson field order (the object is backed by a TreeMap). 
+     * Serializing such an object does not require the field names to be sorted; 
+     * this is useful for objects that are serialized many times. 
+     * Field lookups are O(log n) instead of O(1).
+     */
+    public Binson(boolean sortedFields) {
+        this.sortedFields = sortedFields;
+        if (sortedFields) {
+            map = new TreeMap<String, Object>(BinsonFieldNameComparator.INSTANCE);
+        } else {
+            map = new HashMap<String, Object>();
+        }
+    }
+    
+    /**
+     * Returns true if the fields of this object are kept in Binson field order.
+     * If so, keySet() iterates the field names in that order.
+     */
+    public boolean hasSortedFields() {
+        return sortedFields;
     }
     
     /**
@@ -97,6 +128,7 @@ public class Binson {
             throw new IllegalArgumentException("name == null not allowed");
         }
         
+        TreeDigest.invalidate(this);
         map.put(name, value);
         return this;
     }
@@ -112,7 +144,8 @@ public class Binson {
     /**
      * Validates this object against the provided Binson schema.
      * The schema is a Binson object that follows the specification
-     * BINSON-SCHEMA (see binson.org).
+     * BINSON-SCHEMA (see binson.org). To validate many objects against
+     * the same schema, compile it with BinsonSchema.compile().
      * hce
      * @param schema  Binson schema.
      * @throws BinsonFormatException  If the validation is not successful.
@@ -156,10 +189,10 @@ public class Binson {
             throw new BinsonFormatException("missing mandatory field '" + fieldName + "'");
         }
         
-        if (!schemaValue.getClass().equals(thisValue.getClass())) {
+        if (!valueClass(schemaValue).equals(valueClass(thisValue))) {
             throw new BinsonFormatException("bad field type of field '" 
-                    + fieldName + "' expected " + schemaValue.getClass().getSimpleName()
-                    + ", got " + thisValue.getClass().getSimpleName());
+                    + fieldName + "' expected " + valueClass(schemaValue).getSimpleName()
+                    + ", got " + valueClass(thisValue).getSimpleName());
         }
         
         if (schemaValue instanceof BinsonArray) {
@@ -186,6 +219,13 @@ public class Binson {
         }
     }
     
+    /**
+     * Returns the class of a value; byte[] for bytes stored as a ByteBuffer slice.
+     */
+    private static Class<?> valueClass(Object value) {
+        return value instanceof ByteBuffer ? byte[].class : value.getClass();
+    }
+    
     public String toString() {
         return toJson();
     }
@@ -194,7 +234,11 @@ public class Binson {
      * Returns a copy of this object that shares no data with the original object.
      */
     public Binson copy() {
-        return Binson.fromBytes(this.toBytes());
+        Binson copy = new Binson(sortedFields);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            copy.map.put(entry.getKey(), Values.copy(entry.getValue()));
+        }
+        return copy;
     }
     
     /**
@@ -210,6 +254,10 @@ public class Binson {
      * Can be used to iterate all fields of this Binson object.
      */
     public List<String> fieldNames() {
+        if (sortedFields) {
+            return new ArrayList<String>(map.keySet());
+        }
+        
     	String[] keys = keySet().toArray(EMPTY_STRING_ARRAY);
         Arrays.sort(keys, BinsonFieldNameComparator.INSTANCE);
         ArrayList<String> list = new ArrayList<String>(keys.length);
@@ -231,6 +279,7 @@ public class Binson {
      * Removes a given field if it exists.
      */
     public void remove(String name) {
+        TreeDigest.invalidate(this);
         map.remove(name);
     }
     
@@ -240,6 +289,7 @@ public class Binson {
     // boolean
     
     public Binson put(String name, boolean value) {
+        TreeDigest.invalidate(this);
         map.put(name, (Boolean) value);
         return this;
     }
@@ -263,6 +313,7 @@ public class Binson {
     // long
     
     public Binson put(String name, long value) {
+        TreeDigest.invalidate(this);
         map.put(name, (Long) value);
         return this;
     }
@@ -286,6 +337,7 @@ public class Binson {
     // double
     
     public Binson put(String name, double value) {
+        TreeDigest.invalidate(this);
         map.put(name, (Double) value);
         return this;
     }
@@ -311,6 +363,7 @@ public class Binson {
         if (value == null) {
             throw new IllegalArgumentException("value == null");
         }
+        TreeDigest.invalidate(this);
         map.put(name, value);
         return this;
     }
@@ -336,31 +389,67 @@ public class Binson {
         if (value == null) {
             throw new IllegalArgumentException("value == null");
         }
+        TreeDigest.invalidate(this);
         map.put(name, value);
         return this;
     }
     
+    /**
+     * Puts a bytes field without copying the bytes; the remaining bytes of 'value'
+     * are stored as a read-only slice. Later changes to the content of 'value' are 
+     * visible in this object.
+     */
+    public Binson put(String name, ByteBuffer value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value == null");
+        }
+        TreeDigest.invalidate(this);
+        map.put(name, value.slice().asReadOnlyBuffer());
+        return this;
+    }
+    
     public boolean hasBytes(String name) {
         checkName(name);
-        Object object = map.get(name);
-        return object != null && object instanceof byte[];
+        return Values.isBytes(map.get(name));
     }
     
+    /**
+     * Returns a bytes field. If the field is stored as a ByteBuffer slice 
+     * (see BinsonParser.setSliceBytes()), the bytes are copied to a new array.
+     */
     public byte[] getBytes(String name) {
         checkName(name);
         Object object = map.get(name);
+        if (object instanceof ByteBuffer) {
+            return Values.toArray((ByteBuffer) object);
+        }
         if (object == null || !(object instanceof byte[])) {
             throw new BinsonFormatException("No bytes field named '" + name + "'.");
         }
         return (byte[]) object;
     }
     
+    /**
+     * Returns a bytes field as a read-only ByteBuffer. No bytes are copied: if the
+     * object was parsed with BinsonParser.setSliceBytes(true), the result is a slice 
+     * of the parsed input, otherwise it wraps the stored byte array.
+     */
+    public ByteBuffer getByteBuffer(String name) {
+        checkName(name);
+        Object object = map.get(name);
+        if (!Values.isBytes(object)) {
+            throw new BinsonFormatException("No bytes field named '" + name + "'.");
+        }
+        return Values.toBuffer(object);
+    }
+    
     // array
     
     public Binson put(String name, BinsonArray value) {
         if (value == null) {
             throw new IllegalArgumentException("value == null");
         }
+        TreeDigest.invalidate(this);
         map.put(name, value);
         return this;
     }
@@ -386,6 +475,7 @@ public class Binson {
         if (value == null) {
             throw new IllegalArgumentException("value == null");
         }
+        TreeDigest.invalidate(this);
         map.put(name, value);
         return this;
     }
@@ -419,15 +509,52 @@ public class Binson {
     }
     
     public byte[] toBytes() {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        BinsonBufferOutput out = new BinsonBufferOutput();
+        
+        try {
+            OutputWriter.writeToOutput(this, out);
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+        
+        return out.toByteArray();
+    }
+    
+    /**
+     * Returns the digest of the bytes of this object, for example with
+     * algorithm "SHA-256". The bytes are fed to the MessageDigest as they are
+     * produced (see DigestOutput); they are never held in memory. The result 
+     * equals the digest of toBytes().
+     * 
+     * @throws IllegalArgumentException If the algorithm is not available.
+     */
+    public byte[] digest(String algorithm) {
+        MessageDigest md = TreeDigest.newDigest(algorithm);
         
         try {
-            toBytes(bout);
+            OutputWriter.writeToOutput(this, new DigestOutput(md));
         } catch (IOException e) {
             throw new Error("never happens", e);
         }
         
-        return bout.toByteArray();
+        return md.digest();
+    }
+    
+    /**
+     * Returns a Merkle-style digest of this object: the digest of its bytes with 
+     * each nested object and array replaced by its type byte followed by its own
+     * tree digest. The tree digest of each object and array is cached, 
+     * and the cache is invalidated when the object is modified. Hence, after a change
+     * only the objects and arrays on the path from the change to this object are hashed
+     * again. The result differs from digest(). 
+     * 
+     * <p>Modifications are only detected through the methods of Binson and BinsonArray;
+     * byte arrays must not be modified after they have been added.</p>
+     * 
+     * @throws IllegalArgumentException If the algorithm is not available.
+     */
+    public byte[] treeDigest(String algorithm) {
+        return TreeDigest.of(this, algorithm).clone();
     }
     
     /**
@@ -461,20 +588,28 @@ public class Binson {
         return fromBytes(bytes, 0);
     }
     
+    /**
+     * Parses Binson bytes starting at 'offset' of the given array.
+     * The bytes are parsed directly from the array, no copy is made.
+     * 
+     * @throws BinsonFormatException If the bytes are not valid Binson bytes.
+     */
     public static Binson fromBytes(byte[] bytes, int offset) {
-        ByteArrayInputStream bin = new ByteArrayInputStream(bytes, offset, bytes.length - offset);
-        Binson result;
-        
-        try {
-            result = fromBytes(bin);
-            bin.close();
-        } catch (EOFException e1) {
-            throw new BinsonFormatException("end-of-file reached before end of object.");
-        } catch (IOException e2) {
-            throw new Error("never happens", e2);
+        return BinsonParser.parse(bytes, offset, bytes.length - offset);
+    }
+    
+    /**
+     * Parses Binson bytes from the remaining bytes of a ByteBuffer (heap or direct).
+     * The position of the buffer is not changed.
+     * 
+     * @throws BinsonFormatException If the bytes are not valid Binson bytes.
+     */
+    public static Binson fromBytes(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("buffer == null not allowed");
         }
         
-        return result;
+        return BinsonParser.parse(buffer);
     }
     
     
@@ -552,6 +687,7 @@ public class Binson {
      */
     public void putElement(String key, Object value) {
         ValueType.fromObject(value);
+        TreeDigest.invalidate(this);
         map.put(key, value);
     }
     
@@ -566,12 +702,31 @@ public class Binson {
         }
         
         Binson that = (Binson) thatObject;
-        return Arrays.equals(this.toBytes(), that.toBytes());
+        if (this.map.size() != that.map.size()) {
+            return false;
+        }
+        
+        for (Map.Entry<String, Object> entry : this.map.entrySet()) {
+            Object thatValue = that.map.get(entry.getKey());
+            if (thatValue == null || !Values.equal(entry.getValue(), thatValue)) {
+                return false;
+            }
+        }
+        
+        return true;
     }
     
+    /**
+     * Returns a hash code computed from the fields; consistent with equals().
+     * Not cached, since nested objects and arrays may be modified.
+     */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(this.toBytes());
+        int hash = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            hash += entry.getKey().hashCode() ^ Values.hashCode(entry.getValue());
+        }
+        return hash;
     }
     
     private void checkName(String name) {
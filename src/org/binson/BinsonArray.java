@@ -1,6 +1,6 @@
 package org.binson;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.binson.lowlevel.ValueType;
@@ -12,21 +12,67 @@ import org.binson.lowlevel.ValueType;
  * a FormatException is thrown. To check whether a field of a particular type exists, 
  * use the hasX() methods.</p>
  * 
+ * <p>An array whose elements are all booleans, all integers or all doubles is 
+ * stored in a primitive array (boolean[], long[] or double[]) instead of 
+ * as boxed objects. This is chosen automatically: the first element decides, and the array
+ * changes to the general representation when an element of another type is added. 
+ * Use getPrimitiveType() to find out, and the bulk methods addAll() and 
+ * getIntegers(), getDoubles(), getBooleans() to copy many elements at once.</p>
+ * 
+ * <p>In the general representation, the type of each element is stored with it 
+ * when it is added (see getType()), so the element type never has to be found 
+ * from the Java class of the element.</p>
+ * 
  * @author Frans Lundberg
  */
 public class BinsonArray {
-    private final ArrayList<Object> list;
+    private static final int INITIAL_CAPACITY = 10;
+    
+    /** 
+     * The elements and their types (the general representation), 
+     * null if the array is empty or stored in a primitive array. 
+     */
+    private Object[] values;
+    private ValueType[] types;
+    
+    /** BOOLEAN, INTEGER or DOUBLE if stored in a primitive array, otherwise null. */
+    private ValueType primitiveType;
+    private boolean[] booleans;
+    private long[] longs;
+    private double[] doubles;
+    
+    private int size;
+    
+    /** Cached tree digest and the objects and arrays it was computed for, see TreeDigest. */
+    TreeDigest treeDigest;
+    Object digestParents;
 
     /**
      * Creates an empty Binson array.
      */
     public BinsonArray() {
         super();
-        list = new ArrayList<Object>();
     }
     
     public int size() {
-        return list.size();
+        return size;
+    }
+    
+    /**
+     * Returns the type of an element.
+     */
+    public ValueType getType(int index) {
+        checkIndex(index);
+        return primitiveType != null ? primitiveType : types[index];
+    }
+    
+    /**
+     * Returns BOOLEAN, INTEGER or DOUBLE if the elements are stored in a 
+     * primitive array; all elements are then of that type. Otherwise, null is returned;
+     * this is always the case for an empty array.
+     */
+    public ValueType getPrimitiveType() {
+        return primitiveType;
     }
     
     public String toString() {
@@ -38,16 +84,48 @@ public class BinsonArray {
      * original object.
      */
     public BinsonArray copy() {
-        Binson b1 = new Binson().put("a", this);
-        Binson b2 = b1.copy();
-        return b2.getArray("a");
+        BinsonArray copy = new BinsonArray();
+        copy.size = size;
+        
+        if (values != null) {
+            copy.values = new Object[Math.max(size, 1)];
+            copy.types = new ValueType[copy.values.length];
+            for (int i = 0; i < size; i++) {
+                copy.values[i] = Values.copy(values[i]);
+            }
+            System.arraycopy(types, 0, copy.types, 0, size);
+        } else if (primitiveType != null) {
+            copy.primitiveType = primitiveType;
+            switch (primitiveType) {
+            case BOOLEAN:
+                copy.booleans = Arrays.copyOf(booleans, size);
+                break;
+            case INTEGER:
+                copy.longs = Arrays.copyOf(longs, size);
+                break;
+            default:
+                copy.doubles = Arrays.copyOf(doubles, size);
+                break;
+            }
+        }
+        
+        return copy;
     }
     
     /**
      * Returns a Java Object representing the element.
      */
     public Object getElement(int index) {
-        return list.get(index);
+        checkIndex(index);
+        if (values != null) {
+            return values[index];
+        } else if (primitiveType == ValueType.INTEGER) {
+            return (Long) longs[index];
+        } else if (primitiveType == ValueType.DOUBLE) {
+            return (Double) doubles[index];
+        } else {
+            return (Boolean) booleans[index];
+        }
     }
     
     /**
@@ -57,17 +135,171 @@ public class BinsonArray {
      *          If the element is not of a supported type.
      */
     public BinsonArray addElement(Object element) {
-        ValueType.fromObject(element);
-        list.add(element);
+        addElementNoChecks(element);
         return this;
     }
     
     /**
-     * Adds an element to the array. Any Object may be accepted (incorrectly).
-     * This method is intended for internal use.
+     * Adds an element to the array. The type of the element is found once, here.
+     * This method is intended for internal use; prefer the typed add() methods.
+     * 
+     * @throws IllegalArgumentException
+     *          If the element is not of a supported type.
      */
     public void addElementNoChecks(Object element) {
-        list.add(element);
+        ValueType type = ValueType.fromObject(element);
+        switch (type) {
+        case BOOLEAN:
+            add(((Boolean) element).booleanValue());
+            break;
+        case INTEGER:
+            add(((Long) element).longValue());
+            break;
+        case DOUBLE:
+            add(((Double) element).doubleValue());
+            break;
+        default:
+            addValue(element, type);
+            break;
+        }
+    }
+    
+    /**
+     * Adds all elements. For an empty array or an array of booleans, 
+     * the elements are copied to the primitive array at once.
+     */
+    public BinsonArray addAll(boolean[] elements) {
+        if (elements == null) {
+            throw new IllegalArgumentException("elements == null not allowed");
+        }
+        TreeDigest.invalidate(this);
+        
+        if (isPrimitive(ValueType.BOOLEAN)) {
+            ensureCapacity(size + elements.length);
+            System.arraycopy(elements, 0, booleans, size, elements.length);
+            size += elements.length;
+        } else {
+            for (int i = 0; i < elements.length; i++) {
+                addValue((Boolean) elements[i], ValueType.BOOLEAN);
+            }
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Adds all elements. For an empty array or an array of integers, 
+     * the elements are copied to the primitive array at once.
+     */
+    public BinsonArray addAll(long[] elements) {
+        if (elements == null) {
+            throw new IllegalArgumentException("elements == null not allowed");
+        }
+        TreeDigest.invalidate(this);
+        
+        if (isPrimitive(ValueType.INTEGER)) {
+            ensureCapacity(size + elements.length);
+            System.arraycopy(elements, 0, longs, size, elements.length);
+            size += elements.length;
+        } else {
+            for (int i = 0; i < elements.length; i++) {
+                addValue((Long) elements[i], ValueType.INTEGER);
+            }
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Adds all elements. For an empty array or an array of doubles, 
+     * the elements are copied to the primitive array at once.
+     */
+    public BinsonArray addAll(double[] elements) {
+        if (elements == null) {
+            throw new IllegalArgumentException("elements == null not allowed");
+        }
+        TreeDigest.invalidate(this);
+        
+        if (isPrimitive(ValueType.DOUBLE)) {
+            ensureCapacity(size + elements.length);
+            System.arraycopy(elements, 0, doubles, size, elements.length);
+            size += elements.length;
+        } else {
+            for (int i = 0; i < elements.length; i++) {
+                addValue((Double) elements[i], ValueType.DOUBLE);
+            }
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Copies boolean elements, starting at index 'from', to 'dest'. 
+     * As many elements as fit in 'dest' are copied, or the rest of the array if it is shorter.
+     * Returns the number of elements copied.
+     * 
+     * @throws BinsonFormatException If one of the elements is not a boolean.
+     * @throws IndexOutOfBoundsException If 'from' is negative or larger than size().
+     */
+    public int getBooleans(boolean[] dest, int from) {
+        int count = copyCount(dest.length, from);
+        if (primitiveType == ValueType.BOOLEAN) {
+            System.arraycopy(booleans, from, dest, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                dest[i] = getBoolean(from + i);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Copies integer elements, starting at index 'from', to 'dest'. 
+     * As many elements as fit in 'dest' are copied, or the rest of the array if it is shorter.
+     * Returns the number of elements copied.
+     * 
+     * @throws BinsonFormatException If one of the elements is not an integer.
+     * @throws IndexOutOfBoundsException If 'from' is negative or larger than size().
+     */
+    public int getIntegers(long[] dest, int from) {
+        int count = copyCount(dest.length, from);
+        if (primitiveType == ValueType.INTEGER) {
+            System.arraycopy(longs, from, dest, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                dest[i] = getInteger(from + i);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Copies double elements, starting at index 'from', to 'dest'. 
+     * As many elements as fit in 'dest' are copied, or the rest of the array if it is shorter.
+     * Returns the number of elements copied.
+     * 
+     * @throws BinsonFormatException If one of the elements is not a double.
+     * @throws IndexOutOfBoundsException If 'from' is negative or larger than size().
+     */
+    public int getDoubles(double[] dest, int from) {
+        int count = copyCount(dest.length, from);
+        if (primitiveType == ValueType.DOUBLE) {
+            System.arraycopy(doubles, from, dest, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                dest[i] = getDouble(from + i);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Returns a Merkle-style digest of this array, see Binson.treeDigest().
+     * 
+     * @throws IllegalArgumentException If the algorithm is not available.
+     */
+    public byte[] treeDigest(String algorithm) {
+        return TreeDigest.of(this, algorithm).clone();
     }
     
     public boolean equals(Object obj) {
@@ -80,75 +312,260 @@ public class BinsonArray {
         }
         
         BinsonArray array = (BinsonArray) obj;
-        return Arrays.equals(this.toBytes(), array.toBytes());
+        int size = size();
+        if (size != array.size()) {
+            return false;
+        }
+        
+        if (primitiveType != null && primitiveType == array.primitiveType) {
+            for (int i = 0; i < size; i++) {
+                switch (primitiveType) {
+                case BOOLEAN:
+                    if (booleans[i] != array.booleans[i]) {
+                        return false;
+                    }
+                    break;
+                case INTEGER:
+                    if (longs[i] != array.longs[i]) {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (Double.doubleToRawLongBits(doubles[i]) 
+                            != Double.doubleToRawLongBits(array.doubles[i])) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+            return true;
+        }
+        
+        for (int i = 0; i < size; i++) {
+            if (getType(i) != array.getType(i) || !Values.equal(getElement(i), array.getElement(i))) {
+                return false;
+            }
+        }
+        
+        return true;
     }
     
     public int hashCode() {
-        return Arrays.hashCode(this.toBytes());
+        int hash = 1;
+        
+        if (values != null) {
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + Values.hashCode(values[i]);
+            }
+        } else if (primitiveType == ValueType.BOOLEAN) {
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + (booleans[i] ? 1231 : 1237);
+            }
+        } else if (primitiveType == ValueType.INTEGER) {
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + (int) (longs[i] ^ (longs[i] >>> 32));
+            }
+        } else if (primitiveType == ValueType.DOUBLE) {
+            for (int i = 0; i < size; i++) {
+                long bits = Double.doubleToRawLongBits(doubles[i]);
+                hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+            }
+        }
+        
+        return hash;
+    }
+    
+    /**
+     * Prepares for adding elements of a primitive type. Returns true if they
+     * are to be added to the primitive array, false if to 'values'.
+     */
+    private boolean isPrimitive(ValueType type) {
+        if (values != null) {
+            return false;
+        }
+        
+        if (primitiveType == null) {
+            primitiveType = type;
+            switch (type) {
+            case BOOLEAN:
+                booleans = new boolean[INITIAL_CAPACITY];
+                break;
+            case INTEGER:
+                longs = new long[INITIAL_CAPACITY];
+                break;
+            default:
+                doubles = new double[INITIAL_CAPACITY];
+                break;
+            }
+            return true;
+        }
+        
+        if (primitiveType == type) {
+            return true;
+        }
+        
+        toGeneral();
+        return false;
+    }
+    
+    /**
+     * Changes to the general representation; the primitive elements, if any, are
+     * moved to 'values'.
+     */
+    private void toGeneral() {
+        if (values != null) {
+            return;
+        }
+        
+        Object[] newValues = new Object[Math.max(INITIAL_CAPACITY, 2 * size)];
+        ValueType[] newTypes = new ValueType[newValues.length];
+        for (int i = 0; i < size; i++) {
+            newValues[i] = getElement(i);
+            newTypes[i] = primitiveType;
+        }
+        
+        values = newValues;
+        types = newTypes;
+        primitiveType = null;
+        booleans = null;
+        longs = null;
+        doubles = null;
     }
     
-    private byte[] toBytes() {
-        return new Binson().put("a", this).toBytes();
+    /**
+     * Adds an element in the general representation.
+     */
+    private void addValue(Object value, ValueType type) {
+        TreeDigest.invalidate(this);
+        toGeneral();
+        if (size == values.length) {
+            values = Arrays.copyOf(values, 2 * size);
+            types = Arrays.copyOf(types, 2 * size);
+        }
+        values[size] = value;
+        types[size] = type;
+        size++;
+    }
+    
+    private void ensureCapacity(int minCapacity) {
+        int capacity = primitiveType == ValueType.BOOLEAN ? booleans.length
+                : primitiveType == ValueType.INTEGER ? longs.length : doubles.length;
+        if (minCapacity <= capacity) {
+            return;
+        }
+        
+        int newCapacity = Math.max(minCapacity, 2 * capacity);
+        switch (primitiveType) {
+        case BOOLEAN:
+            booleans = Arrays.copyOf(booleans, newCapacity);
+            break;
+        case INTEGER:
+            longs = Arrays.copyOf(longs, newCapacity);
+            break;
+        default:
+            doubles = Arrays.copyOf(doubles, newCapacity);
+            break;
+        }
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+    
+    private int copyCount(int destLength, int from) {
+        if (from < 0 || from > size) {
+            throw new IndexOutOfBoundsException("From: " + from + ", Size: " + size);
+        }
+        return Math.min(destLength, size - from);
     }
     
     // boolean
     
     public BinsonArray add(boolean value) {
-        list.add((Boolean) value);
+        if (isPrimitive(ValueType.BOOLEAN)) {
+            TreeDigest.invalidate(this);
+            ensureCapacity(size + 1);
+            booleans[size++] = value;
+        } else {
+            addValue((Boolean) value, ValueType.BOOLEAN);
+        }
         return this;
     }
     
     public boolean isBoolean(int index) {
-        Object obj = list.get(index);
-        return obj instanceof Boolean;
+        return getType(index) == ValueType.BOOLEAN;
     }
     
     public boolean getBoolean(int index) {
-        Object obj = list.get(index);
-        if (!(obj instanceof Boolean)) {
+        if (primitiveType == ValueType.BOOLEAN) {
+            checkIndex(index);
+            return booleans[index];
+        }
+        
+        if (getType(index) != ValueType.BOOLEAN) {
             throw new BinsonFormatException("No boolean in Binson array at index " + index + ".");
         }
-        return ((Boolean) obj).booleanValue();
+        return ((Boolean) values[index]).booleanValue();
     }
     
     // long
     
     public BinsonArray add(long value) {
-        list.add((Long) value);
+        if (isPrimitive(ValueType.INTEGER)) {
+            TreeDigest.invalidate(this);
+            ensureCapacity(size + 1);
+            longs[size++] = value;
+        } else {
+            addValue((Long) value, ValueType.INTEGER);
+        }
         return this;
     }
 
     public boolean isInteger(int index) {
-        Object obj = list.get(index);
-        return obj instanceof Long;
+        return getType(index) == ValueType.INTEGER;
     }
     
-    public long getInteger(int index) {   
-        Object obj = list.get(index);
-        if (!(obj instanceof Long)) {
+    public long getInteger(int index) {
+        if (primitiveType == ValueType.INTEGER) {
+            checkIndex(index);
+            return longs[index];
+        }
+        
+        if (getType(index) != ValueType.INTEGER) {
             throw new BinsonFormatException("No integer in Binson array at index " + index + ".");
         }
-        return ((Long) obj).longValue();
+        return ((Long) values[index]).longValue();
     }
     
     // double
     
     public BinsonArray add(double value) {
-        list.add((Double) value);
+        if (isPrimitive(ValueType.DOUBLE)) {
+            TreeDigest.invalidate(this);
+            ensureCapacity(size + 1);
+            doubles[size++] = value;
+        } else {
+            addValue((Double) value, ValueType.DOUBLE);
+        }
         return this;
     }
     
     public boolean isDouble(int index) {
-        Object obj = list.get(index);
-        return obj instanceof Double;
+        return getType(index) == ValueType.DOUBLE;
     }
     
     public double getDouble(int index) {
-        Object obj = list.get(index);
-        if (!(obj instanceof Double)) {
+        if (primitiveType == ValueType.DOUBLE) {
+            checkIndex(index);
+            return doubles[index];
+        }
+        
+        if (getType(index) != ValueType.DOUBLE) {
             throw new BinsonFormatException("No Double in Binson array at index " + index + ".");
         }
-        return ((Double) obj).doubleValue();
+        return ((Double) values[index]).doubleValue();
     }
     
     // string
@@ -157,21 +574,19 @@ public class BinsonArray {
         if (value == null) {
             throw new IllegalArgumentException("value == null not allowed");
         }
-        list.add(value);
+        addValue(value, ValueType.STRING);
         return this;
     }
     
     public boolean isString(int index) {
-        Object obj = list.get(index);
-        return obj instanceof String;
+        return getType(index) == ValueType.STRING;
     }
     
     public String getString(int index) {
-        Object obj = list.get(index);
-        if (!(obj instanceof String)) {
+        if (getType(index) != ValueType.STRING) {
             throw new BinsonFormatException("No String in Binson array at index " + index + ".");
         }
-        return (String) obj;
+        return (String) values[index];
     }
         
     // bytes
@@ -180,21 +595,45 @@ public class BinsonArray {
         if (value == null) {
             throw new IllegalArgumentException("value == null not allowed");
         }
-        list.add(value);
+        addValue(value, ValueType.BYTES);
+        return this;
+    }
+    
+    /**
+     * Adds a bytes element without copying the bytes, see Binson.put(String, ByteBuffer).
+     */
+    public BinsonArray add(ByteBuffer value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value == null not allowed");
+        }
+        addValue(value.slice().asReadOnlyBuffer(), ValueType.BYTES);
         return this;
     }
     
     public boolean isBytes(int index) {
-        Object obj = list.get(index);
-        return obj instanceof byte[];
+        return getType(index) == ValueType.BYTES;
     }
     
+    /**
+     * Returns a bytes element. If the element is stored as a ByteBuffer slice, 
+     * the bytes are copied to a new array.
+     */
     public byte[] getBytes(int index) {
-        Object obj = list.get(index);
-        if (!(obj instanceof byte[])) {
+        if (getType(index) != ValueType.BYTES) {
+            throw new BinsonFormatException("No bytes element in Binson array at index " + index + ".");
+        }
+        Object value = values[index];
+        return value instanceof byte[] ? (byte[]) value : Values.toArray((ByteBuffer) value);
+    }
+    
+    /**
+     * Returns a bytes element as a read-only ByteBuffer, see Binson.getByteBuffer().
+     */
+    public ByteBuffer getByteBuffer(int index) {
+        if (getType(index) != ValueType.BYTES) {
             throw new BinsonFormatException("No bytes element in Binson array at index " + index + ".");
         }
-        return (byte[]) obj;
+        return Values.toBuffer(values[index]);
     }
     
     // array
@@ -203,21 +642,19 @@ public class BinsonArray {
         if (value == null) {
             throw new IllegalArgumentException("value == null not allowed");
         }
-        list.add(value);
+        addValue(value, ValueType.ARRAY);
         return this;
     }
     
     public boolean isArray(int index) {
-        Object obj = list.get(index);
-        return obj instanceof BinsonArray;
+        return getType(index) == ValueType.ARRAY;
     }
     
     public BinsonArray getArray(int index) {
-        Object obj = list.get(index);
-        if (!(obj instanceof BinsonArray)) {
+        if (getType(index) != ValueType.ARRAY) {
             throw new BinsonFormatException("No BinsonArray in Binson array at index " + index + ".");
         }
-        return (BinsonArray) obj;
+        return (BinsonArray) values[index];
     }
         
     // object
@@ -226,20 +663,18 @@ public class BinsonArray {
         if (value == null) {
             throw new IllegalArgumentException("value == null not allowed");
         }
-        list.add(value);
+        addValue(value, ValueType.OBJECT);
         return this;
     }
 
     public boolean isObject(int index) {
-        Object obj = list.get(index);
-        return obj instanceof Binson;
+        return getType(index) == ValueType.OBJECT;
     }
     
     public Binson getObject(int index) {
-        Object obj = list.get(index);
-        if (!(obj instanceof Binson)) {
+        if (getType(index) != ValueType.OBJECT) {
             throw new BinsonFormatException("No Binson object in Binson array at index " + index + ".");
         }
-        return (Binson) obj;
+        return (Binson) values[index];
     }
 }
@@ -0,0 +1,441 @@
+package org.binson;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.binson.lowlevel.ByteArrayComparator;
+import org.binson.lowlevel.ByteReader;
+import org.binson.lowlevel.BinsonParser;
+import org.binson.lowlevel.Bytes;
+import org.binson.lowlevel.MaxSizeException;
+import org.binson.lowlevel.Skimmer;
+import org.binson.lowlevel.Utf8;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * <p>A compiled path to values in serialized Binson objects. The path is evaluated
+ * directly on the bytes; no Binson objects are created.</p>
+ *
+ * <p>A path consists of field names separated by '.'. A field name can be
+ * followed by array indexes; [n] selects element n and [*] selects all elements.
+ * Examples: "header.route", "items[3].price", "items[*].sku", "matrix[1][2]".
+ * Field names that contain '.' or '[' cannot be used in a path.</p>
+ *
+ * <pre> BinsonPath route = BinsonPath.compile(&quot;header.route&quot;);
+ * String s = route.getString(ByteBuffer.wrap(bytes));
+ * </pre>
+ *
+ * <p>Since fields are stored in Binson field order, the search in an object
+ * stops when it has passed the name it looks for, and the values of
+ * other fields are skipped using their lengths. Only the bytes
+ * that are read are checked; they are checked like BinsonParser checks them,
+ * including the UTF-8 of strings and field names.
+ * A BinsonFormatException is thrown if they are not valid Binson.</p>
+ *
+ * <p>An instance is immutable and can be shared between threads.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonPath {
+    private static final int ALL = -1;
+
+    private final String path;
+
+    /** UTF-8 names of the steps; null for an array index step. */
+    private final byte[][] names;
+
+    /** Element index of the steps, or ALL. Not used for field name steps. */
+    private final int[] indexes;
+
+    /** True for step i if a step before it is [*]. */
+    private final boolean[] afterAll;
+
+    /**
+     * Receives the values that match a path; see findAll().
+     */
+    public interface Handler {
+        /**
+         * Called once for each match. The buffer contains exactly the bytes
+         * of the value (from its type byte to its last byte).
+         */
+        void handle(ByteBuffer value);
+    }
+
+    private BinsonPath(String path, List<byte[]> names, List<Integer> indexes) {
+        int count = names.size();
+        this.path = path;
+        this.names = names.toArray(new byte[count][]);
+        this.indexes = new int[count];
+        this.afterAll = new boolean[count + 1];
+
+        for (int i = 0; i < count; i++) {
+            this.indexes[i] = indexes.get(i);
+            this.afterAll[i + 1] = afterAll[i] || (this.names[i] == null && this.indexes[i] == ALL);
+        }
+    }
+
+    /**
+     * Compiles a path.
+     *
+     * @throws IllegalArgumentException If the path is not valid.
+     */
+    public static BinsonPath compile(String path) {
+        if (path == null) throw new IllegalArgumentException("path == null not allowed");
+
+        List<byte[]> names = new ArrayList<byte[]>();
+        List<Integer> indexes = new ArrayList<Integer>();
+
+        for (String segment : path.split("\\.", -1)) {
+            int bracket = segment.indexOf('[');
+            String name = bracket < 0 ? segment : segment.substring(0, bracket);
+            if (name.length() == 0) {
+                throw new IllegalArgumentException("empty field name in path, " + path);
+            }
+
+            names.add(Bytes.stringToUtf8(name));
+            indexes.add(0);
+
+            while (bracket >= 0) {
+                int close = segment.indexOf(']', bracket);
+                if (close < 0) {
+                    throw new IllegalArgumentException("missing ']' in path, " + path);
+                }
+
+                names.add(null);
+                indexes.add(parseIndex(segment.substring(bracket + 1, close), path));
+
+                bracket = close + 1 == segment.length() ? -1 : close + 1;
+                if (bracket >= 0 && segment.charAt(bracket) != '[') {
+                    throw new IllegalArgumentException("expected '[' or '.' after ']' in path, "
+                            + path);
+                }
+            }
+        }
+
+        return new BinsonPath(path, names, indexes);
+    }
+
+    private static int parseIndex(String s, String path) {
+        if (s.equals("*")) {
+            return ALL;
+        }
+
+        try {
+            int index = Integer.parseInt(s);
+            if (index >= 0) {
+                return index;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+
+        throw new IllegalArgumentException("bad array index '" + s + "' in path, " + path);
+    }
+
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * Returns the first value that matches the path as a buffer containing
+     * exactly the bytes of the value, or null if there is no match.
+     * The returned buffer shares content with the provided one. The object is
+     * read from the remaining bytes of the provided buffer, its position is not changed.
+     */
+    public ByteBuffer find(ByteBuffer buffer) {
+        final ByteBuffer[] result = new ByteBuffer[1];
+        evaluate(buffer, true, new Handler() {
+            public void handle(ByteBuffer value) {
+                result[0] = value;
+            }
+        });
+        return result[0];
+    }
+
+    /**
+     * Finds all values that match the path, in the order they are stored,
+     * and returns the number of matches.
+     */
+    public int findAll(ByteBuffer buffer, Handler handler) {
+        if (handler == null) throw new IllegalArgumentException("handler == null not allowed");
+        return evaluate(buffer, false, handler);
+    }
+
+    /**
+     * Returns true if a value matches the path.
+     */
+    public boolean exists(ByteBuffer buffer) {
+        return find(buffer) != null;
+    }
+
+    public boolean getBoolean(ByteBuffer buffer) {
+        int type = typeOf(find(buffer));
+        if (type != TRUE && type != FALSE) {
+            throw new BinsonFormatException("No boolean at '" + path + "'.");
+        }
+        return type == TRUE;
+    }
+
+    public long getInteger(ByteBuffer buffer) {
+        ByteBuffer value = find(buffer);
+        int type = typeOf(value);
+        if (type < INTEGER1 || type > INTEGER8) {
+            throw new BinsonFormatException("No integer at '" + path + "'.");
+        }
+
+        try {
+            ByteReader reader = new ByteReader(value);
+            return reader.readInteger(reader.readOne());
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+
+    public double getDouble(ByteBuffer buffer) {
+        ByteBuffer value = find(buffer);
+        if (typeOf(value) != DOUBLE) {
+            throw new BinsonFormatException("No double at '" + path + "'.");
+        }
+
+        try {
+            ByteReader reader = new ByteReader(value);
+            reader.readOne();
+            return reader.readDouble();
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+
+    public String getString(ByteBuffer buffer) {
+        ByteBuffer value = find(buffer);
+        int type = typeOf(value);
+        if (type < STRING1 || type > STRING4) {
+            throw new BinsonFormatException("No string at '" + path + "'.");
+        }
+
+        try {
+            ByteReader reader = new ByteReader(value);
+            return reader.readString(reader.readLength(reader.readOne()));
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+
+    public byte[] getBytes(ByteBuffer buffer) {
+        ByteBuffer value = find(buffer);
+        int type = typeOf(value);
+        if (type < BYTES1 || type > BYTES4) {
+            throw new BinsonFormatException("No bytes value at '" + path + "'.");
+        }
+
+        try {
+            ByteReader reader = new ByteReader(value);
+            return reader.readBytes(reader.readLength(reader.readOne()));
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+
+    /**
+     * Returns the array at the path, parsed.
+     */
+    public BinsonArray getArray(ByteBuffer buffer) {
+        ByteBuffer value = find(buffer);
+        if (typeOf(value) != BEGIN_ARRAY) {
+            throw new BinsonFormatException("No array at '" + path + "'.");
+        }
+
+        try {
+            return new BinsonParser(value).parseArray();
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+
+    /**
+     * Returns a view of the object at the path.
+     */
+    public BinsonView getObject(ByteBuffer buffer) {
+        ByteBuffer value = find(buffer);
+        if (typeOf(value) != BEGIN) {
+            throw new BinsonFormatException("No object at '" + path + "'.");
+        }
+        return new BinsonView(value);
+    }
+
+    private static int typeOf(ByteBuffer value) {
+        return value == null ? -1 : value.get(0) & 0xff;
+    }
+
+    private int evaluate(ByteBuffer buffer, boolean firstOnly, Handler handler) {
+        if (buffer == null) throw new IllegalArgumentException("buffer == null not allowed");
+
+        Evaluation evaluation = new Evaluation(buffer.slice(), firstOnly, handler);
+        try {
+            int type = evaluation.reader.readOne();
+            if (type != BEGIN) {
+                throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
+            }
+            evaluation.match(0, type);
+        } catch (EOFException e) {
+            throw new BinsonFormatException("end-of-file reached before end of object.");
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+
+        return evaluation.count;
+    }
+
+    /**
+     * The state of one evaluation of the path. The value that the reader
+     * is positioned at is matched against the steps recursively.
+     */
+    private final class Evaluation {
+        private static final boolean DONE = true;
+        private static final boolean CONTINUE = false;
+
+        final ByteBuffer buffer;
+        final ByteReader reader;
+        final Skimmer skimmer;
+        final boolean firstOnly;
+        final Handler handler;
+        final byte[][] previousNames = new byte[names.length][];
+        final byte[][] currentNames = new byte[names.length][];
+        int count = 0;
+
+        Evaluation(ByteBuffer buffer, boolean firstOnly, Handler handler) {
+            this.buffer = buffer;
+            this.reader = new ByteReader(buffer);
+            this.reader.setMaxSize(Integer.MAX_VALUE);
+            this.skimmer = new Skimmer(reader);
+            this.skimmer.setValidateUtf8(true);
+            this.firstOnly = firstOnly;
+            this.handler = handler;
+        }
+
+        /**
+         * Matches the value with the given type byte against the steps starting
+         * at 'step'. Returns DONE if the evaluation is finished; otherwise the
+         * whole value has been read and CONTINUE is returned.
+         */
+        boolean match(int step, int type) throws IOException {
+            if (step == names.length) {
+                int start = (int) reader.getOffset() - 1;
+                skimmer.skipValue(type);
+                ByteBuffer value = buffer.duplicate();
+                value.limit((int) reader.getOffset());
+                value.position(start);
+                count++;
+                handler.handle(value.slice());
+                return firstOnly ? DONE : CONTINUE;
+            }
+
+            if (names[step] != null ? type != BEGIN : type != BEGIN_ARRAY) {
+                if (canStop(step)) {
+                    return DONE;
+                }
+                skimmer.skipValue(type);
+                return CONTINUE;
+            }
+
+            return names[step] != null ? matchFields(step) : matchElements(step);
+        }
+
+        /**
+         * When true, a miss at 'step' means that there is no match at all.
+         */
+        private boolean canStop(int step) {
+            return firstOnly && !afterAll[step];
+        }
+
+        private boolean matchFields(int step) throws IOException {
+            byte[] target = names[step];
+            int previousLength = -1;
+            int fieldCount = 0;
+
+            while (true) {
+                int type = reader.readOne();
+                if (type == END) {
+                    return canStop(step) ? DONE : CONTINUE;
+                }
+
+                if (type < STRING1 || type > STRING4) {
+                    throw new BinsonFormatException("Expected string/end, got " + type + ".");
+                }
+
+                fieldCount++;
+                if (fieldCount > skimmer.getMaxFieldCount()) {
+                    throw new MaxSizeException("The Binson object being parsed has more fields " +
+                            "than the maxFieldCount setting of the parser (" +
+                            skimmer.getMaxFieldCount() + ").");
+                }
+
+                int length = reader.readLength(type);
+                byte[] name = readName(step, length);
+                if (previousLength >= 0 && ByteArrayComparator.compareRanges(
+                        previousNames[step], 0, previousLength, name, 0, length) >= 0) {
+                    throw new BinsonFormatException("bad field order, "
+                            + new String(previousNames[step], 0, previousLength, StandardCharsets.UTF_8) + ", "
+                            + new String(name, 0, length, StandardCharsets.UTF_8));
+                }
+                currentNames[step] = previousNames[step];
+                previousNames[step] = name;
+                previousLength = length;
+
+                int valueType = reader.readOne();
+                int cmp = ByteArrayComparator.compareRanges(name, 0, length, target, 0, target.length);
+
+                if (cmp == 0) {
+                    if (match(step + 1, valueType) == DONE || canStop(step)) {
+                        return DONE;
+                    }
+                } else if (cmp > 0 && canStop(step)) {
+                    return DONE;
+                } else {
+                    skimmer.skipValue(valueType);
+                }
+            }
+        }
+
+        private boolean matchElements(int step) throws IOException {
+            int index = indexes[step];
+            int type;
+            int i = 0;
+
+            while ((type = reader.readOne()) != END_ARRAY) {
+                if (index == ALL || index == i) {
+                    if (match(step + 1, type) == DONE || (index != ALL && canStop(step))) {
+                        return DONE;
+                    }
+                } else {
+                    skimmer.skipValue(type);
+                }
+                i++;
+            }
+
+            return canStop(step) ? DONE : CONTINUE;
+        }
+
+        /**
+         * Reads a field name to the name array of the step that is not
+         * holding the previous name. The length has been checked against the
+         * remaining bytes by readLength().
+         */
+        private byte[] readName(int step, int length) throws IOException {
+            byte[] name = currentNames[step];
+            if (name == null || name.length < length) {
+                name = new byte[Math.max(32, length)];
+            }
+            reader.read(name, 0, length);
+            if (!Utf8.isValid(name, 0, length)) {
+                throw new BinsonFormatException("Invalid UTF-8 in field name.");
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package org.binson;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.binson.lowlevel.ByteArrayComparator;
+import org.binson.lowlevel.ByteReader;
+import org.binson.lowlevel.BinsonParser;
+import org.binson.lowlevel.FieldNamePool;
+import org.binson.lowlevel.MaxSizeException;
+import org.binson.lowlevel.Skimmer;
+import org.binson.lowlevel.Utf8;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * <p>A read-only view of a serialized Binson object. Field values are decoded
+ * from the bytes when they are accessed; nothing is decoded up front.
+ * Use a view when only a few fields of a large object are read.</p>
+ *
+ * <pre> BinsonView view = new BinsonView(bytes);
+ * long id = view.getInteger(&quot;id&quot;);
+ * String route = view.getObject(&quot;header&quot;).getString(&quot;route&quot;);
+ * </pre>
+ *
+ * <p>The first time a field of an object is accessed, the object's fields are
+ * scanned once and their positions are stored in a small index.
+ * The scan checks the object like BinsonParser does (field order, integer
+ * encodings, type bytes, at most 1000 fields per object)
+ * and throws a BinsonFormatException if the bytes are not valid.
+ * Strings and bytes values are not read during the scan.
+ * Fields are then found by binary search on their UTF-8 names.</p>
+ *
+ * <p>getObject() returns a view of the nested object. getArray() returns
+ * a parsed BinsonArray. The bytes are not copied; the view reads from
+ * the provided array or buffer (which may be memory-mapped), so they must not
+ * be modified while the view is used. An instance is not thread-safe.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonView {
+    private final ByteBuffer buffer;
+    private final int start;
+    private int end = -1;
+    private int fieldCount;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int[] valueOffsets;
+    private BinsonView[] views;
+    private byte[] nameBuffer;
+
+    /**
+     * Creates a view of the Binson object serialized in the given array.
+     * The array is not copied.
+     */
+    public BinsonView(byte[] bytes) {
+        this(ByteBuffer.wrap(checkBytes(bytes)));
+    }
+
+    /**
+     * Creates a view of the Binson object serialized in 'length' bytes of
+     * the given array starting at 'offset'. The array is not copied.
+     */
+    public BinsonView(byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(checkBytes(bytes), offset, length));
+    }
+
+    /**
+     * Creates a view of the Binson object in the remaining bytes of the
+     * given buffer (heap, direct or memory-mapped). The buffer data is not
+     * copied and the position of the buffer is not changed.
+     */
+    public BinsonView(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("buffer == null not allowed");
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.start = 0;
+    }
+
+    private BinsonView(ByteBuffer buffer, int start) {
+        this.buffer = buffer;
+        this.start = start;
+    }
+
+    /**
+     * Returns the number of fields.
+     */
+    public int size() {
+        index();
+        return fieldCount;
+    }
+
+    /**
+     * Returns the names of the fields in Binson field order.
+     */
+    public List<String> fieldNames() {
+        index();
+        List<String> list = new ArrayList<String>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            list.add(readUtf8(nameOffsets[i], nameLengths[i]));
+        }
+        return list;
+    }
+
+    /**
+     * Returns true if the object has a field with the given name.
+     */
+    public boolean containsKey(String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * Parses the whole object to a Binson object.
+     */
+    public Binson toBinson() {
+        index();
+        return BinsonParser.parse(slice(start, end));
+    }
+
+    /**
+     * Returns a copy of the serialized bytes of this object.
+     */
+    public byte[] toBytes() {
+        index();
+        byte[] result = new byte[end - start];
+        ByteBuffer b = buffer.duplicate();
+        b.position(start);
+        b.get(result);
+        return result;
+    }
+
+    public String toString() {
+        return toBinson().toString();
+    }
+
+    // boolean
+
+    public boolean hasBoolean(String name) {
+        int type = typeOf(name);
+        return type == TRUE || type == FALSE;
+    }
+
+    public boolean getBoolean(String name) {
+        int type = typeOf(name);
+        if (type != TRUE && type != FALSE) {
+            throw new BinsonFormatException("No boolean named '" + name + "'.");
+        }
+        return type == TRUE;
+    }
+
+    // integer
+
+    public boolean hasInteger(String name) {
+        return isInteger(typeOf(name));
+    }
+
+    public long getInteger(String name) {
+        int i = find(name);
+        if (i < 0 || !isInteger(typeAt(valueOffsets[i]))) {
+            throw new BinsonFormatException("No integer named '" + name + "'.");
+        }
+        return readInteger(valueOffsets[i]);
+    }
+
+    // double
+
+    public boolean hasDouble(String name) {
+        return typeOf(name) == DOUBLE;
+    }
+
+    public double getDouble(String name) {
+        int i = find(name);
+        if (i < 0 || typeAt(valueOffsets[i]) != DOUBLE) {
+            throw new BinsonFormatException("No double named '" + name + "'.");
+        }
+        return buffer.getDouble(valueOffsets[i] + 1);
+    }
+
+    // string
+
+    public boolean hasString(String name) {
+        return isString(typeOf(name));
+    }
+
+    public String getString(String name) {
+        int i = find(name);
+        if (i < 0 || !isString(typeAt(valueOffsets[i]))) {
+            throw new BinsonFormatException("No string named '" + name + "'.");
+        }
+        int offset = valueOffsets[i];
+        return readUtf8(contentOffset(offset), (int) readInteger(offset));
+    }
+
+    // bytes
+
+    public boolean hasBytes(String name) {
+        return isBytes(typeOf(name));
+    }
+
+    /**
+     * Returns a copy of the bytes value.
+     */
+    public byte[] getBytes(String name) {
+        int i = find(name);
+        if (i < 0 || !isBytes(typeAt(valueOffsets[i]))) {
+            throw new BinsonFormatException("No bytes field named '" + name + "'.");
+        }
+        int offset = valueOffsets[i];
+        byte[] result = new byte[(int) readInteger(offset)];
+        ByteBuffer b = buffer.duplicate();
+        b.position(contentOffset(offset));
+        b.get(result);
+        return result;
+    }
+
+    /**
+     * Returns the bytes value as a read-only slice of the buffer of this view.
+     * No bytes are copied.
+     */
+    public ByteBuffer getByteBuffer(String name) {
+        int i = find(name);
+        if (i < 0 || !isBytes(typeAt(valueOffsets[i]))) {
+            throw new BinsonFormatException("No bytes field named '" + name + "'.");
+        }
+        int offset = valueOffsets[i];
+        int from = contentOffset(offset);
+        return slice(from, from + (int) readInteger(offset)).asReadOnlyBuffer();
+    }
+
+    // array
+
+    public boolean hasArray(String name) {
+        return typeOf(name) == BEGIN_ARRAY;
+    }
+
+    /**
+     * Parses the array value and returns it.
+     */
+    public BinsonArray getArray(String name) {
+        int i = find(name);
+        if (i < 0 || typeAt(valueOffsets[i]) != BEGIN_ARRAY) {
+            throw new BinsonFormatException("No array named '" + name + "'.");
+        }
+
+        try {
+            return new BinsonParser(slice(valueOffsets[i], end)).parseArray();
+        } catch (IOException e) {
+            throw new Error("never happens, the array was checked by index()", e);
+        }
+    }
+
+    // object
+
+    public boolean hasObject(String name) {
+        return typeOf(name) == BEGIN;
+    }
+
+    /**
+     * Returns a view of the object value. The same view is returned
+     * each time.
+     */
+    public BinsonView getObject(String name) {
+        int i = find(name);
+        if (i < 0 || typeAt(valueOffsets[i]) != BEGIN) {
+            throw new BinsonFormatException("No object named '" + name + "'.");
+        }
+
+        if (views == null) {
+            views = new BinsonView[fieldCount];
+        }
+        if (views[i] == null) {
+            views[i] = new BinsonView(buffer, valueOffsets[i]);
+        }
+        return views[i];
+    }
+
+    // ======== private ========
+
+    private static byte[] checkBytes(byte[] bytes) {
+        if (bytes == null) throw new IllegalArgumentException("bytes == null not allowed");
+        return bytes;
+    }
+
+    /**
+     * Returns the type byte of the named field, or -1 if there is no such field.
+     */
+    private int typeOf(String name) {
+        int i = find(name);
+        return i < 0 ? -1 : typeAt(valueOffsets[i]);
+    }
+
+    /**
+     * Returns the index of the named field, or a negative number if there is no
+     * such field.
+     */
+    private int find(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("null is not allowed as a name");
+        }
+
+        index();
+        byte[] target = FieldNamePool.getDefault().lookupUtf8(name);
+        int targetLength;
+        if (target != null) {
+            targetLength = target.length;
+        } else {
+            targetLength = Utf8.encodedLength(name);
+            if (nameBuffer == null || nameBuffer.length < targetLength) {
+                nameBuffer = new byte[Math.max(targetLength, 64)];
+            }
+            Utf8.encode(name, nameBuffer, 0);
+            target = nameBuffer;
+        }
+
+        int low = 0;
+        int high = fieldCount - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareName(mid, target, targetLength);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Compares the name of field i with the first 'targetLength' bytes of 'target'.
+     */
+    private int compareName(int i, byte[] target, int targetLength) {
+        int offset = nameOffsets[i];
+        int length = nameLengths[i];
+
+        if (buffer.hasArray()) {
+            return ByteArrayComparator.compareRanges(buffer.array(), buffer.arrayOffset() + offset,
+                    length, target, 0, targetLength);
+        }
+
+        int minLength = Math.min(length, targetLength);
+        for (int j = 0; j < minLength; j++) {
+            int diff = (buffer.get(offset + j) & 0xff) - (target[j] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - targetLength;
+    }
+
+    /**
+     * Scans the fields of the object and stores their positions,
+     * unless already done.
+     */
+    private void index() {
+        if (end >= 0) {
+            return;
+        }
+
+        ByteReader reader = new ByteReader(slice(start, buffer.limit()));
+        reader.setMaxSize(Integer.MAX_VALUE);
+        Skimmer skimmer = new Skimmer(reader);
+        int[] names = new int[16];
+        int[] lengths = new int[16];
+        int[] values = new int[16];
+        int count = 0;
+
+        try {
+            int type = reader.readOne();
+            if (type != BEGIN) {
+                throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
+            }
+
+            while (true) {
+                type = reader.readOne();
+                if (type == END) {
+                    break;
+                }
+
+                if (!isString(type)) {
+                    throw new BinsonFormatException("Expected string/end, got " + type + ".");
+                }
+
+                if (count == skimmer.getMaxFieldCount()) {
+                    throw new MaxSizeException("The Binson object being parsed has more fields " +
+                            "than the maxFieldCount setting of the parser (" +
+                            skimmer.getMaxFieldCount() + ").");
+                }
+
+                if (count == names.length) {
+                    names = Arrays.copyOf(names, 2 * count);
+                    lengths = Arrays.copyOf(lengths, 2 * count);
+                    values = Arrays.copyOf(values, 2 * count);
+                }
+
+                int length = reader.readLength(type);
+                names[count] = start + (int) reader.getOffset();
+                lengths[count] = length;
+                reader.skip(length);
+
+                if (count > 0) {
+                    checkOrder(names[count - 1], lengths[count - 1], names[count], length);
+                }
+
+                values[count] = start + (int) reader.getOffset();
+                skimmer.skipValue(reader.readOne());
+                count++;
+            }
+        } catch (EOFException e) {
+            throw new BinsonFormatException("end-of-file reached before end of object.");
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+
+        this.nameOffsets = names;
+        this.nameLengths = lengths;
+        this.valueOffsets = values;
+        this.fieldCount = count;
+        this.end = start + (int) reader.getOffset();
+    }
+
+    private void checkOrder(int offset1, int length1, int offset2, int length2) {
+        if (compareRaw(offset1, length1, offset2, length2) >= 0) {
+            throw new BinsonFormatException("bad field order, " + readUtf8(offset1, length1) 
+                    + ", " + readUtf8(offset2, length2));
+        }
+    }
+
+    private int compareRaw(int offset1, int length1, int offset2, int length2) {
+        int minLength = Math.min(length1, length2);
+        for (int j = 0; j < minLength; j++) {
+            int diff = (buffer.get(offset1 + j) & 0xff) - (buffer.get(offset2 + j) & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length1 - length2;
+    }
+
+    private ByteBuffer slice(int from, int to) {
+        ByteBuffer b = buffer.duplicate();
+        b.limit(to);
+        b.position(from);
+        return b.slice();
+    }
+
+    private int typeAt(int offset) {
+        return buffer.get(offset) & 0xff;
+    }
+
+    /**
+     * Reads the integer (or length) stored after the type byte at 'offset'.
+     * The encoding was checked by index().
+     */
+    private long readInteger(int offset) {
+        switch (typeAt(offset) & INT_LENGTH_MASK) {
+        case ONE_BYTE:
+            return buffer.get(offset + 1);
+        case TWO_BYTES:
+            return buffer.getShort(offset + 1);
+        case FOUR_BYTES:
+            return buffer.getInt(offset + 1);
+        default:
+            return buffer.getLong(offset + 1);
+        }
+    }
+
+    /**
+     * Returns the position of the content of the string or bytes value
+     * at 'offset'.
+     */
+    private int contentOffset(int offset) {
+        return offset + 1 + (1 << (typeAt(offset) & INT_LENGTH_MASK));
+    }
+
+    private String readUtf8(int offset, int length) {
+        return Utf8.decode(buffer, offset, length);
+    }
+
+    private static boolean isInteger(int type) {
+        return type >= INTEGER1 && type <= INTEGER8;
+    }
+
+    private static boolean isString(int type) {
+        return type >= STRING1 && type <= STRING4;
+    }
+
+    private static boolean isBytes(int type) {
+        return type >= BYTES1 && type <= BYTES4;
+    }
+}
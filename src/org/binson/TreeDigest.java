@@ -0,0 +1,242 @@
+package org.binson;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.binson.lowlevel.Constants;
+import org.binson.lowlevel.DigestOutput;
+import org.binson.lowlevel.ValueType;
+
+/**
+ * Merkle-style digests of Binson objects and arrays, see Binson.treeDigest().
+ * An instance is the cached digest of one object or array.
+ *
+ * <p>The tree digest of an object or array is the digest of its Binson bytes,
+ * except that each nested object or array is replaced by its type byte
+ * (BEGIN or BEGIN_ARRAY) followed by its tree digest. The digest of a level only
+ * depends on its own values and the digests of the levels below it, so after a change
+ * only the levels from the change up to the root need to be hashed again.</p>
+ *
+ * <p>When a digest is computed, each nested object and array gets a weak link to
+ * the object or array it was digested in (digestParents). A modification calls 
+ * invalidate(), which drops the cached digest and follows the links upwards. 
+ * If an object or array has a cached digest, so have all levels below it; hence, 
+ * the walk stops at the first level without a cached digest, and a modification of
+ * an object that has not been digested costs a null check. A cached digest is
+ * returned without looking at the levels below it.</p>
+ *
+ * <p>Links are not removed when a value is removed or replaced; the stale link
+ * only causes an unneeded invalidation. The links are weak so that an object that
+ * is shared between many objects does not keep them alive.</p>
+ *
+ * @author Frans Lundberg
+ */
+final class TreeDigest {
+    private final String algorithm;
+    private final byte[] digest;
+
+    private TreeDigest(String algorithm, byte[] digest) {
+        this.algorithm = algorithm;
+        this.digest = digest;
+    }
+
+    /**
+     * Returns the tree digest of an object. The result must not be modified.
+     */
+    static byte[] of(Binson obj, String algorithm) {
+        TreeDigest cache = obj.treeDigest;
+        if (cache != null && cache.algorithm.equals(algorithm)) {
+            return cache.digest;
+        }
+
+        MessageDigest md = newDigest(algorithm);
+        DigestOutput out = new DigestOutput(md);
+        out.writeBegin();
+        for (String name : obj.fieldNames()) {
+            out.writeName(name);
+            Object value = obj.getValue(name);
+            writeValue(out, ValueType.fromObject(value), value, obj, algorithm);
+        }
+        out.writeEnd();
+
+        byte[] digest = md.digest();
+        obj.treeDigest = new TreeDigest(algorithm, digest);
+        return digest;
+    }
+
+    /**
+     * Returns the tree digest of an array. The result must not be modified.
+     */
+    static byte[] of(BinsonArray array, String algorithm) {
+        TreeDigest cache = array.treeDigest;
+        if (cache != null && cache.algorithm.equals(algorithm)) {
+            return cache.digest;
+        }
+
+        MessageDigest md = newDigest(algorithm);
+        DigestOutput out = new DigestOutput(md);
+        out.writeBeginArray();
+        if (array.getPrimitiveType() != null) {
+            writePrimitives(out, array);
+        } else {
+            for (int i = 0; i < array.size(); i++) {
+                writeValue(out, array.getType(i), array.getElement(i), array, algorithm);
+            }
+        }
+        out.writeEndArray();
+
+        byte[] digest = md.digest();
+        array.treeDigest = new TreeDigest(algorithm, digest);
+        return digest;
+    }
+
+    /**
+     * Drops the cached digest of an object and of the objects and arrays it has
+     * been digested in. Called when the object is modified.
+     */
+    static void invalidate(Binson obj) {
+        if (obj.treeDigest != null) {
+            obj.treeDigest = null;
+            invalidateParents(obj.digestParents);
+        }
+    }
+
+    static void invalidate(BinsonArray array) {
+        if (array.treeDigest != null) {
+            array.treeDigest = null;
+            invalidateParents(array.digestParents);
+        }
+    }
+
+    private static void invalidateParents(Object parents) {
+        if (parents instanceof WeakReference) {
+            invalidateParent(((WeakReference<?>) parents).get());
+        } else if (parents != null) {
+            for (WeakReference<?> ref : (WeakReference<?>[]) parents) {
+                if (ref != null) {
+                    invalidateParent(ref.get());
+                }
+            }
+        }
+    }
+
+    private static void invalidateParent(Object parent) {
+        if (parent instanceof Binson) {
+            invalidate((Binson) parent);
+        } else if (parent instanceof BinsonArray) {
+            invalidate((BinsonArray) parent);
+        }
+    }
+
+    /**
+     * Returns 'parents' with a link to 'parent' added, unless it is there already.
+     * 'parents' is null, one WeakReference or an array of them (null for free slots).
+     */
+    private static Object addParent(Object parents, Object parent) {
+        if (parents == null) {
+            return new WeakReference<Object>(parent);
+        }
+
+        if (parents instanceof WeakReference) {
+            Object p = ((WeakReference<?>) parents).get();
+            if (p == parent) {
+                return parents;
+            } else if (p == null) {
+                return new WeakReference<Object>(parent);
+            }
+            return new WeakReference<?>[] {(WeakReference<?>) parents, new WeakReference<Object>(parent)};
+        }
+
+        WeakReference<?>[] refs = (WeakReference<?>[]) parents;
+        int free = -1;
+        for (int i = 0; i < refs.length; i++) {
+            Object p = refs[i] == null ? null : refs[i].get();
+            if (p == parent) {
+                return refs;
+            } else if (p == null && free == -1) {
+                free = i;
+            }
+        }
+
+        if (free == -1) {
+            free = refs.length;
+            refs = Arrays.copyOf(refs, 2 * refs.length);
+        }
+        refs[free] = new WeakReference<Object>(parent);
+        return refs;
+    }
+
+    private static void writePrimitives(DigestOutput out, BinsonArray array) {
+        int size = array.size();
+        switch (array.getPrimitiveType()) {
+        case BOOLEAN:
+            for (int i = 0; i < size; i++) {
+                out.writeBoolean(array.getBoolean(i));
+            }
+            break;
+        case INTEGER:
+            for (int i = 0; i < size; i++) {
+                out.writeInteger(array.getInteger(i));
+            }
+            break;
+        default:
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(array.getDouble(i));
+            }
+            break;
+        }
+    }
+
+    /**
+     * Writes a value of 'parent'. The digests of nested objects and arrays are
+     * computed (or taken from their cache) once and linked to 'parent'.
+     */
+    private static void writeValue(DigestOutput out, ValueType type, Object value,
+            Object parent, String algorithm) {
+        switch (type) {
+        case BOOLEAN:
+            out.writeBoolean((Boolean) value);
+            break;
+        case INTEGER:
+            out.writeInteger((Long) value);
+            break;
+        case DOUBLE:
+            out.writeDouble((Double) value);
+            break;
+        case STRING:
+            out.writeString((String) value);
+            break;
+        case BYTES:
+            if (value instanceof byte[]) {
+                out.writeBytes((byte[]) value);
+            } else {
+                out.writeBytes((ByteBuffer) value);
+            }
+            break;
+        case ARRAY:
+            BinsonArray array = (BinsonArray) value;
+            out.getDigest().update((byte) Constants.BEGIN_ARRAY);
+            out.getDigest().update(of(array, algorithm));
+            array.digestParents = addParent(array.digestParents, parent);
+            break;
+        case OBJECT:
+            Binson obj = (Binson) value;
+            out.getDigest().update((byte) Constants.BEGIN);
+            out.getDigest().update(of(obj, algorithm));
+            obj.digestParents = addParent(obj.digestParents, parent);
+            break;
+        }
+    }
+
+    static MessageDigest newDigest(String algorithm) {
+        if (algorithm == null) throw new IllegalArgumentException("algorithm == null not allowed");
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("unknown digest algorithm, " + algorithm, e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.binson;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Equality, hash codes and copying of Binson values (the Java objects stored
+ * in Binson objects and arrays). Two values are equal if and only if they serialize to the same bytes:
+ * doubles are compared by their raw bits (so 0.0 and -0.0 differ) and
+ * bytes values by content, whether they are stored as byte[] or as a ByteBuffer slice.
+ *
+ * @author Frans Lundberg
+ */
+final class Values {
+
+    private Values() {}
+
+    static boolean equal(Object v1, Object v2) {
+        if (v1 == v2) {
+            return true;
+        }
+
+        if (v1 instanceof byte[] && v2 instanceof byte[]) {
+            return Arrays.equals((byte[]) v1, (byte[]) v2);
+        }
+
+        if (isBytes(v1) || isBytes(v2)) {
+            return isBytes(v1) && isBytes(v2) && toBuffer(v1).equals(toBuffer(v2));
+        }
+
+        if (v1 instanceof Double) {
+            return v2 instanceof Double
+                    && Double.doubleToRawLongBits((Double) v1) == Double.doubleToRawLongBits((Double) v2);
+        }
+
+        // Boolean, Long, String, Binson and BinsonArray
+        return v1.equals(v2);
+    }
+
+    static int hashCode(Object value) {
+        if (value instanceof byte[]) {
+            return Arrays.hashCode((byte[]) value);
+        }
+
+        if (value instanceof ByteBuffer) {
+            // same as Arrays.hashCode(byte[])
+            ByteBuffer buffer = (ByteBuffer) value;
+            int hash = 1;
+            for (int i = buffer.position(); i < buffer.limit(); i++) {
+                hash = 31 * hash + buffer.get(i);
+            }
+            return hash;
+        }
+
+        if (value instanceof Double) {
+            long bits = Double.doubleToRawLongBits((Double) value);
+            return (int) (bits ^ (bits >>> 32));
+        }
+
+        return value.hashCode();
+    }
+
+    /**
+     * Returns a deep copy of a value. Immutable values are returned as is.
+     */
+    static Object copy(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        } else if (value instanceof ByteBuffer) {
+            return toArray((ByteBuffer) value);
+        } else if (value instanceof Binson) {
+            return ((Binson) value).copy();
+        } else if (value instanceof BinsonArray) {
+            return ((BinsonArray) value).copy();
+        }
+
+        // Boolean, Long, Double and String
+        return value;
+    }
+
+    static boolean isBytes(Object value) {
+        return value instanceof byte[] || value instanceof ByteBuffer;
+    }
+
+    /**
+     * Returns the remaining bytes of a buffer in a new array.
+     */
+    static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns a read-only buffer of a bytes value (byte[] or ByteBuffer).
+     */
+    static ByteBuffer toBuffer(Object bytesValue) {
+        if (bytesValue instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) bytesValue).asReadOnlyBuffer();
+        }
+        return ((ByteBuffer) bytesValue).duplicate();
+    }
+}
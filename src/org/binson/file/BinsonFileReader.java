@@ -0,0 +1,248 @@
+package org.binson.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+import org.binson.BinsonView;
+import org.binson.lowlevel.BinsonParser;
+import org.binson.lowlevel.ByteReader;
+import org.binson.lowlevel.Constants;
+import org.binson.lowlevel.Skimmer;
+
+/**
+ * Random and parallel access to a file of Binson objects stored one after the
+ * other without any framing, for example a file written with repeated calls to
+ * Binson.toBytes(OutputStream). The file is memory-mapped.
+ *
+ * <p>The start of an object cannot be found from an arbitrary position in such
+ * a file. Therefore, the file is skimmed once when opened: each object is checked
+ * and stepped over without creating it (see Skimmer), and the end offset of each
+ * object is recorded (8 bytes per object). Skimming is much faster than parsing;
+ * the objects can then be parsed by many threads:</p>
+ *
+ * <pre> BinsonFileReader reader = new BinsonFileReader(file);
+ * long count = reader.stream().parallel()
+ *         .filter(obj -&gt; obj.getInteger("status") != 200)
+ *         .count();
+ * reader.close();
+ * </pre>
+ *
+ * <p>For files that are appended to continuously, or that need lookup by
+ * time, use RecordFileWriter and RecordFileReader instead; their index makes
+ * the initial skim unnecessary.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonFileReader implements Closeable {
+    private final File file;
+    private final RandomAccessFile raf;
+    private final MappedFile mapped;
+    /** The offset after each object. */
+    private long[] ends = new long[256];
+    private int count = 0;
+
+    /**
+     * Opens and skims a file with the default limits: the maximum size of
+     * an object is 40e6 bytes and the maximum number of fields of an object is 1000.
+     *
+     * @throws BinsonFormatException If the file does not contain valid Binson objects.
+     */
+    public BinsonFileReader(File file) throws IOException {
+        this(file, 40*1000000, 1000, MappedFile.DEFAULT_WINDOW_SIZE);
+    }
+
+    public BinsonFileReader(File file, int maxSize, int maxFieldCount) throws IOException {
+        this(file, maxSize, maxFieldCount, MappedFile.DEFAULT_WINDOW_SIZE);
+    }
+
+    BinsonFileReader(File file, int maxSize, int maxFieldCount, int windowSize) throws IOException {
+        if (file == null) throw new IllegalArgumentException("file == null not allowed");
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            this.mapped = new MappedFile(channel, channel.size(), windowSize);
+            skim(maxSize, maxFieldCount);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of objects in the file.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the offset of object n in the file.
+     */
+    public long getOffset(int n) {
+        checkIndex(n);
+        return start(n);
+    }
+
+    /**
+     * Returns the bytes of object n as a read-only buffer of the mapped file.
+     */
+    public ByteBuffer getBytes(int n) {
+        checkIndex(n);
+        return bytes(n);
+    }
+
+    /**
+     * Parses object n.
+     */
+    public Binson get(int n) {
+        return BinsonParser.parse(getBytes(n));
+    }
+
+    /**
+     * Returns a lazy view of object n, see BinsonView.
+     */
+    public BinsonView getView(int n) {
+        return new BinsonView(getBytes(n));
+    }
+
+    /**
+     * Returns a spliterator over the bytes of the objects, in order.
+     * It splits at object boundaries, so the objects can be processed by many threads.
+     * The spliterator remains usable after the reader is closed.
+     */
+    public Spliterator<ByteBuffer> spliterator() {
+        return new ObjectSpliterator(0, count);
+    }
+
+    /**
+     * Returns a stream of the parsed objects. Use stream().parallel() to parse
+     * and process the objects with all cores.
+     */
+    public Stream<Binson> stream() {
+        return StreamSupport.stream(spliterator(), false).map(BinsonParser::parse);
+    }
+
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    private void checkIndex(int n) {
+        if (n < 0 || n >= count) {
+            throw new IndexOutOfBoundsException("object " + n + ", size " + count);
+        }
+    }
+
+    private long start(int n) {
+        return n == 0 ? 0 : ends[n - 1];
+    }
+
+    private ByteBuffer bytes(int n) {
+        long start = start(n);
+        return mapped.slice(start, (int) (ends[n] - start));
+    }
+
+    /**
+     * Finds the offsets of the objects. The file is read one window at a time;
+     * when an object does not fit in the rest of a window, a new window is started
+     * at the object.
+     */
+    private void skim(int maxSize, int maxFieldCount) throws IOException {
+        long size = mapped.size();
+        long offset = 0;
+
+        while (offset < size) {
+            int windowLength = (int) Math.min(mapped.windowSize(), size - offset);
+            ByteReader reader = new ByteReader(mapped.slice(offset, windowLength));
+            reader.setMaxSize(maxSize);
+            Skimmer skimmer = new Skimmer(reader);
+            skimmer.setMaxFieldCount(maxFieldCount);
+            long windowStart = offset;
+
+            try {
+                while (offset < size) {
+                    reader.resetOffset();
+                    int type = reader.readOne();
+                    if (type != Constants.BEGIN) {
+                        throw new BinsonFormatException("Expected BEGIN, got " + type
+                                + ", at offset " + offset + ".");
+                    }
+                    skimmer.skipValue(type);
+                    offset += reader.getOffset();
+                    addEnd(offset);
+                }
+            } catch (EOFException e) {
+                if (offset == windowStart || windowStart + windowLength == size) {
+                    throw new BinsonFormatException("Incomplete object at offset " + offset + ".");
+                }
+            }
+        }
+    }
+
+    private void addEnd(long offset) {
+        if (count == ends.length) {
+            ends = Arrays.copyOf(ends, 2 * count);
+        }
+        ends[count++] = offset;
+    }
+
+    /**
+     * Spliterator over objects [index, end). The ends array is not changed
+     * after the file has been skimmed.
+     */
+    private final class ObjectSpliterator implements Spliterator<ByteBuffer> {
+        private int index;
+        private final int end;
+
+        ObjectSpliterator(int index, int end) {
+            this.index = index;
+            this.end = end;
+        }
+
+        public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(bytes(index++));
+            return true;
+        }
+
+        public Spliterator<ByteBuffer> trySplit() {
+            int mid = (index + end) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator<ByteBuffer> prefix = new ObjectSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return end - index;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
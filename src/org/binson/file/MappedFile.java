@@ -0,0 +1,89 @@
+package org.binson.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The first 'size' bytes of a file, memory-mapped read-only. A MappedByteBuffer
+ * holds at most 2 GB, so the file is mapped as overlapping segments: one
+ * starting every windowSize bytes, each 2*windowSize - 1 bytes long.
+ * Any range of up to windowSize bytes is then within one segment and is returned
+ * as a slice of it. Larger ranges are mapped separately.
+ *
+ * <p>All segments are mapped when the object is created and are never changed,
+ * so an instance can be used by many threads. A file that grows is handled
+ * by creating a new instance.</p>
+ *
+ * @author Frans Lundberg
+ */
+final class MappedFile {
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final MappedByteBuffer[] segments;
+
+    MappedFile(FileChannel channel, long size, int windowSize) throws IOException {
+        if (windowSize <= 0 || windowSize > DEFAULT_WINDOW_SIZE) {
+            throw new IllegalArgumentException("bad windowSize, " + windowSize);
+        }
+
+        this.channel = channel;
+        this.size = size;
+        this.windowSize = windowSize;
+
+        int count = size == 0 ? 0 : (int) ((size - 1) / windowSize + 1);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = (long) i * windowSize;
+            long length = Math.min(size - start, 2L * windowSize - 1);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the largest range that is always a slice of an existing mapping.
+     */
+    int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns 'length' bytes of the file starting at 'offset', as a read-only,
+     * little-endian buffer.
+     */
+    ByteBuffer slice(long offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > size) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", size " + size);
+        }
+
+        ByteBuffer result;
+        if (length == 0) {
+            result = ByteBuffer.allocate(0);
+        } else if (length <= windowSize) {
+            int index = (int) (offset / windowSize);
+            int position = (int) (offset - (long) index * windowSize);
+            ByteBuffer segment = segments[index].duplicate();
+            segment.position(position);
+            segment.limit(position + length);
+            result = segment.slice();
+        } else {
+            try {
+                result = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            } catch (IOException e) {
+                throw new IllegalStateException("could not map file at offset " + offset, e);
+            }
+        }
+
+        return result.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
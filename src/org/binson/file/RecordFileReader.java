@@ -0,0 +1,383 @@
+package org.binson.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+import org.binson.BinsonView;
+import org.binson.lowlevel.BinsonParser;
+
+import static org.binson.file.RecordFormat.*;
+
+/**
+ * Random access to the records of a file written by RecordFileWriter.
+ * The file is memory-mapped (FileChannel.map) in overlapping segments; the
+ * records are read directly from the mapped memory without copying.
+ * The records can also be processed in parallel with stream().
+ *
+ * <pre> RecordFileReader reader = new RecordFileReader(file);
+ * long first = reader.findByTimestamp(from);
+ * for (long i = first; i &lt; reader.size() &amp;&amp; reader.getTimestamp(i) &lt; to; i++) {
+ *     Binson record = reader.get(i);
+ *     ...
+ * }
+ * reader.close();
+ * </pre>
+ *
+ * <p>When opened, the reader loads the index file and then reads and verifies
+ * the records after the last indexed record. Record N is found by
+ * starting at the closest indexed record before it and stepping over at most
+ * N % indexInterval record headers. Call refresh() to see records appended
+ * after the reader was opened.</p>
+ *
+ * <p>By default, the checksum of a record is verified each time its
+ * payload is accessed. An instance is not thread-safe.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class RecordFileReader implements Closeable {
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final int windowSize;
+    private final byte[] scratch = new byte[8192];
+    private MappedFile mapped;
+    private int indexInterval = DEFAULT_INDEX_INTERVAL;
+    private boolean verifyChecksums = true;
+
+    private long recordCount = 0;
+    private long endOffset = FILE_HEADER_SIZE;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /** Offset and timestamp of records 0, indexInterval, 2*indexInterval, ... */
+    private long[] pointOffsets = new long[16];
+    private long[] pointTimestamps = new long[16];
+
+    /** Number of points loaded from the index file. */
+    private int indexedPointCount = 0;
+
+    /**
+     * Opens a record file for reading.
+     *
+     * @throws BinsonFormatException If the file is not a record file.
+     */
+    public RecordFileReader(File file) throws IOException {
+        this(file, MappedFile.DEFAULT_WINDOW_SIZE);
+    }
+
+    RecordFileReader(File file, int windowSize) throws IOException {
+        if (file == null) throw new IllegalArgumentException("file == null not allowed");
+        this.file = file;
+        this.windowSize = windowSize;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+
+        try {
+            this.mapped = new MappedFile(channel, channel.size(), windowSize);
+            checkFileHeader();
+            loadIndex();
+            scan();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * If set to true (the default), the checksum of a record is verified
+     * each time its payload is accessed.
+     */
+    public void setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of records.
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the offset in the file after the last complete record.
+     * Bytes after it, if any, belong to a record that is not completely written
+     * or is not valid.
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Returns the timestamp of the last record, or Long.MIN_VALUE if there are
+     * no records.
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Reads the records appended since the reader was opened or last refreshed.
+     */
+    public void refresh() throws IOException {
+        long newSize = channel.size();
+        if (newSize != mapped.size()) {
+            mapped = new MappedFile(channel, newSize, windowSize);
+            scan();
+        }
+    }
+
+    /**
+     * Returns the offset of record n in the file.
+     */
+    public long getOffset(long n) {
+        checkIndex(n);
+        return recordOffset(mapped, pointOffsets, indexInterval, n);
+    }
+
+    /**
+     * Returns the number of index entries that were loaded from the index file
+     * when the reader was opened. Used by RecordFileWriter to keep them.
+     */
+    int getIndexedPointCount() {
+        return indexedPointCount;
+    }
+
+    public long getTimestamp(long n) {
+        return header(getOffset(n)).getLong(8);
+    }
+
+    /**
+     * Returns the payload of record n, the bytes of a Binson object,
+     * as a read-only buffer of the mapped file.
+     *
+     * @throws BinsonFormatException If the checksum is wrong.
+     */
+    public ByteBuffer getBytes(long n) {
+        return payload(mapped, getOffset(n), verifyChecksums, scratch);
+    }
+
+    /**
+     * Parses record n.
+     */
+    public Binson get(long n) {
+        return BinsonParser.parse(getBytes(n));
+    }
+
+    /**
+     * Returns a lazy view of record n, see BinsonView.
+     */
+    public BinsonView getView(long n) {
+        return new BinsonView(getBytes(n));
+    }
+
+    /**
+     * Returns the number of the first record with a timestamp equal to or
+     * larger than 'timestamp', or size() if there is no such record.
+     */
+    public long findByTimestamp(long timestamp) {
+        int pointCount = (int) ((recordCount + indexInterval - 1) / indexInterval);
+
+        int low = 0;
+        int high = pointCount - 1;
+        int point = -1;    // last point with a timestamp < 'timestamp'
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (pointTimestamps[mid] < timestamp) {
+                point = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (point < 0) {
+            return 0;
+        }
+
+        long n = (long) point * indexInterval;
+        long offset = pointOffsets[point];
+        while (n < recordCount && header(offset).getLong(8) < timestamp) {
+            offset = nextRecord(mapped, offset);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns a spliterator over the payloads of the records, in order.
+     * The spliterator splits at index entries and record boundaries, so the
+     * records can be processed by many threads; it is late-binding: only the
+     * records present when this method is called are included.
+     * Checksums are verified if setVerifyChecksums(true) was set.
+     * The spliterator remains usable after the reader is closed.
+     */
+    public Spliterator<ByteBuffer> spliterator() {
+        return new RecordSpliterator(mapped, pointOffsets, indexInterval,
+                0, recordCount, FILE_HEADER_SIZE, verifyChecksums);
+    }
+
+    /**
+     * Returns a stream of the parsed records. Use stream().parallel() to parse
+     * and process the records with all cores, for example:
+     *
+     * <pre> long count = reader.stream().parallel()
+     *         .filter(record -&gt; record.getString("type").equals("error"))
+     *         .count();
+     * </pre>
+     */
+    public Stream<Binson> stream() {
+        return StreamSupport.stream(spliterator(), false).map(BinsonParser::parse);
+    }
+
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    private void checkIndex(long n) {
+        if (n < 0 || n >= recordCount) {
+            throw new IndexOutOfBoundsException("record " + n + ", size " + recordCount);
+        }
+    }
+
+    private void checkFileHeader() throws IOException {
+        if (mapped.size() < FILE_HEADER_SIZE) {
+            throw new BinsonFormatException("not a record file, too small: " + file);
+        }
+
+        ByteBuffer header = mapped.slice(0, FILE_HEADER_SIZE);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                throw new BinsonFormatException("not a record file, bad magic bytes: " + file);
+            }
+        }
+
+        int version = header.getInt(4);
+        if (version != VERSION) {
+            throw new BinsonFormatException("unsupported record file version " + version);
+        }
+    }
+
+    /**
+     * Loads the index file, if it exists. Entries that do not point into
+     * the data file are ignored.
+     */
+    private void loadIndex() throws IOException {
+        File indexFile = indexFile(file);
+        if (!indexFile.exists()) {
+            return;
+        }
+
+        RandomAccessFile indexRaf = new RandomAccessFile(indexFile, "r");
+        try {
+            FileChannel indexChannel = indexRaf.getChannel();
+            long size = indexChannel.size();
+            if (size < INDEX_HEADER_SIZE) {
+                return;
+            }
+
+            ByteBuffer bytes = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+            while (bytes.hasRemaining() && indexChannel.read(bytes) >= 0) {
+                // read all
+            }
+            bytes.flip();
+
+            for (int i = 0; i < INDEX_MAGIC.length; i++) {
+                if (bytes.get(i) != INDEX_MAGIC[i]) {
+                    return;
+                }
+            }
+
+            int interval = bytes.getInt(4);
+            if (interval <= 0) {
+                return;
+            }
+            indexInterval = interval;
+
+            int entryCount = (int) ((size - INDEX_HEADER_SIZE) / INDEX_ENTRY_SIZE);
+            for (int i = 0; i < entryCount; i++) {
+                int position = INDEX_HEADER_SIZE + i * INDEX_ENTRY_SIZE;
+                long offset = bytes.getLong(position);
+                if (offset < FILE_HEADER_SIZE || offset + RECORD_HEADER_SIZE > mapped.size()
+                        || (i > 0 && offset <= pointOffsets[i - 1])) {
+                    break;
+                }
+                addPoint(i, offset, bytes.getLong(position + 8));
+                indexedPointCount = i + 1;
+                recordCount = (long) i * indexInterval;
+                endOffset = offset;
+            }
+        } finally {
+            indexRaf.close();
+        }
+    }
+
+    /**
+     * Reads records from endOffset to the end of the file. These are the records
+     * after the last index point, so their checksums are verified. Scanning stops
+     * at the first record that is incomplete, has a length less than 2 (the
+     * smallest Binson object), a timestamp less than that of the previous record
+     * or a bad checksum. That record and the bytes after it are not counted.
+     */
+    private void scan() {
+        long offset = endOffset;
+        long fileSize = mapped.size();
+
+        while (offset + RECORD_HEADER_SIZE <= fileSize) {
+            ByteBuffer header = header(offset);
+            int length = header.getInt(0);
+            if (length < 2 || offset + RECORD_HEADER_SIZE + length > fileSize) {
+                break;
+            }
+
+            long timestamp = header.getLong(8);
+            if (timestamp < lastTimestamp) {
+                break;
+            }
+
+            ByteBuffer payload = mapped.slice(offset + RECORD_HEADER_SIZE, length);
+            if (checksum(timestamp, payload, scratch) != header.getInt(4)) {
+                break;
+            }
+
+            if (recordCount % indexInterval == 0) {
+                addPoint((int) (recordCount / indexInterval), offset, timestamp);
+            }
+
+            lastTimestamp = timestamp;
+            recordCount++;
+            offset += RECORD_HEADER_SIZE + length;
+        }
+
+        endOffset = offset;
+    }
+
+    private void addPoint(int point, long offset, long timestamp) {
+        if (point >= pointOffsets.length) {
+            pointOffsets = Arrays.copyOf(pointOffsets, 2 * point);
+            pointTimestamps = Arrays.copyOf(pointTimestamps, 2 * point);
+        }
+        pointOffsets[point] = offset;
+        pointTimestamps[point] = timestamp;
+    }
+
+    private ByteBuffer header(long offset) {
+        return mapped.slice(offset, RECORD_HEADER_SIZE);
+    }
+}
@@ -0,0 +1,279 @@
+package org.binson.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.binson.Binson;
+import org.binson.lowlevel.BinsonBufferOutput;
+import org.binson.lowlevel.OutputWriter;
+
+import static org.binson.file.RecordFormat.*;
+
+/**
+ * Appends Binson objects as records to a record file. See the package
+ * documentation for the file format.
+ *
+ * <pre> RecordFileWriter writer = new RecordFileWriter(file);
+ * writer.append(message);
+ * ...
+ * writer.close();
+ * </pre>
+ *
+ * <p>If the file exists, records are appended after the existing ones.
+ * A record that was not completely written (for example, because the
+ * process was killed) is removed from the end of the file, together with
+ * anything after it. The entries of the existing index file are kept; only the 
+ * records after the last indexed record are read, and their checksums verified,
+ * to bring the index up to date. If the index file is missing or invalid,
+ * it is rebuilt.</p>
+ *
+ * <p>Timestamps must not decrease; this is what makes a timestamp lookup
+ * in RecordFileReader possible. The records are written with FileChannel.write()
+ * and are visible to readers of the file at once, but are only guaranteed to be
+ * on disk after sync(). An instance is not thread-safe.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class RecordFileWriter implements Closeable {
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final RandomAccessFile indexRaf;
+    private final FileChannel indexChannel;
+    private final int indexInterval;
+    private final BinsonBufferOutput out = new BinsonBufferOutput();
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long recordCount;
+    private long offset;
+    private long lastTimestamp;
+
+    /**
+     * Opens a record file for appending; the file is created if it does not
+     * exist. An index entry is written for every 1024th record.
+     */
+    public RecordFileWriter(File file) throws IOException {
+        this(file, DEFAULT_INDEX_INTERVAL);
+    }
+
+    /**
+     * Opens a record file for appending with the given index interval.
+     * A smaller interval gives faster lookups and a larger index file.
+     * The interval of an existing file is kept.
+     */
+    public RecordFileWriter(File file, int indexInterval) throws IOException {
+        if (file == null) throw new IllegalArgumentException("file == null not allowed");
+        if (indexInterval <= 0) {
+            throw new IllegalArgumentException("bad indexInterval, " + indexInterval);
+        }
+
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        RandomAccessFile openedIndexRaf = null;
+
+        try {
+            RecordFileReader reader = null;
+            try {
+                if (channel.size() == 0) {
+                    writeFileHeader();
+                    this.recordCount = 0;
+                    this.offset = FILE_HEADER_SIZE;
+                    this.lastTimestamp = Long.MIN_VALUE;
+                } else {
+                    reader = new RecordFileReader(file);
+                    this.recordCount = reader.size();
+                    this.offset = reader.getEndOffset();
+                    this.lastTimestamp = reader.getLastTimestamp();
+                    channel.truncate(offset);
+                }
+
+                openedIndexRaf = new RandomAccessFile(indexFile(file), "rw");
+                this.indexRaf = openedIndexRaf;
+                this.indexChannel = openedIndexRaf.getChannel();
+                this.indexInterval = recordCount == 0 ? indexInterval : readIndexInterval(indexInterval);
+                updateIndex(reader);
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        } catch (IOException e) {
+            closeAfterFailure(raf, openedIndexRaf, e);
+            throw e;
+        } catch (RuntimeException e) {
+            closeAfterFailure(raf, openedIndexRaf, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the files opened by a constructor that fails; exceptions 
+     * are added to 'e' as suppressed exceptions.
+     */
+    private static void closeAfterFailure(RandomAccessFile raf, RandomAccessFile indexRaf,
+            Exception e) {
+        for (RandomAccessFile f : new RandomAccessFile[] {raf, indexRaf}) {
+            if (f != null) {
+                try {
+                    f.close();
+                } catch (IOException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the number of records in the file.
+     */
+    public long size() {
+        return recordCount;
+    }
+
+    /**
+     * Appends a record with the current time (System.currentTimeMillis())
+     * as timestamp. If the clock has gone backwards, the timestamp of the
+     * previous record is used.
+     */
+    public void append(Binson obj) throws IOException {
+        append(obj, Math.max(System.currentTimeMillis(), lastTimestamp));
+    }
+
+    /**
+     * Appends a record with the given timestamp.
+     *
+     * @throws IllegalArgumentException If the timestamp is less than
+     *      that of the previous record.
+     */
+    public void append(Binson obj, long timestamp) throws IOException {
+        if (obj == null) throw new IllegalArgumentException("obj == null not allowed");
+        if (timestamp < lastTimestamp) {
+            throw new IllegalArgumentException("timestamp " + timestamp
+                    + " is less than that of the previous record, " + lastTimestamp);
+        }
+
+        out.reset();
+        OutputWriter.writeToOutput(obj, out);
+        ByteBuffer payload = out.toByteBuffer();
+
+        header.clear();
+        header.putInt(out.size());
+        header.putInt(checksum(timestamp, payload, null));
+        header.putLong(timestamp);
+        header.flip();
+
+        if (recordCount % indexInterval == 0) {
+            writeIndexEntry(offset, timestamp);
+        }
+
+        long position = offset;
+        position += writeFully(channel, header, position);
+        position += writeFully(channel, payload, position);
+
+        offset = position;
+        lastTimestamp = timestamp;
+        recordCount++;
+    }
+
+    /**
+     * Forces the written records and the index to the storage device.
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+        indexChannel.force(false);
+    }
+
+    public void close() throws IOException {
+        try {
+            raf.close();
+        } finally {
+            indexRaf.close();
+        }
+    }
+
+    private void writeFileHeader() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.flip();
+        writeFully(channel, buffer, 0);
+    }
+
+    private int readIndexInterval(int defaultInterval) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining() && indexChannel.read(buffer, buffer.position()) > 0) {
+            // read header
+        }
+
+        if (buffer.hasRemaining()) {
+            return defaultInterval;
+        }
+
+        for (int i = 0; i < INDEX_MAGIC.length; i++) {
+            if (buffer.get(i) != INDEX_MAGIC[i]) {
+                return defaultInterval;
+            }
+        }
+
+        int interval = buffer.getInt(4);
+        return interval > 0 ? interval : defaultInterval;
+    }
+
+    /**
+     * Makes the index match the records already in the data file. The index entries
+     * that the reader loaded are trusted and kept; entries after the last record are
+     * removed, and entries are added for the records after the last indexed one.
+     * The data file is only read for those records.
+     */
+    private void updateIndex(RecordFileReader reader) throws IOException {
+        long pointCount = (recordCount + indexInterval - 1) / indexInterval;
+        long kept = reader == null ? 0 : Math.min(reader.getIndexedPointCount(), pointCount);
+
+        if (kept == 0) {
+            indexChannel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocate(INDEX_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(INDEX_MAGIC);
+            buffer.putInt(indexInterval);
+            buffer.flip();
+            writeFully(indexChannel, buffer, 0);
+        } else {
+            indexChannel.truncate(INDEX_HEADER_SIZE + kept * INDEX_ENTRY_SIZE);
+        }
+
+        for (long point = kept; point < pointCount; point++) {
+            long n = point * indexInterval;
+            writeIndexEntry(reader.getOffset(n), reader.getTimestamp(n));
+        }
+    }
+
+    private void writeIndexEntry(long recordOffset, long timestamp) throws IOException {
+        indexEntry.clear();
+        indexEntry.putLong(recordOffset);
+        indexEntry.putLong(timestamp);
+        indexEntry.flip();
+        writeFully(indexChannel, indexEntry, indexChannel.size());
+    }
+
+    /**
+     * Writes all remaining bytes of the buffer at the given position.
+     * Returns the number of bytes written.
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            count += channel.write(buffer, position + count);
+        }
+        return count;
+    }
+}
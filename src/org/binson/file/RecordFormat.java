@@ -0,0 +1,104 @@
+package org.binson.file;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import org.binson.BinsonFormatException;
+
+/**
+ * Constants and helpers shared by RecordFileWriter and RecordFileReader.
+ * 
+ * <p>The data file starts with an 8-byte header: the magic bytes "BnRF" and 
+ * the format version as a 32-bit integer. Each record then consists of a 
+ * 16-byte record header followed by the bytes of one Binson object (the payload).
+ * The record header contains: the payload length (int32), a CRC-32 checksum 
+ * of the timestamp and the payload (int32), and the timestamp (int64).
+ * All integers are little-endian, as in Binson.</p>
+ * 
+ * <p>The index file (the data file name + ".idx") starts with the magic bytes "BnRI"
+ * and the index interval N (int32). Then follows one 16-byte entry for every
+ * N:th record (record 0, N, 2N, ...): the offset of the record in the data file
+ * (int64) and its timestamp (int64). The index can always be rebuilt from the
+ * data file.</p>
+ * 
+ * @author Frans Lundberg
+ */
+final class RecordFormat {
+    static final int VERSION = 1;
+    static final byte[] MAGIC = {'B', 'n', 'R', 'F'};
+    static final byte[] INDEX_MAGIC = {'B', 'n', 'R', 'I'};
+    static final int FILE_HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 16;
+    static final int INDEX_HEADER_SIZE = 8;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final int DEFAULT_INDEX_INTERVAL = 1024;
+
+    private RecordFormat() {}
+
+    static File indexFile(File dataFile) {
+        return new File(dataFile.getPath() + ".idx");
+    }
+
+    /**
+     * Computes the checksum of a record. The remaining bytes of 'payload' are used,
+     * its position is not changed. 'scratch' is used to copy the bytes of 
+     * buffers that have no accessible array; it may be null for other buffers.
+     */
+    static int checksum(long timestamp, ByteBuffer payload, byte[] scratch) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < 8; i++) {
+            crc.update((int) (timestamp >>> (8 * i)));
+        }
+
+        if (payload.hasArray()) {
+            crc.update(payload.array(), payload.arrayOffset() + payload.position(), 
+                    payload.remaining());
+        } else {
+            ByteBuffer b = payload.duplicate();
+            while (b.hasRemaining()) {
+                int n = Math.min(scratch.length, b.remaining());
+                b.get(scratch, 0, n);
+                crc.update(scratch, 0, n);
+            }
+        }
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns the offset of record n, given the offsets of records
+     * 0, interval, 2*interval, ...
+     */
+    static long recordOffset(MappedFile file, long[] pointOffsets, int interval, long n) {
+        int point = (int) (n / interval);
+        long offset = pointOffsets[point];
+        for (long i = (long) point * interval; i < n; i++) {
+            offset = nextRecord(file, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the offset of the record after the record at 'offset'.
+     */
+    static long nextRecord(MappedFile file, long offset) {
+        return offset + RECORD_HEADER_SIZE + file.slice(offset, RECORD_HEADER_SIZE).getInt(0);
+    }
+
+    /**
+     * Returns the payload of the record at 'offset'.
+     *
+     * @throws BinsonFormatException If 'verify' is true and the checksum is wrong.
+     */
+    static ByteBuffer payload(MappedFile file, long offset, boolean verify, byte[] scratch) {
+        ByteBuffer header = file.slice(offset, RECORD_HEADER_SIZE);
+        ByteBuffer payload = file.slice(offset + RECORD_HEADER_SIZE, header.getInt(0));
+
+        if (verify && checksum(header.getLong(8), payload, scratch) != header.getInt(4)) {
+            throw new BinsonFormatException("bad checksum of record at offset " + offset + ".");
+        }
+
+        return payload;
+    }
+}
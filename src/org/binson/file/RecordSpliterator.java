@@ -0,0 +1,82 @@
+package org.binson.file;
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import static org.binson.file.RecordFormat.*;
+
+/**
+ * Spliterator over the payloads of records [index, end) of a record file.
+ * A split divides the records in two halves; the offset of the first record of
+ * the second half is found from the closest index entry, by stepping over at
+ * most indexInterval record headers. Only immutable state is shared between
+ * the spliterators of one file.
+ *
+ * @author Frans Lundberg
+ */
+final class RecordSpliterator implements Spliterator<ByteBuffer> {
+    private final MappedFile mapped;
+    private final long[] pointOffsets;
+    private final int indexInterval;
+    private final boolean verify;
+    private final byte[] scratch = new byte[8192];
+    private long index;
+    private final long end;
+    private long offset;
+
+    /**
+     * 'offset' is the offset of record 'index'.
+     */
+    RecordSpliterator(MappedFile mapped, long[] pointOffsets, int indexInterval,
+            long index, long end, long offset, boolean verify) {
+        this.mapped = mapped;
+        this.pointOffsets = pointOffsets;
+        this.indexInterval = indexInterval;
+        this.verify = verify;
+        this.index = index;
+        this.end = end;
+        this.offset = offset;
+    }
+
+    public boolean tryAdvance(Consumer<? super ByteBuffer> action) {
+        if (index >= end) {
+            return false;
+        }
+
+        ByteBuffer payload = payload(mapped, offset, verify, scratch);
+        offset += RECORD_HEADER_SIZE + payload.remaining();
+        index++;
+        action.accept(payload);
+        return true;
+    }
+
+    public Spliterator<ByteBuffer> trySplit() {
+        long size = end - index;
+        if (size < 2) {
+            return null;
+        }
+
+        long mid = index + size / 2;
+        RecordSpliterator prefix = new RecordSpliterator(mapped, pointOffsets, indexInterval,
+                index, mid, offset, verify);
+
+        if (mid / indexInterval == index / indexInterval) {
+            for (long i = index; i < mid; i++) {
+                offset = nextRecord(mapped, offset);
+            }
+        } else {
+            offset = recordOffset(mapped, pointOffsets, indexInterval, mid);
+        }
+        index = mid;
+        return prefix;
+    }
+
+    public long estimateSize() {
+        return end - index;
+    }
+
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
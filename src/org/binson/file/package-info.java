@@ -0,0 +1,9 @@
+/**
+ * An append-only file format for sequences of Binson objects (records),
+ * with a checksum per record and a sparse offset index. 
+ * See RecordFileWriter and RecordFileReader. Also, BinsonFileReader 
+ * for files of concatenated Binson objects without framing.
+ * 
+ * @author Frans Lundberg
+ */
+package org.binson.file;
@@ -0,0 +1,240 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * Binson output that encodes directly into a byte array. The array grows as needed
+ * (the capacity is doubled) and can be reused for many objects by calling reset().
+ * Unlike BinsonOutput, no OutputStream is involved and no memory is allocated
+ * per value, except when the array needs to grow.
+ *
+ * <p>Example, a serializer thread that reuses one buffer:</p>
+ *
+ * <pre> BinsonBufferOutput out = new BinsonBufferOutput();
+ * for (Binson obj : objects) {
+ *     out.reset();
+ *     OutputWriter.writeToOutput(obj, out);
+ *     send(out.getBuffer(), 0, out.size());
+ * }
+ * </pre>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonBufferOutput implements Output {
+    private byte[] buffer;
+    private int size = 0;
+    private FieldNamePool namePool;
+
+    /**
+     * Creates a new instance with an initial capacity of 256 bytes.
+     */
+    public BinsonBufferOutput() {
+        this(256);
+    }
+
+    public BinsonBufferOutput(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("bad initialCapacity, " + initialCapacity);
+        }
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Creates a new instance that writes to the provided array, starting at index 0.
+     * If the array is too small, it is replaced with a larger one;
+     * use getBuffer() to get the current array.
+     */
+    public BinsonBufferOutput(byte[] buffer) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("buffer == null not allowed");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Sets the pool used to get the UTF-8 bytes of field names. Names that are
+     * not in the pool are added until it is full, so only set a pool if the
+     * written field names come from a limited set.
+     * Default is null, no pooling.
+     */
+    public void setFieldNamePool(FieldNamePool namePool) {
+        this.namePool = namePool;
+    }
+
+    /**
+     * Discards all written bytes. The array is kept and reused.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Returns the number of bytes written.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the internal array. The first size() bytes of it are the
+     * bytes written.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns a copy of the bytes written.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Returns a ByteBuffer that wraps the written bytes of the internal array.
+     * No copy is made; the result is only valid until the next write or reset.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, size);
+    }
+
+    /**
+     * Writes the bytes written so far to an OutputStream.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    public void writeBegin() {
+        writeOne(BEGIN);
+    }
+
+    public void writeEnd() {
+        writeOne(END);
+    }
+
+    public void writeBeginArray() {
+        writeOne(BEGIN_ARRAY);
+    }
+
+    public void writeEndArray() {
+        writeOne(END_ARRAY);
+    }
+
+    public void writeBoolean(boolean value) {
+        writeOne(value ? TRUE : FALSE);
+    }
+
+    public void writeInteger(long value) {
+        writeIntegerOrLength(INTEGER, value);
+    }
+
+    public void writeDouble(double value) {
+        ensureCapacity(9);
+        buffer[size] = DOUBLE;
+        Bytes.doubleToBytesLE(value, buffer, size + 1);
+        size += 9;
+    }
+
+    /**
+     * Writes a string. The string is encoded directly into the buffer, see Utf8.
+     */
+    public void writeString(String string) {
+        int length = Utf8.encodedLength(string);
+        writeIntegerOrLength(STRING, length);
+        ensureCapacity(length);
+        size += Utf8.encode(string, buffer, size);
+    }
+
+    public void writeBytes(byte[] value) {
+        writeBytes(BYTES, value);
+    }
+
+    public void writeBytes(ByteBuffer value) {
+        int length = value.remaining();
+        writeIntegerOrLength(BYTES, length);
+        ensureCapacity(length);
+        value.duplicate().get(buffer, size, length);
+        size += length;
+    }
+
+    public void writeName(String name) {
+        if (namePool == null) {
+            writeString(name);
+        } else {
+            writeBytes(STRING, namePool.toUtf8(name));
+        }
+    }
+
+    public void writeArrayValueSeparator() {
+        // empty
+    }
+
+    public void writeNameValueSeparator() {
+        // empty
+    }
+
+    public void writePairSeparator() {
+        // empty
+    }
+
+    public void flush() {
+        // empty
+    }
+
+    private void writeBytes(int baseType, byte[] bytes) {
+        writeIntegerOrLength(baseType, bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeOne(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeIntegerOrLength(int baseType, long value) {
+        ensureCapacity(9);
+        byte[] b = buffer;
+        int i = size;
+
+        if (RangeUtil.isInOneByteRange(value)) {
+            b[i] = (byte) (baseType | ONE_BYTE);
+            b[i + 1] = (byte) value;
+            size += 2;
+        } else if (RangeUtil.isInTwoByteRange(value)) {
+            b[i] = (byte) (baseType | TWO_BYTES);
+            Bytes.shortToBytesLE((int) value, b, i + 1);
+            size += 3;
+        } else if (RangeUtil.isInFourByteRange(value)) {
+            b[i] = (byte) (baseType | FOUR_BYTES);
+            Bytes.intToBytesLE((int) value, b, i + 1);
+            size += 5;
+        } else {
+            b[i] = (byte) (baseType | EIGHT_BYTES);
+            Bytes.longToBytesLE(value, b, i + 1);
+            size += 9;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        int needed = size + extra;
+        if (needed < 0) {
+            throw new IllegalStateException("buffer size exceeds 2^31 bytes");
+        }
+
+        if (needed > buffer.length) {
+            int newLength = Math.max(needed, 2 * buffer.length);
+            if (newLength < 0) {
+                newLength = Integer.MAX_VALUE;
+            }
+            buffer = Arrays.copyOf(buffer, newLength);
+        }
+    }
+}
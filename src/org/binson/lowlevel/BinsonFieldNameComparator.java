@@ -22,8 +22,34 @@ public class BinsonFieldNameComparator implements Comparator<String> {
     /**
      * Compares its two arguments for order. Returns a negative integer, zero, or a 
      * positive integer as the first argument is less than, equal to, or greater than the second.
+     * 
+     * <p>The strings are compared char by char without encoding them to UTF-8.
+     * Lexicographical order of UTF-8 bytes equals code point order, so only 
+     * chars in the surrogate range need special treatment; in that case the 
+     * UTF-8 bytes are compared.</p>
      */
     public int compare(String s1, String s2) {
-        return ByteArrayComparator.compareArrays(s1.getBytes(StandardCharsets.UTF_8), s2.getBytes(StandardCharsets.UTF_8));
+        final int len1 = s1.length();
+        final int len2 = s2.length();
+        final int minLength = len1 < len2 ? len1 : len2;
+        
+        for (int i = 0; i < minLength; i++) {
+            char c1 = s1.charAt(i);
+            char c2 = s2.charAt(i);
+            
+            if (c1 != c2) {
+                if (Character.isSurrogate(c1) || Character.isSurrogate(c2)) {
+                    return compareUtf8(s1, s2);
+                }
+                return c1 - c2;
+            }
+        }
+        
+        return len1 - len2;
+    }
+    
+    private static int compareUtf8(String s1, String s2) {
+        return ByteArrayComparator.compareArrays(s1.getBytes(StandardCharsets.UTF_8), 
+                s2.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,443 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.binson.BinsonFormatException;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * A pull parser that reads Binson bytes one token at a time without creating
+ * Binson objects. The same strict checks as in BinsonParser are performed:
+ * integers must be stored with as few bytes as possible, fields must be
+ * in Binson field order, and the maxSize and maxFieldCount limits apply.
+ *
+ * <p>Example, reading the integer field "id" of a Binson object:</p>
+ *
+ * <pre> BinsonInput input = new BinsonInput(bytes);
+ * input.next();    // BEGIN of the top-level object
+ * while (input.next() != Constants.END) {
+ *     if (&quot;id&quot;.equals(input.getName())) {
+ *         id = input.getInteger();
+ *     }
+ *     input.skipValue();
+ * }
+ * </pre>
+ *
+ * <p>The content of string and bytes values is read first when getString() or
+ * getBytes() is called. Values that are never asked for are skipped without
+ * allocating memory for them; skipped strings are still checked to be valid UTF-8,
+ * as BinsonParser does. Large values can be read as a stream instead,
+ * see getContentStream().</p>
+ *
+ * @author Frans Lundberg
+ */
+public class BinsonInput implements Input {
+    private final ByteReader reader;
+    private int maxFieldCount = 1000;
+    private FieldNamePool namePool;
+
+    private int depth = 0;
+    private boolean done = false;
+    private boolean[] isArray = new boolean[8];
+    private int[] fieldCounts = new int[8];
+    private String[] lastNames = new String[8];
+
+    private int token = -1;
+    private String name;
+    private boolean booleanValue;
+    private long integerValue;
+    private double doubleValue;
+    private String stringValue;
+    private byte[] bytesValue;
+    private int pendingLength = -1;
+    private ContentStream contentStream;
+
+    /**
+     * Creates a new instance that reads from an InputStream.
+     */
+    public BinsonInput(InputStream in) {
+        this.reader = new ByteReader(in);
+    }
+
+    /**
+     * Creates a new instance that reads directly from a byte array.
+     * The array is not copied.
+     */
+    public BinsonInput(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Creates a new instance that reads 'length' bytes of a byte array
+     * starting at 'offset'. The array is not copied.
+     */
+    public BinsonInput(byte[] bytes, int offset, int length) {
+        this.reader = new ByteReader(bytes, offset, length);
+    }
+
+    /**
+     * Creates a new instance that reads the remaining bytes of a buffer.
+     * The position of the buffer is not changed.
+     */
+    public BinsonInput(ByteBuffer buffer) {
+        this.reader = new ByteReader(buffer);
+    }
+
+    /**
+     * Sets the maximum byte size of the Binson object to read.
+     * See BinsonParser.setMaxSize().
+     */
+    public void setMaxSize(int maxSize) {
+        reader.setMaxSize(maxSize);
+    }
+
+    public int getMaxSize() {
+        return reader.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of fields of a Binson object.
+     * See BinsonParser.setMaxFieldCount().
+     */
+    public void setMaxFieldCount(int maxFieldCount) {
+        if (maxFieldCount <= 0) {
+            throw new IllegalArgumentException("bad maxFieldCount, " + maxFieldCount);
+        }
+        this.maxFieldCount = maxFieldCount;
+    }
+
+    public int getMaxFieldCount() {
+        return maxFieldCount;
+    }
+
+    /**
+     * Sets the pool used to look up field names. Field names found in the pool
+     * are not decoded; the pooled String instance is used instead. Names that are
+     * not found are added to the pool until it is full, so only set a pool
+     * that is shared with other parsers if the input is trusted.
+     * Default is null, no pooling.
+     */
+    public void setFieldNamePool(FieldNamePool namePool) {
+        this.namePool = namePool;
+    }
+    
+    public FieldNamePool getFieldNamePool() {
+        return namePool;
+    }
+    
+    /**
+     * Returns the current nesting depth. The depth is 1 after the
+     * BEGIN token of the top-level object, 2 inside a field that is an
+     * object or array, and so on. After the END token of the top-level object,
+     * the depth is 0.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     */
+    public long getOffset() {
+        return reader.getOffset();
+    }
+
+    /**
+     * Returns the current token type, or -1 if next() has not been called.
+     */
+    public int getToken() {
+        return token;
+    }
+
+    /**
+     * Reads the next token. See Input.next().
+     *
+     * @throws BinsonFormatException
+     *      If the bytes do not follow the Binson specification.
+     * @throws IllegalStateException
+     *      If called after the END token of the top-level object.
+     */
+    public int next() throws IOException {
+        if (pendingLength >= 0) {
+            if (token == STRING && contentStream == null) {
+                reader.skipUtf8(pendingLength);
+            } else {
+                reader.skip(pendingLength);
+            }
+            pendingLength = -1;
+        }
+
+        if (done) {
+            throw new IllegalStateException("end of the Binson object has been reached");
+        }
+
+        stringValue = null;
+        bytesValue = null;
+        contentStream = null;
+        name = null;
+
+        int type = reader.readOne();
+
+        if (depth == 0) {
+            if (type != BEGIN) {
+                throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
+            }
+            push(false);
+            return setToken(BEGIN);
+        }
+
+        if (isArray[depth - 1]) {
+            if (type == END_ARRAY) {
+                depth--;
+                return setToken(END_ARRAY);
+            }
+            return readValue(type);
+        }
+
+        switch (type) {
+        case STRING1:
+        case STRING2:
+        case STRING4:
+            readName(type);
+            return readValue(reader.readOne());
+        case END:
+            depth--;
+            done = depth == 0;
+            return setToken(END);
+        default:
+            throw new BinsonFormatException("Expected string/end, got " + type + ".");
+        }
+    }
+
+    /**
+     * Skips the rest of the current value. If the current token is BEGIN or
+     * BEGIN_ARRAY, tokens are read until the corresponding END or END_ARRAY token
+     * has been read. For other tokens, this method does nothing; unread string 
+     * and bytes content is skipped by next() anyway.
+     */
+    public void skipValue() throws IOException {
+        if (token == BEGIN || token == BEGIN_ARRAY) {
+            int targetDepth = depth - 1;
+            while (depth > targetDepth) {
+                next();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean getBoolean() {
+        checkToken(BOOLEAN, "boolean");
+        return booleanValue;
+    }
+
+    public long getInteger() {
+        checkToken(INTEGER, "integer");
+        return integerValue;
+    }
+
+    public double getDouble() {
+        checkToken(DOUBLE, "double");
+        return doubleValue;
+    }
+
+    /**
+     * Returns the current string value. The string content is read from the
+     * input the first time this method is called for the current token.
+     *
+     * @throws BinsonFormatException  If the current token is not a string.
+     */
+    public String getString() throws IOException {
+        checkToken(STRING, "string");
+        checkNoStream();
+        if (stringValue == null) {
+            stringValue = reader.readString(pendingLength);
+            pendingLength = -1;
+        }
+        return stringValue;
+    }
+
+    /**
+     * Returns the current bytes value. The content is read from the
+     * input the first time this method is called for the current token.
+     *
+     * @throws BinsonFormatException  If the current token is not a bytes value.
+     */
+    public byte[] getBytes() throws IOException {
+        checkToken(BYTES, "bytes");
+        checkNoStream();
+        if (bytesValue == null) {
+            bytesValue = reader.readBytes(pendingLength);
+            pendingLength = -1;
+        }
+        return bytesValue;
+    }
+
+    /**
+     * Returns the content of the current string or bytes value as an InputStream
+     * that reads the value directly from the input, so a large value does not need 
+     * to fit in memory. The stream ends after the last byte of the value; bytes that
+     * have not been read when next() is called are skipped. The stream cannot be
+     * used after next() has been called. For strings, the stream returns the UTF-8
+     * bytes as they are; they are not validated, see Utf8.validate() for that.
+     * 
+     * <p>The maxSize limit still applies; set it to allow large values.
+     * Calling this method again for the same token returns the same stream.</p>
+     * 
+     * @throws BinsonFormatException  If the current token is not a string or bytes value.
+     * @throws IllegalStateException  
+     *      If the content has already been read by getString() or getBytes().
+     */
+    public InputStream getContentStream() {
+        if (token != STRING && token != BYTES) {
+            throw new BinsonFormatException("Current token is not a string or bytes value.");
+        }
+        if (contentStream == null) {
+            if (pendingLength == -1) {
+                throw new IllegalStateException("content has already been read");
+            }
+            contentStream = new ContentStream();
+        }
+        return contentStream;
+    }
+
+    private void checkNoStream() {
+        if (contentStream != null) {
+            throw new IllegalStateException("content is read by the stream of getContentStream()");
+        }
+    }
+
+    /**
+     * Reads the content of the current value; pendingLength is the number of bytes left.
+     */
+    private final class ContentStream extends InputStream {
+        private final byte[] one = new byte[1];
+
+        public int read() throws IOException {
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        public int read(byte[] dest, int offset, int length) throws IOException {
+            checkOpen();
+            if (length == 0) {
+                return 0;
+            }
+            if (pendingLength == 0) {
+                return -1;
+            }
+
+            int n = Math.min(length, pendingLength);
+            reader.read(dest, offset, n);
+            pendingLength -= n;
+            return n;
+        }
+
+        public long skip(long n) throws IOException {
+            checkOpen();
+            if (n <= 0) {
+                return 0;
+            }
+
+            int count = (int) Math.min(n, pendingLength);
+            reader.skip(count);
+            pendingLength -= count;
+            return count;
+        }
+
+        private void checkOpen() throws IOException {
+            if (contentStream != this) {
+                throw new IOException("stream closed, next() has been called");
+            }
+        }
+    }
+
+    private void readName(int type) throws IOException {
+        int index = depth - 1;
+        fieldCounts[index]++;
+        if (fieldCounts[index] > maxFieldCount) {
+            throw new MaxSizeException("The Binson object being parsed has more fields " +
+                    "than the maxFieldCount setting of the parser (" +
+                    maxFieldCount + ").");
+        }
+
+        String currentName = reader.readName(reader.readLength(type), namePool);
+        String lastName = lastNames[index];
+
+        if (lastName != null) {
+            if (BinsonFieldNameComparator.INSTANCE.compare(lastName, currentName) >= 0) {
+                throw new BinsonFormatException("bad field order, " + lastName + ", "
+                        + currentName);
+            }
+        }
+
+        lastNames[index] = currentName;
+        name = currentName;
+    }
+
+    private int readValue(int type) throws IOException {
+        switch (type) {
+        case BEGIN:
+            push(false);
+            return setToken(BEGIN);
+        case BEGIN_ARRAY:
+            push(true);
+            return setToken(BEGIN_ARRAY);
+        case TRUE:
+        case FALSE:
+            booleanValue = type == TRUE;
+            return setToken(BOOLEAN);
+        case DOUBLE:
+            doubleValue = reader.readDouble();
+            return setToken(DOUBLE);
+        case INTEGER1:
+        case INTEGER2:
+        case INTEGER4:
+        case INTEGER8:
+            integerValue = reader.readInteger(type);
+            return setToken(INTEGER);
+        case STRING1:
+        case STRING2:
+        case STRING4:
+            pendingLength = reader.readLength(type);
+            return setToken(STRING);
+        case BYTES1:
+        case BYTES2:
+        case BYTES4:
+            pendingLength = reader.readLength(type);
+            return setToken(BYTES);
+        default:
+            throw new BinsonFormatException("Unexpected type: " + type + ".");
+        }
+    }
+
+    private void push(boolean array) {
+        if (depth == isArray.length) {
+            int newLength = 2 * depth;
+            isArray = Arrays.copyOf(isArray, newLength);
+            fieldCounts = Arrays.copyOf(fieldCounts, newLength);
+            lastNames = Arrays.copyOf(lastNames, newLength);
+        }
+
+        isArray[depth] = array;
+        fieldCounts[depth] = 0;
+        lastNames[depth] = null;
+        depth++;
+    }
+
+    private int setToken(int token) {
+        this.token = token;
+        return token;
+    }
+
+    private void checkToken(int expected, String typeName) {
+        if (token != expected) {
+            throw new BinsonFormatException("Current token is not a " + typeName + ".");
+        }
+    }
+}
@@ -1,17 +1,45 @@
 package org.binson.lowlevel;
 
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import static org.binson.lowlevel.Constants.*;
 
 /**
  * This class wraps an OutputStream and provides low-level Binson output functionality.
  * 
+ * <p>Large bytes values can be written from an InputStream or a ReadableByteChannel
+ * without holding the value in memory, see writeBytes(InputStream, long).</p>
+ * 
  * @author Frans Lundberg
  */
 public final class BinsonOutput implements Output {
+    /** Size of the reused buffer for strings and bytes. */
+    private static final int CHUNK_SIZE = 1024;
+    
+    /** Size of the buffer used to copy bytes values from streams and channels. */
+    private static final int TRANSFER_SIZE = 8*1024;
+    
     private OutputStream out;
+    private WritableByteChannel channel;
+    
+    /** True if 'out' buffers the writes to 'channel'; it is flushed after each object. */
+    private boolean buffered = false;
+    
+    /** Nesting depth of objects, used to find the end of the top-level object. */
+    private int depth = 0;
+    private final byte[] scratch = new byte[9];
+    private byte[] chunkBuffer;
+    private FieldNamePool namePool;
     
     /**
      * Creates a new instance by wrapping the provided OutputStream.
@@ -20,14 +48,49 @@ public final class BinsonOutput implements Output {
      */
     public BinsonOutput(OutputStream out) {
         this.out = out;
+        if (out instanceof FileOutputStream) {
+            this.channel = ((FileOutputStream) out).getChannel();
+        }
+    }
+    
+    /**
+     * Creates a new instance that writes to a channel. Bytes values read from a
+     * FileChannel are then transferred with FileChannel.transferTo(), see 
+     * writeBytes(ReadableByteChannel, long). The channel must be in blocking mode.
+     * 
+     * <p>Writes are buffered (8 kB), so small tokens do not result in one channel 
+     * write each. The buffer is flushed when the END of the top-level object has been
+     * written, before bytes values are written directly to the channel, 
+     * and when flush() is called.</p>
+     */
+    public BinsonOutput(WritableByteChannel channel) {
+        if (channel == null) throw new IllegalArgumentException("channel == null not allowed");
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), TRANSFER_SIZE);
+        this.channel = channel;
+        this.buffered = true;
+    }
+    
+    /**
+     * Sets the pool used to get the UTF-8 bytes of field names. Names that are
+     * not in the pool are added until it is full, so only set a pool if the
+     * written field names come from a limited set.
+     * Default is null, no pooling.
+     */
+    public void setFieldNamePool(FieldNamePool namePool) {
+        this.namePool = namePool;
     }
     
     public void writeBegin() throws IOException {
+        depth++;
         out.write(Constants.BEGIN);
     }
 
     public void writeEnd() throws IOException {
         out.write(Constants.END);
+        depth--;
+        if (depth == 0 && buffered) {
+            out.flush();
+        }
     }
     
     public void writeBeginArray() throws IOException {
@@ -47,16 +110,31 @@ public final class BinsonOutput implements Output {
     }
     
     public void writeDouble(double value) throws IOException {
-        byte[] bytes = new byte[9];
-        bytes[0] = Constants.DOUBLE;
-        Bytes.doubleToBytesLE(value, bytes, 1);
-        out.write(bytes);
+        scratch[0] = Constants.DOUBLE;
+        Bytes.doubleToBytesLE(value, scratch, 1);
+        out.write(scratch, 0, 9);
     }
     
+    /**
+     * Writes a string. Strings up to 1 kB are encoded to a reused buffer, see Utf8.
+     */
     public void writeString(String string) throws IOException {
-        byte[] bytes = Bytes.stringToUtf8(string);
-        writeIntegerOrLength(Constants.STRING, bytes.length);
-        out.write(bytes);
+        int length = Utf8.encodedLength(string);
+        writeIntegerOrLength(Constants.STRING, length);
+        
+        byte[] bytes = chunkBuffer(length);
+        Utf8.encode(string, bytes, 0);
+        out.write(bytes, 0, length);
+    }
+    
+    private byte[] chunkBuffer(int length) {
+        if (length > CHUNK_SIZE) {
+            return new byte[length];
+        }
+        if (chunkBuffer == null) {
+            chunkBuffer = new byte[CHUNK_SIZE];
+        }
+        return chunkBuffer;
     }
     
     public void writeBytes(byte[] value) throws IOException {
@@ -64,8 +142,142 @@ public final class BinsonOutput implements Output {
         out.write(value);
     }
     
+    /**
+     * Writes the remaining bytes of a buffer. The position of the buffer is not changed.
+     * If this instance writes to a channel (a FileOutputStream or the WritableByteChannel
+     * constructor), the buffer is written directly to the channel. Otherwise, if the buffer
+     * has an accessible array, the bytes are written from it; read-only buffers,
+     * such as the slices of BinsonParser.setSliceBytes(), and direct buffers
+     * are copied to the OutputStream in chunks of 1 kB.
+     */
+    public void writeBytes(ByteBuffer value) throws IOException {
+        int length = value.remaining();
+        writeIntegerOrLength(Constants.BYTES, length);
+        
+        if (channel != null) {
+            out.flush();
+            ByteBuffer source = value.duplicate();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            return;
+        }
+        
+        if (value.hasArray()) {
+            out.write(value.array(), value.arrayOffset() + value.position(), length);
+            return;
+        }
+        
+        ByteBuffer source = value.duplicate();
+        byte[] chunk = chunkBuffer(CHUNK_SIZE);
+        while (source.hasRemaining()) {
+            int n = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, n);
+            out.write(chunk, 0, n);
+        }
+    }
+    
+    /**
+     * Writes a bytes value with the content read from an InputStream. Exactly 'length'
+     * bytes are read from the stream and written in chunks of 8 kB, so the value
+     * does not need to fit in memory.
+     * 
+     * @throws EOFException 
+     *      If the stream ends before 'length' bytes have been read. The Binson
+     *      output is then incomplete.
+     * @throws IllegalArgumentException
+     *      If length is negative or larger than 2^31-1, the max length of a bytes value.
+     */
+    public void writeBytes(InputStream in, long length) throws IOException {
+        if (in == null) throw new IllegalArgumentException("in == null not allowed");
+        checkLength(length);
+        writeIntegerOrLength(Constants.BYTES, length);
+        
+        byte[] chunk = new byte[(int) Math.min(length, TRANSFER_SIZE)];
+        long left = length;
+        while (left > 0) {
+            int n = in.read(chunk, 0, (int) Math.min(left, chunk.length));
+            if (n == -1) {
+                throw new EOFException("EOF reached");
+            }
+            out.write(chunk, 0, n);
+            left -= n;
+        }
+    }
+    
+    /**
+     * Writes a bytes value with the content read from a channel. Exactly 'length'
+     * bytes are read from the channel. 
+     * 
+     * <p>If the source is a FileChannel and this instance writes to a channel 
+     * (a FileOutputStream or the WritableByteChannel constructor), the bytes are 
+     * transferred with FileChannel.transferTo() starting at the position of the source.
+     * Depending on the platform, the bytes are then not copied to the Java heap at all.
+     * The position of the source is advanced by 'length', just as if
+     * the bytes had been read. Other channels are copied in chunks of 8 kB.</p>
+     * 
+     * @throws EOFException 
+     *      If the channel ends before 'length' bytes have been read. The Binson
+     *      output is then incomplete.
+     * @throws IllegalArgumentException
+     *      If length is negative or larger than 2^31-1, the max length of a bytes value.
+     */
+    public void writeBytes(ReadableByteChannel in, long length) throws IOException {
+        if (in == null) throw new IllegalArgumentException("in == null not allowed");
+        checkLength(length);
+        writeIntegerOrLength(Constants.BYTES, length);
+        
+        if (channel != null && in instanceof FileChannel) {
+            out.flush();
+            transfer((FileChannel) in, length);
+            return;
+        }
+        
+        byte[] chunk = new byte[(int) Math.min(length, TRANSFER_SIZE)];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        long left = length;
+        while (left > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(left, chunk.length));
+            int n = in.read(buffer);
+            if (n == -1) {
+                throw new EOFException("EOF reached");
+            }
+            out.write(chunk, 0, n);
+            left -= n;
+        }
+    }
+    
+    private void transfer(FileChannel source, long length) throws IOException {
+        long position = source.position();
+        long end = position + length;
+        
+        while (position < end) {
+            long n = source.transferTo(position, end - position, channel);
+            if (n <= 0 && position >= source.size()) {
+                throw new EOFException("EOF reached");
+            }
+            position += n;
+        }
+        
+        source.position(end);
+    }
+    
+    private static void checkLength(long length) {
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad length, " + length);
+        }
+    }
+    
     public void writeName(String name) throws IOException {
-        writeString(name);
+        if (namePool == null) {
+            writeString(name);
+            return;
+        }
+        
+        byte[] bytes = namePool.toUtf8(name);
+        writeIntegerOrLength(Constants.STRING, bytes.length);
+        out.write(bytes);
     }
     
     public void writeArrayValueSeparator() throws IOException {
@@ -85,28 +297,26 @@ public final class BinsonOutput implements Output {
     }
     
     private void writeIntegerOrLength(int baseType, long value) throws IOException {
-        int type;
-        byte[] buffer;
+        int length;
         
         if (RangeUtil.isInOneByteRange(value)) {
-            type = baseType | ONE_BYTE;
-            buffer = new byte[1];
-            buffer[0] = (byte) value;
+            scratch[0] = (byte) (baseType | ONE_BYTE);
+            scratch[1] = (byte) value;
+            length = 2;
         } else if (RangeUtil.isInTwoByteRange(value)) {
-            type = baseType | TWO_BYTES;
-            buffer = new byte[2];
-            Bytes.shortToBytesLE((int) value, buffer, 0);
+            scratch[0] = (byte) (baseType | TWO_BYTES);
+            Bytes.shortToBytesLE((int) value, scratch, 1);
+            length = 3;
         } else if (RangeUtil.isInFourByteRange(value)) {
-            type = baseType | FOUR_BYTES;
-            buffer = new byte[4];
-            Bytes.intToBytesLE((int) value, buffer, 0);
+            scratch[0] = (byte) (baseType | FOUR_BYTES);
+            Bytes.intToBytesLE((int) value, scratch, 1);
+            length = 5;
         } else {
-            type = baseType | EIGHT_BYTES;
-            buffer = new byte[8];
-            Bytes.longToBytesLE(value, buffer, 0);
+            scratch[0] = (byte) (baseType | EIGHT_BYTES);
+            Bytes.longToBytesLE(value, scratch, 1);
+            length = 9;
         }
         
-        out.write(type);
-        out.write(buffer);
+        out.write(scratch, 0, length);
     }
 }
@@ -3,6 +3,9 @@ package org.binson.lowlevel;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import org.binson.BinsonArray;
 import org.binson.Binson;
 import org.binson.BinsonFormatException;
@@ -11,13 +14,23 @@ import static org.binson.lowlevel.Constants.*;
 /**
  * An instance of this class can parse binary binson data to a Java Binson object.
  * 
+ * <p>The data can be read from an InputStream, or directly from a byte array or
+ * a ByteBuffer. The latter avoids the overhead of the InputStream; integers, doubles
+ * and lengths are then decoded in place and memory is only allocated for the 
+ * resulting values.</p>
+ * 
  * @author Frans Lundberg
  */
 public class BinsonParser {
-    private final InputStream in;
-    private int maxSize = 40*1000000;
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    private final ByteReader reader;
     private int maxFieldCount = 1000;
-    private long streamOffset = 0;
+    private FieldNamePool namePool;
+    private boolean sortedFields = false;
+    private boolean sliceBytes = false;
+    private Projection projection;
+    private BinsonSchema schema;
+    private Skimmer skimmer;
     
     /**
      * Creates a new parser that takes data from
@@ -25,7 +38,41 @@ public class BinsonParser {
      */
     public BinsonParser(InputStream in) throws BinsonFormatException, IOException {
         if (in == null) throw new IllegalArgumentException("in == null not allowed");
-        this.in = in;
+        this.reader = new ByteReader(in);
+    }
+    
+    /**
+     * Creates a new parser that parses the given byte array.
+     * The array is not copied.
+     */
+    public BinsonParser(byte[] bytes) {
+        this(bytes, 0, checkBytes(bytes).length);
+    }
+    
+    /**
+     * Creates a new parser that parses 'length' bytes of the given 
+     * byte array starting at 'offset'. The array is not copied.
+     */
+    public BinsonParser(byte[] bytes, int offset, int length) {
+        checkBytes(bytes);
+        this.reader = new ByteReader(bytes, offset, length);
+    }
+    
+    /**
+     * Creates a new parser that parses the remaining bytes of the given
+     * buffer (heap or direct). The buffer data is not copied and the position 
+     * of the buffer is not changed.
+     */
+    public BinsonParser(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("buffer == null not allowed");
+        this.reader = new ByteReader(buffer);
+    }
+    
+    /**
+     * Creates a parser that reads from the given reader.
+     */
+    BinsonParser(ByteReader reader) {
+        this.reader = reader;
     }
     
     /**
@@ -37,14 +84,11 @@ public class BinsonParser {
      * This method must be called before parse() is called.
      */
     public void setMaxSize(int maxSize) {
-        if (maxSize <= 0) {
-            throw new IllegalArgumentException("bad maxSize, " + maxSize);
-        }
-        this.maxSize = maxSize;
+        reader.setMaxSize(maxSize);
     }
     
     public int getMaxSize() {
-    	return maxSize;
+    	return reader.getMaxSize();
     }
     
     /**
@@ -66,6 +110,96 @@ public class BinsonParser {
     	return maxFieldCount;
     }
     
+    /**
+     * Sets the pool used to look up field names. Field names found in the pool
+     * are not decoded; the pooled String instance is used instead. Names that are
+     * not found are added to the pool until it is full, so only set a pool
+     * that is shared with other parsers if the input is trusted.
+     * Default is null, no pooling.
+     */
+    public void setFieldNamePool(FieldNamePool namePool) {
+        this.namePool = namePool;
+    }
+    
+    public FieldNamePool getFieldNamePool() {
+        return namePool;
+    }
+    
+    /**
+     * If set to true, the parsed Binson objects keep their fields in 
+     * Binson field order; see Binson(boolean). Default is false.
+     * Useful when the parsed objects will be serialized again.
+     */
+    public void setSortedFields(boolean sortedFields) {
+        this.sortedFields = sortedFields;
+    }
+    
+    public boolean getSortedFields() {
+        return sortedFields;
+    }
+    
+    /**
+     * If set to true, bytes values are not copied; they are stored as read-only
+     * ByteBuffer slices of the parsed byte array or ByteBuffer. 
+     * Use Binson.getByteBuffer() to get them without copying; 
+     * Binson.getBytes() returns a copy. Default is false.
+     * 
+     * <p>The slices share the input, so it must not be modified or reused while the 
+     * parsed objects are in use, and a small slice keeps the whole input in memory.
+     * When parsing from an InputStream, the bytes are read to new arrays as usual.</p>
+     */
+    public void setSliceBytes(boolean sliceBytes) {
+        this.sliceBytes = sliceBytes;
+    }
+    
+    public boolean getSliceBytes() {
+        return sliceBytes;
+    }
+    
+    /**
+     * Makes the parser include only the given fields in the parsed objects.
+     * A path is a field name, or field names separated by '.' to select a field of
+     * a nested object; for example "id" and "header.route". When a path goes
+     * through an array, the rest of the path is applied to the objects of the array.
+     * 
+     * <p>Fields that are not selected are skipped using the lengths in the data;
+     * their values are not decoded and no memory is allocated for them.
+     * The skipped bytes are still checked like the rest of the data, and 
+     * count towards maxSize.</p>
+     * 
+     * <p>Call with no arguments to parse all fields again (the default).
+     * This method must be called before parse() is called. A projection
+     * replaces a schema set with setSchema().</p>
+     */
+    public void setProjection(String... paths) {
+        if (paths == null) throw new IllegalArgumentException("paths == null not allowed");
+        this.projection = paths.length == 0 ? null : Projection.compile(paths);
+        if (projection != null) {
+            this.schema = null;
+        }
+    }
+    
+    /**
+     * Sets a schema that parsed objects must follow. The schema is checked while
+     * parsing: a value of the wrong type is detected at its type byte and a 
+     * missing mandatory field at the next field name (or the end of the object),
+     * so a message that breaks the schema fails without being parsed completely.
+     * Null (the default) turns off the check. A schema replaces a projection
+     * set with setProjection().
+     * 
+     * @see BinsonSchema
+     */
+    public void setSchema(BinsonSchema schema) {
+        this.schema = schema;
+        if (schema != null) {
+            this.projection = null;
+        }
+    }
+    
+    public BinsonSchema getSchema() {
+        return schema;
+    }
+    
     /**
      * Parses a Binson object from the input stream.
      * 
@@ -77,6 +211,21 @@ public class BinsonParser {
         return parseObject();
     }
     
+    /**
+     * Parses a Binson array; the input must start with BEGIN_ARRAY.
+     * 
+     * @throws BinsonFormatException
+     * @throws IOException
+     */
+    public BinsonArray parseArray() throws IOException {
+        int type = readOne();
+        if (type != BEGIN_ARRAY) {
+            throw new BinsonFormatException("Expected BEGIN_ARRAY, got " + type + ".");
+        }
+        
+        return parseElements();
+    }
+    
     /**
      * Parses bytes from the the provided input stream and returns a Binson object.
      * 
@@ -89,17 +238,63 @@ public class BinsonParser {
         return new BinsonParser(in).parseObject();
     }
     
+    /**
+     * Parses a Binson object from the given byte array.
+     * 
+     * @throws BinsonFormatException 
+     *      If the bytes does not follow the Binson spec, or if the end of 
+     *      the array is reached before the end of the object.
+     */
+    public static Binson parse(byte[] bytes, int offset, int length) {
+        try {
+            return new BinsonParser(bytes, offset, length).parseObject();
+        } catch (EOFException e) {
+            throw new BinsonFormatException("end-of-file reached before end of object.");
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+    
+    /**
+     * Parses a Binson object from the remaining bytes of the given buffer.
+     * The position of the buffer is not changed.
+     * 
+     * @throws BinsonFormatException 
+     *      If the bytes does not follow the Binson spec, or if the limit of 
+     *      the buffer is reached before the end of the object.
+     */
+    public static Binson parse(ByteBuffer buffer) {
+        try {
+            return new BinsonParser(buffer).parseObject();
+        } catch (EOFException e) {
+            throw new BinsonFormatException("end-of-file reached before end of object.");
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+    
+    private static byte[] checkBytes(byte[] bytes) {
+        if (bytes == null) throw new IllegalArgumentException("bytes == null not allowed");
+        return bytes;
+    }
+    
     private Binson parseObject() throws IOException {
         int type = readOne();
         if (type != BEGIN) {
             throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
         }
         
+        if (projection != null) {
+            return parseProjectedFields(projection);
+        } else if (schema != null) {
+            return parseCheckedFields(schema.root());
+        }
+        
         return parseFields();
     }
 
     private Binson parseFields() throws IOException {
-        Binson object = new Binson();
+        Binson object = new Binson(sortedFields);
         int type;
         String currentFieldName = null;
         int fieldCount = 0;
@@ -111,12 +306,7 @@ public class BinsonParser {
             case STRING1:
             case STRING2:
             case STRING4:
-            	fieldCount++;
-            	if (fieldCount > this.maxFieldCount) {
-            		throw new MaxSizeException("The Binson object being parsed has more fields " +
-            				"than the maxFieldCount setting of the parser (" +
-            				this.maxFieldCount + ").");
-            	}
+                checkFieldCount(++fieldCount);
                 currentFieldName = parseField(currentFieldName, type, object);
                 break;
             case END:
@@ -129,11 +319,77 @@ public class BinsonParser {
         return object;
     }
     
+    /**
+     * @throws MaxSizeException If fieldCount is larger than maxFieldCount.
+     */
+    private void checkFieldCount(int fieldCount) {
+        if (fieldCount > this.maxFieldCount) {
+            throw new MaxSizeException("The Binson object being parsed has more fields " +
+                    "than the maxFieldCount setting of the parser (" +
+                    this.maxFieldCount + ").");
+        }
+    }
+    
     /**
      * Parses a field and returns the field name.
      */
     private String parseField(String currentFieldName, int type, Binson dest) throws IOException {
-        String name = parseString(type);
+        String name = parseName(currentFieldName, type);
+        putValue(dest, name, readOne());
+        return name;
+    }
+    
+    /**
+     * Parses a value and puts it in 'dest' with the put method of its type, 
+     * so the type is not found again from the Java class of the value.
+     */
+    private void putValue(Binson dest, String name, int type) throws IOException {
+        switch (type) {
+        case BEGIN:
+            dest.put(name, parseFields());
+            break;
+        case BEGIN_ARRAY:
+            dest.put(name, parseElements());
+            break;
+        case FALSE:
+            dest.put(name, false);
+            break;
+        case TRUE:
+            dest.put(name, true);
+            break;
+        case DOUBLE:
+            dest.put(name, parseDouble());
+            break;
+        case INTEGER1:
+        case INTEGER2:
+        case INTEGER4:
+        case INTEGER8:
+            dest.put(name, readInteger(type));
+            break;
+        case STRING1:
+        case STRING2:
+        case STRING4:
+            dest.put(name, parseString(type));
+            break;
+        case BYTES1:
+        case BYTES2:
+        case BYTES4:
+            if (sliceBytes) {
+                dest.put(name, reader.readSlice(reader.readLength(type)));
+            } else {
+                dest.put(name, parseBytes(type));
+            }
+            break;
+        default:
+            throw new BinsonFormatException("Unexpected type: " + type + ".");
+        }
+    }
+    
+    /**
+     * Reads a field name and checks that it comes after the previous name.
+     */
+    private String parseName(String currentFieldName, int type) throws IOException {
+        String name = reader.readName(reader.readLength(type), namePool);
         
         if (currentFieldName != null) {
             if (BinsonFieldNameComparator.INSTANCE.compare(currentFieldName, name) >= 0) {
@@ -142,31 +398,159 @@ public class BinsonParser {
             }
         }
         
-        Object value = parseValue(false);
-        dest.putElement(name, value);
-        
         return name;
     }
     
-    private Object parseValue(boolean inArray) throws IOException {
+    /**
+     * Like parseFields(), but each field is checked against the schema rule
+     * before its value is parsed. Since fields come in Binson field order, 
+     * the schema fields before a field name that were not seen are missing.
+     */
+    private Binson parseCheckedFields(BinsonSchema.ObjectRule rule) throws IOException {
+        Binson object = new Binson(sortedFields);
+        String currentFieldName = null;
+        int fieldCount = 0;
+        int next = 0;    // the first schema field not yet passed
+        
+        while (true) {
+            int type = readOne();
+            
+            switch (type) {
+            case STRING1:
+            case STRING2:
+            case STRING4:
+                break;
+            case END:
+                rule.checkMissing(next, rule.names.length);
+                return object;
+            default:
+                throw new BinsonFormatException("Expected string/end, got " + type + ".");
+            }
+            
+            checkFieldCount(++fieldCount);
+            String name = parseName(currentFieldName, type);
+            int index = rule.indexOf(name);
+            
+            if (index < 0) {
+                putValue(object, name, readOne());
+            } else {
+                rule.checkMissing(next, index);
+                next = index + 1;
+                object.putElement(name, parseCheckedValue(name, readOne(), rule.rules[index]));
+            }
+            
+            currentFieldName = name;
+        }
+    }
+    
+    private Object parseCheckedValue(String fieldName, int type, BinsonSchema.ValueRule rule) 
+            throws IOException {
+        ValueType valueType = ValueType.fromType(type);
+        if (valueType == null) {
+            throw new BinsonFormatException("Unexpected type: " + type + ".");
+        }
+        rule.checkType(fieldName, valueType);
+        
+        if (rule.object != null) {
+            return parseCheckedFields(rule.object);
+        } else if (rule.element != null) {
+            BinsonArray array = new BinsonArray();
+            while ((type = readOne()) != END_ARRAY) {
+                array.addElementNoChecks(parseCheckedValue(fieldName, type, rule.element));
+            }
+            return array;
+        }
+        
+        return parseValue(type);
+    }
+    
+    /**
+     * Like parseFields(), but only the fields selected by 'projection' are 
+     * parsed, the others are skipped. Names are compared as UTF-8 bytes.
+     * Skipped names and values are checked like parsed ones, including UTF-8.
+     */
+    private Binson parseProjectedFields(Projection projection) throws IOException {
+        Binson object = new Binson(sortedFields);
+        int previousLength = -1;
+        int fieldCount = 0;
+        
+        if (skimmer == null) {
+            skimmer = new Skimmer(reader);
+            skimmer.setValidateUtf8(true);
+        }
+        skimmer.setMaxFieldCount(maxFieldCount);
+        
+        while (true) {
+            int type = readOne();
+            
+            switch (type) {
+            case STRING1:
+            case STRING2:
+            case STRING4:
+                break;
+            case END:
+                return object;
+            default:
+                throw new BinsonFormatException("Expected string/end, got " + type + ".");
+            }
+            
+            checkFieldCount(++fieldCount);
+            
+            int length = reader.readLength(type);
+            projection.ensureCapacity(length);
+            reader.read(projection.currentName, 0, length);
+            
+            if (previousLength >= 0 && ByteArrayComparator.compareRanges(
+                    projection.previousName, 0, previousLength, 
+                    projection.currentName, 0, length) >= 0) {
+                throw new BinsonFormatException("bad field order, " 
+                        + new String(projection.previousName, 0, previousLength, UTF_8) + ", " 
+                        + new String(projection.currentName, 0, length, UTF_8));
+            }
+            
+            int index = projection.find(length);
+            if (index < 0 && !Utf8.isValid(projection.currentName, 0, length)) {
+                throw new BinsonFormatException("Invalid UTF-8 in field name.");
+            }
+            projection.swapNames();
+            previousLength = length;
+            
+            int valueType = readOne();
+            if (index < 0) {
+                skimmer.skipValue(valueType);
+            } else {
+                object.putElement(projection.names[index], 
+                        parseProjectedValue(valueType, projection.children[index]));
+            }
+        }
+    }
+    
+    private Object parseProjectedValue(int type, Projection projection) throws IOException {
+        if (projection != null) {
+            if (type == BEGIN) {
+                return parseProjectedFields(projection);
+            } else if (type == BEGIN_ARRAY) {
+                BinsonArray array = new BinsonArray();
+                while ((type = readOne()) != END_ARRAY) {
+                    array.addElementNoChecks(parseProjectedValue(type, projection));
+                }
+                return array;
+            }
+        }
+        
+        return parseValue(type);
+    }
+    
+    private Object parseValue(int type) throws IOException {
         Object result;
-        int type = readOne();
         
         switch (type) {
         case BEGIN:
             result = parseFields();
             break;
         case BEGIN_ARRAY:
-            result = parseArray();
+            result = parseElements();
             break;
-        case END_ARRAY:
-            if (inArray) {
-                result = null;
-            } else {
-                throw new BinsonFormatException("Unexpected type: " + type + ".");
-            }
-            break;
-            
         case FALSE:
             result = Boolean.FALSE;
             break;
@@ -195,7 +579,7 @@ public class BinsonParser {
         case BYTES1:
         case BYTES2:
         case BYTES4:
-            result = parseBytes(type);
+            result = sliceBytes ? reader.readSlice(reader.readLength(type)) : parseBytes(type);
             break;
             
         default:
@@ -205,143 +589,84 @@ public class BinsonParser {
         return result;
     }
     
-    private BinsonArray parseArray() throws IOException {
+    /**
+     * Parses the elements of an array. Each element is added with the add method of 
+     * its type. Booleans, integers and doubles are added without boxing, so an 
+     * array of only such elements is stored in a primitive array.
+     */
+    private BinsonArray parseElements() throws IOException {
         BinsonArray array = new BinsonArray();
         
         while (true) {
-            Object value = parseValue(true);
-            if (value == null) {
+            int type = readOne();
+            
+            switch (type) {
+            case END_ARRAY:
+                return array;
+            case FALSE:
+                array.add(false);
+                break;
+            case TRUE:
+                array.add(true);
+                break;
+            case DOUBLE:
+                array.add(parseDouble());
+                break;
+            case INTEGER1:
+            case INTEGER2:
+            case INTEGER4:
+            case INTEGER8:
+                array.add(readInteger(type));
+                break;
+            case STRING1:
+            case STRING2:
+            case STRING4:
+                array.add(parseString(type));
                 break;
+            case BYTES1:
+            case BYTES2:
+            case BYTES4:
+                if (sliceBytes) {
+                    array.add(reader.readSlice(reader.readLength(type)));
+                } else {
+                    array.add(parseBytes(type));
+                }
+                break;
+            case BEGIN:
+                array.add(parseFields());
+                break;
+            case BEGIN_ARRAY:
+                array.add(parseElements());
+                break;
+            default:
+                throw new BinsonFormatException("Unexpected type: " + type + ".");
             }
-            
-            array.addElementNoChecks(value);
         }
-        
-        return array;
     }
     
     private String parseString(int type) throws IOException {
-        int stringLen = (int) readInteger(type);
-        if (stringLen < 0) throw new BinsonFormatException("Bad stringLen, " + stringLen + ".");
-        byte[] stringBytes = read(stringLen);
-        return Bytes.utf8ToString(stringBytes);
+        return reader.readString(reader.readLength(type));
     }
 
     private byte[] parseBytes(int type) throws IOException {
-        int bytesLen = (int) readInteger(type);
-        if (bytesLen < 0) throw new BinsonFormatException("Bad bytesLen, " + bytesLen + ".");
-        byte[] bytes = read(bytesLen);
-        return bytes;
+        return reader.readBytes(reader.readLength(type));
     }
     
     private double parseDouble() throws IOException {
-        byte[] b8 = read(8);
-        return Bytes.bytesToDoubleLE(b8, 0);
+        return reader.readDouble();
     }
     
     private long readInteger(int type) throws IOException {
-        int intType = type & Constants.INT_LENGTH_MASK;
-        long integer;
-        
-        switch (intType) {
-        case Constants.ONE_BYTE:
-            int oneByte = readOne();
-            if (oneByte > 127) {
-                oneByte -= 256;
-            }
-            integer = oneByte;
-            break;
-            
-        case Constants.TWO_BYTES:
-            byte[] b2 = read(2);
-            integer = Bytes.bytesToShortLE(b2, 0);
-            if (RangeUtil.isInOneByteRange(integer)) {
-                throw new BinsonFormatException("integer value " + integer 
-                		+ " should be stored in one byte, not two");
-            }
-            break;
-            
-        case Constants.FOUR_BYTES:
-            byte[] b4 = read(4);
-            integer = Bytes.bytesToIntLE(b4, 0);
-            if (RangeUtil.isInTwoByteRange(integer)) {
-                throw new BinsonFormatException("integer value " + integer 
-                		+ " should be stored in less than 4 bytes");
-            }
-            break;
-            
-        case Constants.EIGHT_BYTES:
-            byte[] b8 = read(8);
-            integer = Bytes.bytesToLongLE(b8, 0);
-            if (RangeUtil.isInFourByteRange(integer)) {
-                throw new BinsonFormatException("integer value " + integer 
-                		+ " should be stored in less than 8 bytes");
-            }
-            break;
-            
-        default:
-            throw new Error("never happens, intType: " + intType);
-        }
-        
-        return integer;
+        return reader.readInteger(type);
     }
     
     /**
-     * Reads one byte from the input stream.
+     * Reads one byte from the input.
      * 
      * @return An integer with the byte value in the range 0..255. 
      * @throws IOException
      */
     private int readOne() throws IOException {
-        byte[] buffer = read(1);
-        return Bytes.unsigned(buffer[0]);
-    }
-    
-    /**
-     * Allocates a buffer (the result), reads data to it from the
-     * input stream and returns the result.
-     * 
-     * @throws IOException 
-     * @throws BinsonFormatException
-     *          If the maximum Binson object size has been exceeded.
-     */
-    private byte[] read(int length) throws IOException {
-        return readFully(in, length);
-    }
-    
-    /**
-     * Blocks until 'length' bytes have been read to 'dest'.
-     * 
-     * @throws MaxSizeException
-     */
-    private byte[] readFully(InputStream in, int length) 
-            throws IOException {
-        // Copied from https://github.com/franslundberg/java-cut/blob/master/src/cut/Io.java
-        // 2018-01-08.
-        
-        streamOffset += length;
-        if (streamOffset >= maxSize) {
-            throw new MaxSizeException("Binson object being parsed exceeds max "
-                    + "byte size (" + maxSize + "),");
-        }
-        
-        byte[] dest = new byte[length];
-        int offset = 0;
-        int len = length;
-        
-        while (true) {
-            int count = in.read(dest, offset, len);
-            if (count == -1) {
-                throw new EOFException("EOF reached");
-            }
-            
-            offset += count;
-            len -= count;
-            if (len == 0) {
-                break;
-            }
-        }
-        
-        return dest;
+        return reader.readOne();
     }
 }
@@ -0,0 +1,260 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * A non-blocking parser that is fed bytes in chunks of any size, for example
+ * the ByteBuffers read from a non-blocking SocketChannel. The parser keeps its
+ * state between calls and returns each Binson object as soon as its last byte
+ * has been received.
+ *
+ * <pre> BinsonPushParser parser = new BinsonPushParser();
+ * ...
+ * channel.read(buffer);
+ * buffer.flip();
+ * Binson message;
+ * while ((message = parser.parse(buffer)) != null) {
+ *     handle(message);
+ * }
+ * buffer.compact();
+ * </pre>
+ *
+ * <p>The bytes of the current object are collected in an internal array while
+ * a small state machine follows the tokens to find the end of the object.
+ * Type bytes and lengths are checked as they arrive, and no more than maxSize
+ * bytes are ever buffered. The complete object is then parsed with BinsonParser,
+ * which performs all other checks.</p>
+ *
+ * <p>If an exception is thrown, call reset() before parsing more bytes.
+ * An instance is not thread-safe.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonPushParser {
+    /** Expecting a type byte. */
+    private static final int TYPE = 0;
+    /** Expecting the bytes of an integer or a double. */
+    private static final int NUMBER = 1;
+    /** Expecting the bytes of the length of a string or bytes value. */
+    private static final int LENGTH = 2;
+    /** Expecting the content of a string or bytes value. */
+    private static final int CONTENT = 3;
+
+    private byte[] message = new byte[256];
+    private int size = 0;
+    private int state = TYPE;
+    private int needed = 0;
+    private int lengthSize = 0;
+    private int depth = 0;
+    private int maxSize = 40*1000000;
+    private int maxFieldCount = 1000;
+
+    /**
+     * Sets the maximum byte size of an object. Default is 40e6 bytes.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("bad maxSize, " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of fields of an object. Default is 1000.
+     */
+    public void setMaxFieldCount(int maxFieldCount) {
+        if (maxFieldCount <= 0) {
+            throw new IllegalArgumentException("bad maxFieldCount, " + maxFieldCount);
+        }
+        this.maxFieldCount = maxFieldCount;
+    }
+
+    public int getMaxFieldCount() {
+        return maxFieldCount;
+    }
+
+    /**
+     * Returns the number of bytes received of the object not yet complete.
+     */
+    public int getBufferedSize() {
+        return size;
+    }
+
+    /**
+     * Discards the bytes received of the current object and starts over.
+     */
+    public void reset() {
+        size = 0;
+        state = TYPE;
+        needed = 0;
+        depth = 0;
+    }
+
+    /**
+     * Reads bytes from the remaining bytes of the buffer until an object is
+     * complete or the buffer has no more bytes. Returns the object, or null if more
+     * bytes are needed. When an object is returned, the position of the buffer is
+     * right after the object; the bytes after it are left for the next call.
+     *
+     * @throws BinsonFormatException If the bytes are not valid Binson.
+     */
+    public Binson parse(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("buffer == null not allowed");
+
+        while (buffer.hasRemaining()) {
+            if (state == TYPE) {
+                int type = buffer.get() & 0xff;
+                append(type);
+                if (onType(type)) {
+                    return complete();
+                }
+            } else {
+                int n = Math.min(needed, buffer.remaining());
+                ensureCapacity(n);
+                buffer.get(message, size, n);
+                size += n;
+                needed -= n;
+
+                if (needed == 0) {
+                    onBytesComplete();
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Handles a type byte. Returns true if the object is complete.
+     */
+    private boolean onType(int type) {
+        if (size == 1 && type != BEGIN) {
+            throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
+        }
+
+        switch (type) {
+        case BEGIN:
+        case BEGIN_ARRAY:
+            depth++;
+            break;
+
+        case END:
+        case END_ARRAY:
+            depth--;
+            return depth == 0;
+
+        case TRUE:
+        case FALSE:
+            break;
+
+        case DOUBLE:
+            expect(NUMBER, 8);
+            break;
+
+        case INTEGER1:
+        case INTEGER2:
+        case INTEGER4:
+        case INTEGER8:
+            expect(NUMBER, 1 << (type & INT_LENGTH_MASK));
+            break;
+
+        case STRING1:
+        case STRING2:
+        case STRING4:
+        case BYTES1:
+        case BYTES2:
+        case BYTES4:
+            lengthSize = 1 << (type & INT_LENGTH_MASK);
+            expect(LENGTH, lengthSize);
+            break;
+
+        default:
+            throw new BinsonFormatException("Unexpected type: " + type + ".");
+        }
+
+        return false;
+    }
+
+    private void onBytesComplete() {
+        if (state == LENGTH) {
+            int length = readLength();
+            if (length < 0) {
+                throw new BinsonFormatException("Bad length, " + length + ".");
+            }
+            if (length > 0) {
+                expect(CONTENT, length);
+                return;
+            }
+        }
+
+        state = TYPE;
+    }
+
+    /**
+     * Returns the length that was just received; the last lengthSize bytes.
+     */
+    private int readLength() {
+        int start = size - lengthSize;
+
+        switch (lengthSize) {
+        case 1:
+            return message[start];
+        case 2:
+            return Bytes.bytesToShortLE(message, start);
+        default:
+            return Bytes.bytesToIntLE(message, start);
+        }
+    }
+
+    private void expect(int state, int byteCount) {
+        checkSize(byteCount);
+        this.state = state;
+        this.needed = byteCount;
+    }
+
+    private Binson complete() {
+        BinsonParser parser = new BinsonParser(message, 0, size);
+        parser.setMaxSize(maxSize);
+        parser.setMaxFieldCount(maxFieldCount);
+        reset();
+        try {
+            return parser.parse();
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+    }
+
+    private void append(int b) {
+        checkSize(1);
+        ensureCapacity(1);
+        message[size++] = (byte) b;
+    }
+
+    /**
+     * @throws MaxSizeException If the object would get larger than maxSize.
+     */
+    private void checkSize(int byteCount) {
+        if ((long) size + byteCount >= maxSize) {
+            throw new MaxSizeException("Binson object being parsed exceeds max "
+                    + "byte size (" + maxSize + "),");
+        }
+    }
+
+    private void ensureCapacity(int byteCount) {
+        int required = size + byteCount;
+        if (required > message.length) {
+            message = Arrays.copyOf(message, Math.max(required, 2 * message.length));
+        }
+    }
+}
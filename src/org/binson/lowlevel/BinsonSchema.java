@@ -0,0 +1,214 @@
+package org.binson.lowlevel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.binson.Binson;
+import org.binson.BinsonArray;
+import org.binson.BinsonFormatException;
+
+/**
+ * A Binson schema (BINSON-SCHEMA, see binson.org) compiled once to a form that
+ * is fast to validate against. The rules are the same as for
+ * Binson.validate(Binson schema): each field of the schema must exist
+ * in the validated object, with the same type, unless "optional" is true in
+ * the field's "-info" object. Objects are validated recursively, and if a schema array
+ * has exactly one element, all elements of the validated array are validated
+ * against it. Fields that are not in the schema are allowed.
+ *
+ * <pre> BinsonSchema schema = BinsonSchema.compile(schemaObject);
+ * schema.validate(obj);
+ * </pre>
+ *
+ * <p>A schema can also be set on a BinsonParser, see BinsonParser.setSchema().
+ * The parser then fails at the first byte that breaks the schema instead of after
+ * the whole object has been created.</p>
+ *
+ * <p>An instance is immutable and can be shared between threads.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonSchema {
+    private final ObjectRule root;
+
+    private BinsonSchema(ObjectRule root) {
+        this.root = root;
+    }
+
+    /**
+     * Compiles a schema. The schema object is not referenced afterwards.
+     */
+    public static BinsonSchema compile(Binson schema) {
+        if (schema == null) throw new IllegalArgumentException("schema == null not allowed");
+        return new BinsonSchema(new ObjectRule(schema));
+    }
+
+    /**
+     * Validates an object.
+     *
+     * @throws BinsonFormatException If the object does not follow the schema.
+     */
+    public void validate(Binson obj) {
+        if (obj == null) throw new IllegalArgumentException("obj == null not allowed");
+        root.validate(obj);
+    }
+
+    /**
+     * Returns true if the object follows the schema.
+     */
+    public boolean isValid(Binson obj) {
+        try {
+            validate(obj);
+            return true;
+        } catch (BinsonFormatException e) {
+            return false;
+        }
+    }
+
+    ObjectRule root() {
+        return root;
+    }
+
+    /**
+     * The rules of the fields of an object. Field names are in Binson field order.
+     */
+    static final class ObjectRule {
+        final String[] names;
+        final ValueRule[] rules;
+        final boolean[] optional;
+        private final Map<String, Integer> indexes;
+
+        private ObjectRule(Binson schema) {
+            Map<String, Object> fields = new TreeMap<String, Object>(BinsonFieldNameComparator.INSTANCE);
+            for (String name : schema.keySet()) {
+                if (!name.endsWith("-info")) {
+                    fields.put(name, schema.getValue(name));
+                }
+            }
+
+            int size = fields.size();
+            this.names = new String[size];
+            this.rules = new ValueRule[size];
+            this.optional = new boolean[size];
+            this.indexes = new HashMap<String, Integer>(2 * size);
+
+            int i = 0;
+            for (Map.Entry<String, Object> entry : fields.entrySet()) {
+                String name = entry.getKey();
+                String infoName = name + "-info";
+                Binson info = schema.hasObject(infoName) ? schema.getObject(infoName) : null;
+
+                names[i] = name;
+                rules[i] = new ValueRule(entry.getValue());
+                optional[i] = info != null && info.hasBoolean("optional") && info.getBoolean("optional");
+                indexes.put(name, i);
+                i++;
+            }
+        }
+
+        /**
+         * Returns the index of a field, or -1 if the schema does not have the field.
+         */
+        int indexOf(String name) {
+            Integer index = indexes.get(name);
+            return index == null ? -1 : index.intValue();
+        }
+
+        /**
+         * Checks that fields [from, to) are optional; they are missing.
+         */
+        void checkMissing(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!optional[i]) {
+                    throw new BinsonFormatException("missing mandatory field '" + names[i] + "'");
+                }
+            }
+        }
+
+        void validate(Binson obj) {
+            for (int i = 0; i < names.length; i++) {
+                Object value = obj.getValue(names[i]);
+                if (value == null) {
+                    checkMissing(i, i + 1);
+                } else {
+                    rules[i].validate(names[i], value);
+                }
+            }
+        }
+    }
+
+    /**
+     * The rule of a field value or of the elements of an array.
+     */
+    static final class ValueRule {
+        final ValueType type;
+
+        /** Rule of the fields, if type == OBJECT. */
+        final ObjectRule object;
+
+        /** Rule of the elements, if type == ARRAY and the schema has one element. */
+        final ValueRule element;
+
+        private ValueRule(Object schemaValue) {
+            this.type = ValueType.fromObject(schemaValue);
+            this.object = type == ValueType.OBJECT ? new ObjectRule((Binson) schemaValue) : null;
+
+            ValueRule elementRule = null;
+            if (type == ValueType.ARRAY) {
+                BinsonArray array = (BinsonArray) schemaValue;
+                if (array.size() == 1) {
+                    elementRule = new ValueRule(array.getElement(0));
+                }
+            }
+            this.element = elementRule;
+        }
+
+        /**
+         * @throws BinsonFormatException If 'actual' is not the type of this rule.
+         */
+        void checkType(String fieldName, ValueType actual) {
+            if (actual != type) {
+                throw new BinsonFormatException("bad field type of field '"
+                        + fieldName + "' expected " + javaName(type)
+                        + ", got " + javaName(actual));
+            }
+        }
+
+        void validate(String fieldName, Object value) {
+            validate(fieldName, ValueType.fromObject(value), value);
+        }
+
+        void validate(String fieldName, ValueType type, Object value) {
+            checkType(fieldName, type);
+
+            if (object != null) {
+                object.validate((Binson) value);
+            } else if (element != null) {
+                BinsonArray array = (BinsonArray) value;
+                for (int i = 0; i < array.size(); i++) {
+                    element.validate(fieldName, array.getType(i), array.getElement(i));
+                }
+            }
+        }
+
+        private static String javaName(ValueType type) {
+            switch (type) {
+            case BOOLEAN:
+                return "Boolean";
+            case INTEGER:
+                return "Long";
+            case DOUBLE:
+                return "Double";
+            case STRING:
+                return "String";
+            case BYTES:
+                return "byte[]";
+            case ARRAY:
+                return "BinsonArray";
+            default:
+                return "Binson";
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.binson.lowlevel;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.binson.Binson;
+import org.binson.BinsonFormatException;
+
+/**
+ * Reads a sequence of Binson objects stored one after the other in a stream,
+ * for example a log file or the messages of a long-lived TCP connection.
+ *
+ * <p>The maxSize and maxFieldCount limits apply to each object, not to the
+ * stream as a whole. The parser, the input buffer and other internal state are
+ * reused for all objects. getMessageOffset() and getOffset() give the position
+ * of the objects in the stream.</p>
+ *
+ * <pre> BinsonStreamReader reader = new BinsonStreamReader(socket.getInputStream());
+ * Binson message;
+ * while ((message = reader.read()) != null) {
+ *     handle(message);
+ * }
+ * </pre>
+ *
+ * <p>The stream is read through a buffer, so bytes after the last object
+ * read may have been consumed from the underlying stream. If an object is not
+ * valid, an exception is thrown and the reader cannot be used further.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonStreamReader implements Closeable {
+    private final InputStream in;
+    private final ByteReader reader;
+    private final BinsonParser parser;
+    private Skimmer skimmer;
+    private long offset = 0;
+    private long messageOffset = -1;
+    private long messageCount = 0;
+
+    /**
+     * Creates a reader of the given stream using an 8 kB buffer.
+     */
+    public BinsonStreamReader(InputStream in) {
+        this(in, 8192);
+    }
+
+    public BinsonStreamReader(InputStream in, int bufferSize) {
+        if (in == null) throw new IllegalArgumentException("in == null not allowed");
+        this.in = new BufferedInputStream(in, bufferSize);
+        this.reader = new ByteReader(this.in);
+        this.parser = new BinsonParser(reader);
+    }
+
+    /**
+     * Creates a reader of the given channel using an 8 kB buffer.
+     * The channel must be in blocking mode.
+     */
+    public BinsonStreamReader(ReadableByteChannel channel) {
+        this(Channels.newInputStream(checkChannel(channel)));
+    }
+
+    private static ReadableByteChannel checkChannel(ReadableByteChannel channel) {
+        if (channel == null) throw new IllegalArgumentException("channel == null not allowed");
+        return channel;
+    }
+
+    /**
+     * Sets the maximum byte size of each object. Default is 40e6 bytes.
+     */
+    public void setMaxSize(int maxSize) {
+        parser.setMaxSize(maxSize);
+    }
+
+    public int getMaxSize() {
+        return parser.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of fields of each object (including nested objects).
+     * Default is 1000.
+     */
+    public void setMaxFieldCount(int maxFieldCount) {
+        parser.setMaxFieldCount(maxFieldCount);
+    }
+
+    public int getMaxFieldCount() {
+        return parser.getMaxFieldCount();
+    }
+
+    /**
+     * Returns the parser used by read(). It can be used to change other settings,
+     * see for example BinsonParser.setProjection().
+     */
+    public BinsonParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Reads the next object. Returns null if the end of the stream is reached
+     * before the first byte of an object.
+     *
+     * @throws BinsonFormatException If the object is not valid.
+     * @throws java.io.EOFException If the end of the stream is reached inside an object.
+     */
+    public Binson read() throws IOException {
+        if (!startMessage()) {
+            return null;
+        }
+
+        Binson result = parser.parse();
+        endMessage();
+        return result;
+    }
+
+    /**
+     * Skips the next object without creating it. The object is still checked,
+     * as by read(). Returns false if the end of the stream is reached before the
+     * first byte of an object.
+     */
+    public boolean skip() throws IOException {
+        if (!startMessage()) {
+            return false;
+        }
+
+        if (skimmer == null) {
+            skimmer = new Skimmer(reader);
+            skimmer.setValidateUtf8(true);
+        }
+        skimmer.setMaxFieldCount(parser.getMaxFieldCount());
+
+        int type = reader.readOne();
+        if (type != Constants.BEGIN) {
+            throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
+        }
+        skimmer.skipValue(type);
+
+        endMessage();
+        return true;
+    }
+
+    /**
+     * Returns the stream position of the first byte of the last object read
+     * or skipped, or -1 if no object has been read.
+     */
+    public long getMessageOffset() {
+        return messageOffset;
+    }
+
+    /**
+     * Returns the stream position right after the last object read or skipped.
+     * This is where the next object starts.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of objects read or skipped.
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Closes the underlying stream.
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Returns false if the end of the stream has been reached.
+     */
+    private boolean startMessage() throws IOException {
+        in.mark(1);
+        if (in.read() == -1) {
+            return false;
+        }
+        in.reset();
+
+        reader.resetOffset();
+        return true;
+    }
+
+    private void endMessage() {
+        messageOffset = offset;
+        offset += reader.getOffset();
+        messageCount++;
+    }
+}
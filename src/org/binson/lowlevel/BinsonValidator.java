@@ -0,0 +1,178 @@
+package org.binson.lowlevel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.binson.BinsonFormatException;
+
+/**
+ * Checks that bytes are a valid Binson object without creating it.
+ * All rules that BinsonParser enforces are checked: known type bytes, integers
+ * and lengths stored with as few bytes as possible, field names in strictly
+ * increasing Binson field order, maxSize and maxFieldCount. In addition, strings
+ * and field names must be valid UTF-8 (this can be turned off), and the nesting
+ * depth is limited (maxDepth).
+ *
+ * <p>The validator is meant for untrusted input, for example to reject
+ * malformed messages as early as possible. No memory is allocated per value;
+ * the internal state is reused for all messages validated by an instance.
+ * An instance is not thread-safe.</p>
+ *
+ * <pre> BinsonValidator validator = new BinsonValidator();
+ * validator.setMaxSize(64*1024);
+ * ...
+ * int length = validator.validate(bytes, 0, bytes.length);
+ * </pre>
+ *
+ * <p>The length returned is the exact length of the object, so the
+ * validator can also be used to find the message boundaries in a stream of
+ * objects, see messageLength().</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class BinsonValidator {
+    private final ByteReader reader;
+    private final Skimmer skimmer;
+
+    public BinsonValidator() {
+        this.reader = new ByteReader(ByteBuffer.allocate(0));
+        this.skimmer = new Skimmer(reader);
+        this.skimmer.setValidateUtf8(true);
+    }
+
+    /**
+     * Sets the maximum byte size of an object. Default is 40e6 bytes.
+     */
+    public void setMaxSize(int maxSize) {
+        reader.setMaxSize(maxSize);
+    }
+
+    public int getMaxSize() {
+        return reader.getMaxSize();
+    }
+
+    /**
+     * Sets the maximum number of fields of an object. Default is 1000.
+     */
+    public void setMaxFieldCount(int maxFieldCount) {
+        skimmer.setMaxFieldCount(maxFieldCount);
+    }
+
+    public int getMaxFieldCount() {
+        return skimmer.getMaxFieldCount();
+    }
+
+    /**
+     * Sets the maximum nesting depth of objects and arrays. Default is 1000.
+     * The top-level object has depth 1.
+     */
+    public void setMaxDepth(int maxDepth) {
+        skimmer.setMaxDepth(maxDepth);
+    }
+
+    public int getMaxDepth() {
+        return skimmer.getMaxDepth();
+    }
+
+    /**
+     * If set to true (the default), strings and field names must be valid UTF-8.
+     */
+    public void setValidateUtf8(boolean validateUtf8) {
+        skimmer.setValidateUtf8(validateUtf8);
+    }
+
+    public boolean getValidateUtf8() {
+        return skimmer.getValidateUtf8();
+    }
+
+    /**
+     * Returns true if the bytes are exactly one valid Binson object.
+     */
+    public boolean isValid(byte[] bytes) {
+        try {
+            return validate(bytes, 0, bytes.length) == bytes.length;
+        } catch (BinsonFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Validates the object that starts at 'offset' and returns its length.
+     * Bytes after the object, within 'length', are not read.
+     *
+     * @throws BinsonFormatException If the object is not valid or not complete.
+     * @throws MaxSizeException If maxSize, maxFieldCount or maxDepth is exceeded.
+     */
+    public int validate(byte[] bytes, int offset, int length) {
+        return validate(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Validates the object that starts at the position of the buffer and returns
+     * its length. The position of the buffer is not changed.
+     *
+     * @throws BinsonFormatException If the object is not valid or not complete.
+     * @throws MaxSizeException If maxSize, maxFieldCount or maxDepth is exceeded.
+     */
+    public int validate(ByteBuffer buffer) {
+        int length = messageLength(buffer);
+        if (length == -1) {
+            throw new BinsonFormatException("Incomplete Binson object.");
+        }
+        return length;
+    }
+
+    /**
+     * Validates an object read from the stream and returns its length.
+     * Exactly the bytes of the object are read.
+     *
+     * @throws java.io.EOFException If the stream ends before the object.
+     * @throws BinsonFormatException If the object is not valid.
+     * @throws MaxSizeException If maxSize, maxFieldCount or maxDepth is exceeded.
+     */
+    public int validate(InputStream in) throws IOException {
+        ByteReader streamReader = new ByteReader(in);
+        streamReader.setMaxSize(reader.getMaxSize());
+        Skimmer streamSkimmer = new Skimmer(streamReader);
+        streamSkimmer.setMaxFieldCount(skimmer.getMaxFieldCount());
+        streamSkimmer.setValidateUtf8(skimmer.getValidateUtf8());
+        streamSkimmer.setMaxDepth(skimmer.getMaxDepth());
+
+        skipObject(streamReader, streamSkimmer);
+        return (int) streamReader.getOffset();
+    }
+
+    /**
+     * Returns the length of the object that starts at the position of the buffer,
+     * or -1 if the buffer ends before the object does. Used to find message
+     * boundaries in received bytes: once the length is known, the message is
+     * known to be complete and valid. The position of the buffer is not changed.
+     *
+     * @throws BinsonFormatException If the bytes are not valid, whether complete or not.
+     * @throws MaxSizeException If maxSize, maxFieldCount or maxDepth is exceeded.
+     */
+    public int messageLength(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("buffer == null not allowed");
+        reader.reset(buffer);
+
+        try {
+            skipObject(reader, skimmer);
+        } catch (EOFException e) {
+            return -1;
+        } catch (IOException e) {
+            throw new Error("never happens", e);
+        }
+
+        return (int) reader.getOffset();
+    }
+
+    private static void skipObject(ByteReader reader, Skimmer skimmer) throws IOException {
+        int type = reader.readOne();
+        if (type != Constants.BEGIN) {
+            throw new BinsonFormatException("Expected BEGIN, got " + type + ".");
+        }
+        skimmer.skipValue(type);
+    }
+}
@@ -32,4 +32,22 @@ public class ByteArrayComparator implements Comparator<byte[]> {
         
         return arr1.length == arr2.length ? 0 : (firstShorter ? -1 : +1);
     }
+    
+    /**
+     * Compares 'len1' bytes of 'arr1' starting at 'off1' with 'len2' bytes of
+     * 'arr2' starting at 'off2', in lexicographical order. Bytes are unsigned.
+     */
+    public static final int compareRanges(byte[] arr1, int off1, int len1, 
+            byte[] arr2, int off2, int len2) {
+        final int minLength = len1 < len2 ? len1 : len2;
+        
+        for (int i = 0; i < minLength; i++) {
+            int diff = (arr1[off1 + i] & 0xff) - (arr2[off2 + i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        
+        return len1 - len2;
+    }
 }
@@ -0,0 +1,453 @@
+package org.binson.lowlevel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.binson.BinsonFormatException;
+
+/**
+ * Reads the low-level parts of Binson bytes (type bytes, integers,
+ * doubles, strings, bytes) from an InputStream or from a ByteBuffer.
+ * An object of this class also keeps track of the number of bytes read
+ * and enforces the maxSize limit.
+ *
+ * <p>When reading from a ByteBuffer (or a byte array) integers, doubles and
+ * lengths are decoded in place; only the resulting String and byte[] values
+ * are allocated. When reading from an InputStream, a small internal buffer
+ * is reused for integers and doubles.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class ByteReader {
+    private final InputStream in;
+    private ByteBuffer buffer;
+    private final byte[] scratch = new byte[8];
+    private byte[] nameBuffer;
+    private byte[] utf8Buffer;
+    private int maxSize = 40*1000000;
+    private long offset = 0;
+
+    /**
+     * Creates a reader that reads from an InputStream.
+     * Exactly the bytes needed are read from the stream, one read at a time,
+     * so no bytes after the end of a Binson object are consumed.
+     */
+    public ByteReader(InputStream in) {
+        if (in == null) throw new IllegalArgumentException("in == null not allowed");
+        this.in = in;
+        this.buffer = null;
+    }
+
+    /**
+     * Creates a reader that reads the remaining bytes of the given buffer; from its
+     * position to its limit. The reader uses its own view of the buffer,
+     * the position of the provided buffer is not changed.
+     */
+    public ByteReader(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("buffer == null not allowed");
+        this.in = null;
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Creates a reader that reads 'length' bytes of 'bytes' starting at 'offset'.
+     * The array is not copied.
+     */
+    public ByteReader(byte[] bytes, int offset, int length) {
+        this(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * Makes this reader read the remaining bytes of another buffer, as if
+     * a new reader was created. Used to reuse a reader (and the objects that 
+     * use it) for many messages. Only for readers created from a buffer.
+     */
+    void reset(ByteBuffer buffer) {
+        if (in != null) {
+            throw new IllegalStateException("reader of an InputStream");
+        }
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.offset = 0;
+    }
+
+    /**
+     * Sets the maximum number of bytes that can be read by this reader.
+     * Default is 40e6 bytes.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("bad maxSize, " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the number of bytes read to zero. The maxSize limit then
+     * applies to the bytes read from now on. Used when reading 
+     * many objects with one reader.
+     */
+    public void resetOffset() {
+        offset = 0;
+    }
+
+    /**
+     * Reads one byte.
+     *
+     * @return An integer with the byte value in the range 0..255.
+     */
+    public int readOne() throws IOException {
+        count(1);
+
+        if (buffer != null) {
+            requireRemaining(1);
+            return buffer.get() & 0xff;
+        }
+
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("EOF reached");
+        }
+        return b;
+    }
+
+    /**
+     * Reads an integer or a length stored after a type byte.
+     * The two last bits of 'type' give the number of bytes used.
+     *
+     * @throws BinsonFormatException
+     *      If the integer is not stored with as few bytes as possible.
+     */
+    public long readInteger(int type) throws IOException {
+        int intType = type & Constants.INT_LENGTH_MASK;
+        long integer;
+
+        switch (intType) {
+        case Constants.ONE_BYTE:
+            integer = (byte) readOne();
+            break;
+
+        case Constants.TWO_BYTES:
+            integer = readShort();
+            if (RangeUtil.isInOneByteRange(integer)) {
+                throw new BinsonFormatException("integer value " + integer
+                        + " should be stored in one byte, not two");
+            }
+            break;
+
+        case Constants.FOUR_BYTES:
+            integer = readInt();
+            if (RangeUtil.isInTwoByteRange(integer)) {
+                throw new BinsonFormatException("integer value " + integer
+                        + " should be stored in less than 4 bytes");
+            }
+            break;
+
+        case Constants.EIGHT_BYTES:
+            integer = readLong();
+            if (RangeUtil.isInFourByteRange(integer)) {
+                throw new BinsonFormatException("integer value " + integer
+                        + " should be stored in less than 8 bytes");
+            }
+            break;
+
+        default:
+            throw new Error("never happens, intType: " + intType);
+        }
+
+        return integer;
+    }
+
+    /**
+     * Reads the length of a string or bytes value. The length is checked before
+     * any memory is allocated for the content: the content must fit within maxSize 
+     * and, when reading from a buffer, within the remaining bytes of the buffer.
+     *
+     * @throws BinsonFormatException If the length is negative or larger than 2^31-1.
+     * @throws MaxSizeException If the content would exceed maxSize.
+     * @throws EOFException If the buffer ends before the content.
+     */
+    public int readLength(int type) throws IOException {
+        long length = readInteger(type);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new BinsonFormatException("Bad length, " + length + ".");
+        }
+
+        checkMaxSize(offset + length);
+        if (buffer != null) {
+            requireRemaining((int) length);
+        }
+        return (int) length;
+    }
+
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads 'length' bytes and decodes them as a UTF-8 string, see Utf8.decode().
+     * 
+     * @throws BinsonFormatException If the bytes are not valid UTF-8.
+     */
+    public String readString(int length) throws IOException {
+        count(length);
+
+        if (buffer != null) {
+            requireRemaining(length);
+            int position = buffer.position();
+            String result = Utf8.decode(buffer, position, length);
+            buffer.position(position + length);
+            return result;
+        }
+
+        byte[] bytes;
+        if (length <= 256) {
+            if (utf8Buffer == null) {
+                utf8Buffer = new byte[256];
+            }
+            bytes = utf8Buffer;
+        } else {
+            bytes = new byte[length];
+        }
+        
+        readFully(bytes, 0, length);
+        return Utf8.decode(bytes, 0, length);
+    }
+
+    /**
+     * Reads a field name of 'length' bytes. If 'pool' is not null, the name
+     * is looked up in the pool; no memory is allocated for pooled names.
+     */
+    public String readName(int length, FieldNamePool pool) throws IOException {
+        if (pool == null || length > FieldNamePool.MAX_NAME_LENGTH) {
+            return readString(length);
+        }
+
+        count(length);
+
+        if (buffer != null) {
+            requireRemaining(length);
+            if (buffer.hasArray()) {
+                int position = buffer.position();
+                buffer.position(position + length);
+                return pool.toName(buffer.array(), buffer.arrayOffset() + position, length);
+            }
+        }
+
+        if (nameBuffer == null) {
+            nameBuffer = new byte[FieldNamePool.MAX_NAME_LENGTH];
+        }
+
+        if (buffer != null) {
+            buffer.get(nameBuffer, 0, length);
+        } else {
+            readFully(nameBuffer, 0, length);
+        }
+
+        return pool.toName(nameBuffer, 0, length);
+    }
+
+    /**
+     * Reads 'length' bytes to a newly allocated byte array.
+     */
+    public byte[] readBytes(int length) throws IOException {
+        count(length);
+        byte[] bytes = new byte[length];
+
+        if (buffer != null) {
+            requireRemaining(length);
+            buffer.get(bytes);
+        } else {
+            readFully(bytes, 0, length);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Reads 'length' bytes and returns them as a read-only ByteBuffer.
+     * When reading from a buffer, the result is a slice of it; no bytes are copied. 
+     * When reading from a stream, the bytes are read to a new array.
+     */
+    public ByteBuffer readSlice(int length) throws IOException {
+        if (buffer == null) {
+            return ByteBuffer.wrap(readBytes(length)).asReadOnlyBuffer();
+        }
+
+        count(length);
+        requireRemaining(length);
+        
+        int position = buffer.position();
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(position + length);
+        buffer.position(position + length);
+        return slice.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads exactly 'length' bytes to 'dest' starting at index 'offset'.
+     */
+    public void read(byte[] dest, int offset, int length) throws IOException {
+        count(length);
+
+        if (buffer != null) {
+            requireRemaining(length);
+            buffer.get(dest, offset, length);
+        } else {
+            readFully(dest, offset, length);
+        }
+    }
+
+    /**
+     * Skips 'length' bytes without allocating memory for them.
+     * The skipped bytes are counted as read.
+     */
+    public void skip(int length) throws IOException {
+        count(length);
+
+        if (buffer != null) {
+            requireRemaining(length);
+            buffer.position(buffer.position() + length);
+            return;
+        }
+
+        long len = length;
+        while (len > 0) {
+            long n = in.skip(len);
+            if (n <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("EOF reached");
+                }
+                n = 1;
+            }
+            len -= n;
+        }
+    }
+
+    /**
+     * Skips 'length' bytes and checks that they are valid UTF-8, see Utf8.
+     * No memory is allocated, except for a small internal buffer that is 
+     * used for all strings when reading from an InputStream.
+     *
+     * @throws BinsonFormatException If the bytes are not valid UTF-8.
+     */
+    public void skipUtf8(int length) throws IOException {
+        count(length);
+        int state;
+
+        if (buffer != null) {
+            requireRemaining(length);
+            int position = buffer.position();
+            state = Utf8.validate(Utf8.ACCEPT, buffer, position, length);
+            buffer.position(position + length);
+        } else {
+            if (utf8Buffer == null) {
+                utf8Buffer = new byte[256];
+            }
+
+            state = Utf8.ACCEPT;
+            int left = length;
+            while (left > 0) {
+                int n = Math.min(left, utf8Buffer.length);
+                readFully(utf8Buffer, 0, n);
+                state = Utf8.validate(state, utf8Buffer, 0, n);
+                left -= n;
+            }
+        }
+
+        if (state != Utf8.ACCEPT) {
+            throw new BinsonFormatException("Invalid UTF-8 in string.");
+        }
+    }
+
+    private short readShort() throws IOException {
+        count(2);
+        if (buffer != null) {
+            requireRemaining(2);
+            return buffer.getShort();
+        }
+
+        readFully(scratch, 0, 2);
+        return Bytes.bytesToShortLE(scratch, 0);
+    }
+
+    private int readInt() throws IOException {
+        count(4);
+        if (buffer != null) {
+            requireRemaining(4);
+            return buffer.getInt();
+        }
+
+        readFully(scratch, 0, 4);
+        return Bytes.bytesToIntLE(scratch, 0);
+    }
+
+    private long readLong() throws IOException {
+        count(8);
+        if (buffer != null) {
+            requireRemaining(8);
+            return buffer.getLong();
+        }
+
+        readFully(scratch, 0, 8);
+        return Bytes.bytesToLongLE(scratch, 0);
+    }
+
+    /**
+     * Counts bytes about to be read.
+     *
+     * @throws MaxSizeException
+     *      If the maximum Binson object size would be exceeded.
+     */
+    private void count(int length) {
+        offset += length;
+        checkMaxSize(offset);
+    }
+
+    private void checkMaxSize(long newOffset) {
+        if (newOffset >= maxSize) {
+            throw new MaxSizeException("Binson object being parsed exceeds max "
+                    + "byte size (" + maxSize + "),");
+        }
+    }
+
+    private void requireRemaining(int length) throws EOFException {
+        if (buffer.remaining() < length) {
+            throw new EOFException("EOF reached");
+        }
+    }
+
+    /**
+     * Blocks until 'length' bytes have been read to 'dest', starting at 'destOffset'.
+     */
+    private void readFully(byte[] dest, int destOffset, int length) throws IOException {
+        // Copied from https://github.com/franslundberg/java-cut/blob/master/src/cut/Io.java
+        // 2018-01-08.
+
+        int offset = destOffset;
+        int len = length;
+
+        while (len > 0) {
+            int count = in.read(dest, offset, len);
+            if (count == -1) {
+                throw new EOFException("EOF reached");
+            }
+
+            offset += count;
+            len -= count;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package org.binson.lowlevel;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Low-level class that converts between low-level types
@@ -10,22 +10,16 @@ import java.io.UnsupportedEncodingException;
  * @author Frans Lundberg
  */
 public class Bytes {
+    /**
+     * Decodes UTF-8 bytes, malformed input is replaced with U+FFFD. 
+     * For strict decoding, see Utf8.decode().
+     */
     public static String utf8ToString(byte[] bytes) {
-        String result = null;
-        try {
-            result = new String(bytes, "UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new Error("never happens for compliant JVM", e);
-        }
-        return result;
+        return new String(bytes, StandardCharsets.UTF_8);
     }
     
     public static byte[] stringToUtf8(String s) {
-        try {
-            return s.getBytes("UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new Error("never happens", e);
-        }
+        return Utf8.encode(s);
     }
 
     public static final short bytesToShortLE(byte[] arr, int offset) {
@@ -88,7 +82,7 @@ public class Bytes {
     
     public static final void doubleToBytesLE(double value, byte[] arr, int offset) {
         long bits = Double.doubleToRawLongBits(value);
-        longToBytesLE(bits, arr, 1);
+        longToBytesLE(bits, arr, offset);
     }
     
     public static final int unsigned(byte b) {
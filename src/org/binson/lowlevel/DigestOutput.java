@@ -0,0 +1,156 @@
+package org.binson.lowlevel;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * Output that feeds the Binson bytes directly to a MessageDigest instead of
+ * writing them; the serialized object is never held in memory. Since Binson
+ * serialization is canonical, the digest equals the digest of toBytes():
+ *
+ * <pre> MessageDigest md = MessageDigest.getInstance("SHA-256");
+ * OutputWriter.writeToOutput(obj, new DigestOutput(md));
+ * byte[] hash = md.digest();
+ * </pre>
+ *
+ * <p>See also Binson.digest().</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class DigestOutput implements Output {
+    /** Max length of strings encoded to the reused buffer. */
+    private static final int STRING_BUFFER_SIZE = 1024;
+
+    private final MessageDigest digest;
+    private final byte[] scratch = new byte[9];
+    private byte[] stringBuffer;
+    private FieldNamePool namePool;
+
+    public DigestOutput(MessageDigest digest) {
+        if (digest == null) throw new IllegalArgumentException("digest == null not allowed");
+        this.digest = digest;
+    }
+
+    /**
+     * Sets the pool used to get the UTF-8 bytes of field names. Names that are
+     * not in the pool are added until it is full, so only set a pool if the
+     * written field names come from a limited set.
+     * Default is null, no pooling.
+     */
+    public void setFieldNamePool(FieldNamePool namePool) {
+        this.namePool = namePool;
+    }
+
+    public MessageDigest getDigest() {
+        return digest;
+    }
+
+    public void writeBegin() {
+        digest.update((byte) BEGIN);
+    }
+
+    public void writeEnd() {
+        digest.update((byte) END);
+    }
+
+    public void writeBeginArray() {
+        digest.update((byte) BEGIN_ARRAY);
+    }
+
+    public void writeEndArray() {
+        digest.update((byte) END_ARRAY);
+    }
+
+    public void writeBoolean(boolean value) {
+        digest.update((byte) (value ? TRUE : FALSE));
+    }
+
+    public void writeInteger(long value) {
+        writeIntegerOrLength(INTEGER, value);
+    }
+
+    public void writeDouble(double value) {
+        scratch[0] = DOUBLE;
+        Bytes.doubleToBytesLE(value, scratch, 1);
+        digest.update(scratch, 0, 9);
+    }
+
+    public void writeString(String string) {
+        int length = Utf8.encodedLength(string);
+        writeIntegerOrLength(STRING, length);
+
+        byte[] bytes = length > STRING_BUFFER_SIZE ? new byte[length] : stringBuffer();
+        Utf8.encode(string, bytes, 0);
+        digest.update(bytes, 0, length);
+    }
+
+    private byte[] stringBuffer() {
+        if (stringBuffer == null) {
+            stringBuffer = new byte[STRING_BUFFER_SIZE];
+        }
+        return stringBuffer;
+    }
+
+    public void writeBytes(byte[] value) {
+        writeIntegerOrLength(BYTES, value.length);
+        digest.update(value);
+    }
+
+    public void writeBytes(ByteBuffer value) {
+        writeIntegerOrLength(BYTES, value.remaining());
+        digest.update(value.duplicate());
+    }
+
+    public void writeName(String name) {
+        if (namePool == null) {
+            writeString(name);
+            return;
+        }
+
+        byte[] bytes = namePool.toUtf8(name);
+        writeIntegerOrLength(STRING, bytes.length);
+        digest.update(bytes);
+    }
+
+    public void writeArrayValueSeparator() {
+        // empty
+    }
+
+    public void writeNameValueSeparator() {
+        // empty
+    }
+
+    public void writePairSeparator() {
+        // empty
+    }
+
+    public void flush() {
+        // empty
+    }
+
+    private void writeIntegerOrLength(int baseType, long value) {
+        int length;
+
+        if (RangeUtil.isInOneByteRange(value)) {
+            scratch[0] = (byte) (baseType | ONE_BYTE);
+            scratch[1] = (byte) value;
+            length = 2;
+        } else if (RangeUtil.isInTwoByteRange(value)) {
+            scratch[0] = (byte) (baseType | TWO_BYTES);
+            Bytes.shortToBytesLE((int) value, scratch, 1);
+            length = 3;
+        } else if (RangeUtil.isInFourByteRange(value)) {
+            scratch[0] = (byte) (baseType | FOUR_BYTES);
+            Bytes.intToBytesLE((int) value, scratch, 1);
+            length = 5;
+        } else {
+            scratch[0] = (byte) (baseType | EIGHT_BYTES);
+            Bytes.longToBytesLE(value, scratch, 1);
+            length = 9;
+        }
+
+        digest.update(scratch, 0, length);
+    }
+}
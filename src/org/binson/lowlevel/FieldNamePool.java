@@ -0,0 +1,197 @@
+package org.binson.lowlevel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of field names. It caches the UTF-8 bytes of field names
+ * (used when serializing) and maps UTF-8 bytes back to one shared String
+ * instance per name (used when parsing). Applications typically use a small,
+ * fixed set of field names; with the pool, each such name is encoded once and
+ * exists once on the heap.
+ *
+ * <p>The pool stores at most 'capacity' names, and only names that are at most
+ * MAX_NAME_LENGTH bytes long. When the pool is full, new names are
+ * simply encoded and decoded without being cached. Names are never removed.
+ * Therefore, a pool that is used to parse untrusted input can be filled with
+ * junk names by a peer, and a pool used to write arbitrary names can be filled
+ * by them. Parsers and outputs only use a pool if one is set with 
+ * setFieldNamePool().</p>
+ *
+ * <p>An instance can be freely shared between threads. Lookups do not lock and do
+ * not allocate memory.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class FieldNamePool {
+    /** Names longer than this (in UTF-8 bytes) are not pooled. */
+    public static final int MAX_NAME_LENGTH = 64;
+
+    private static final FieldNamePool DEFAULT = new FieldNamePool(1000);
+
+    private final Entry[] byName;
+    private final Entry[] byBytes;
+    private final int mask;
+    private final int capacity;
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Creates a pool that holds at most 'capacity' names.
+     */
+    public FieldNamePool(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("bad capacity, " + capacity);
+        }
+
+        int tableSize = Integer.highestOneBit(capacity) * 4;
+        this.capacity = capacity;
+        this.byName = new Entry[tableSize];
+        this.byBytes = new Entry[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    /**
+     * Returns a shared pool that holds up to 1000 names. It is not used by 
+     * parsers or outputs unless set with setFieldNamePool().
+     */
+    public static FieldNamePool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the number of names in the pool.
+     */
+    public int size() {
+        return Math.min(count.get(), capacity);
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a name. The returned array may be shared,
+     * it must not be modified.
+     */
+    public byte[] toUtf8(String name) {
+        byte[] pooled = lookupUtf8(name);
+        if (pooled != null) {
+            return pooled;
+        }
+
+        byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length <= MAX_NAME_LENGTH) {
+            add(new Entry(name, utf8));
+        }
+        return utf8;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a name if it is in the pool, otherwise null.
+     * Unlike toUtf8(), the name is never added to the pool. The returned array
+     * is shared, it must not be modified.
+     */
+    public byte[] lookupUtf8(String name) {
+        int hash = name.hashCode();
+        Entry[] table = byName;
+
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = table[i];
+            if (e == null) {
+                return null;
+            }
+            if (e.nameHash == hash && e.name.equals(name)) {
+                return e.utf8;
+            }
+        }
+    }
+
+    /**
+     * Returns the name that 'length' UTF-8 bytes of 'bytes' starting at 'offset'
+     * represent. The same String instance is returned for equal bytes if the name
+     * is in the pool.
+     * 
+     * @throws org.binson.BinsonFormatException If the bytes are not valid UTF-8.
+     */
+    public String toName(byte[] bytes, int offset, int length) {
+        if (length > MAX_NAME_LENGTH) {
+            return Utf8.decode(bytes, offset, length);
+        }
+
+        int hash = bytesHash(bytes, offset, length);
+        Entry[] table = byBytes;
+
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Entry e = table[i];
+            if (e == null) {
+                break;
+            }
+            if (e.bytesHash == hash && e.equalBytes(bytes, offset, length)) {
+                return e.name;
+            }
+        }
+
+        String name = Utf8.decode(bytes, offset, length);
+        byte[] utf8 = new byte[length];
+        System.arraycopy(bytes, offset, utf8, 0, length);
+        add(new Entry(name, utf8));
+        return name;
+    }
+
+    /**
+     * Adds an entry if the pool is not full. Racing threads may add the same
+     * name twice; that only wastes a slot.
+     */
+    private void add(Entry entry) {
+        if (count.get() >= capacity || count.incrementAndGet() > capacity) {
+            return;
+        }
+
+        insert(byName, entry, entry.nameHash);
+        insert(byBytes, entry, entry.bytesHash);
+    }
+
+    private void insert(Entry[] table, Entry entry, int hash) {
+        // The table is at least twice as big as capacity, so there is always a free slot.
+        int i = hash & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = entry;
+    }
+
+    private static int bytesHash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Immutable; final fields make entries safe to publish through the tables
+     * without locking.
+     */
+    private static final class Entry {
+        final String name;
+        final byte[] utf8;
+        final int nameHash;
+        final int bytesHash;
+
+        Entry(String name, byte[] utf8) {
+            this.name = name;
+            this.utf8 = utf8;
+            this.nameHash = name.hashCode();
+            this.bytesHash = bytesHash(utf8, 0, utf8.length);
+        }
+
+        boolean equalBytes(byte[] bytes, int offset, int length) {
+            if (utf8.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (utf8[i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
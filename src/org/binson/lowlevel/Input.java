@@ -2,6 +2,12 @@ package org.binson.lowlevel;
 
 import java.io.IOException;
 
+/**
+ * Interface for pull-parsing (reading tokens one at a time); shared between 
+ * JsonInput and BinsonInput.
+ * 
+ * @author Frans Lundberg
+ */
 public interface Input {
 
     public boolean getBoolean();
@@ -10,9 +16,16 @@ public interface Input {
 
     public double getDouble();
 
-    public String getString();
+    public String getString() throws IOException;
 
-    public byte[] getBytes();
+    public byte[] getBytes() throws IOException;
+    
+    /**
+     * Returns the field name of the current token if the token is a value
+     * (including BEGIN and BEGIN_ARRAY) of an object field. Returns null for
+     * array elements, for the top-level object and for END and END_ARRAY tokens.
+     */
+    public String getName();
 
     /**
      * Reads next token and returns the token type.
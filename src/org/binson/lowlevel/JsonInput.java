@@ -0,0 +1,266 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.binson.BinsonFormatException;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * A pull parser that reads a JSON object one token at a time without creating
+ * Binson objects. Memory use does not depend on the size of the JSON text,
+ * only on the nesting depth and the size of individual values.
+ *
+ * <p>Tokens are reported as for BinsonInput. Note that the fields of a JSON
+ * object may come in any order, they are reported in the order they appear in
+ * the text. The JSON value null is not supported by Binson; a JsonParseException
+ * is thrown if it is encountered.</p>
+ *
+ * @author Frans Lundberg
+ */
+public class JsonInput implements Input {
+    private final TextReader r;
+    private final JsonNumberParser numberParser = new JsonNumberParser();
+    private boolean enableHex = false;
+
+    private int depth = 0;
+    private boolean done = false;
+    private boolean[] isArray = new boolean[8];
+    private boolean[] isFirst = new boolean[8];
+
+    private int token = -1;
+    private String name;
+    private boolean booleanValue;
+    private long integerValue;
+    private double doubleValue;
+    private String stringValue;
+    private byte[] bytesValue;
+
+    public JsonInput(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("reader == null is not allowed");
+        }
+        this.r = new TextReader(reader);
+    }
+
+    /**
+     * Set to true to read JSON strings that start with "0x" followed by
+     * hex digits as BYTES tokens. Default is false.
+     */
+    public void setEnableHex(boolean enableHex) {
+        this.enableHex = enableHex;
+    }
+
+    /**
+     * Returns the current nesting depth. See BinsonInput.getDepth().
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the current token type, or -1 if next() has not been called.
+     */
+    public int getToken() {
+        return token;
+    }
+
+    /**
+     * Reads the next token. See Input.next().
+     *
+     * @throws JsonParseException
+     *      If the text does not follow the JSON format.
+     * @throws IllegalStateException
+     *      If called after the END token of the top-level object.
+     */
+    public int next() throws IOException {
+        if (done) {
+            throw new IllegalStateException("end of the JSON object has been reached");
+        }
+
+        name = null;
+        stringValue = null;
+        bytesValue = null;
+
+        char c = r.nextNonWhite();
+
+        if (depth == 0) {
+            if (c != '{') {
+                throw new JsonParseException("Bad start, expected {.", r);
+            }
+            push(false);
+            return setToken(BEGIN);
+        }
+
+        int index = depth - 1;
+        boolean first = isFirst[index];
+        isFirst[index] = false;
+
+        if (isArray[index]) {
+            if (c == ']') {
+                depth--;
+                return setToken(END_ARRAY);
+            }
+
+            if (!first) {
+                if (c != ',') {
+                    throw new JsonParseException("Bad char after array value, '" + c + "'.", r);
+                }
+                c = r.nextNonWhite();
+            }
+
+            return readValue(c);
+        }
+
+        if (c == '}') {
+            depth--;
+            done = depth == 0;
+            return setToken(END);
+        }
+
+        if (first) {
+            if (c != '"') {
+                throw new JsonParseException("Expected string start '\"'.", r);
+            }
+        } else {
+            if (c != ',') {
+                throw new JsonParseException("Bad char after name-value pair, '" + c + "'.", r);
+            }
+            c = r.nextNonWhite();
+            if (c != '"') {
+                throw new JsonParseException("Expected '\"', got " + c + ".", r);
+            }
+        }
+
+        String fieldName = JsonParser.parseString(r);
+
+        c = r.nextNonWhite();
+        if (c != ':') {
+            throw new JsonParseException("Expected ':', got " + c + ".", r);
+        }
+
+        int result = readValue(r.nextNonWhite());
+        name = fieldName;
+        return result;
+    }
+
+    /**
+     * Skips the rest of the current value. See BinsonInput.skipValue().
+     */
+    public void skipValue() throws IOException {
+        if (token == BEGIN || token == BEGIN_ARRAY) {
+            int targetDepth = depth - 1;
+            while (depth > targetDepth) {
+                next();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean getBoolean() {
+        checkToken(BOOLEAN, "boolean");
+        return booleanValue;
+    }
+
+    public long getInteger() {
+        checkToken(INTEGER, "integer");
+        return integerValue;
+    }
+
+    public double getDouble() {
+        checkToken(DOUBLE, "double");
+        return doubleValue;
+    }
+
+    public String getString() {
+        checkToken(STRING, "string");
+        return stringValue;
+    }
+
+    public byte[] getBytes() {
+        checkToken(BYTES, "bytes");
+        return bytesValue;
+    }
+
+    private int readValue(char first) throws IOException {
+        switch (first) {
+        case 't':
+            JsonParser.parseWord(r, "true");
+            booleanValue = true;
+            return setToken(BOOLEAN);
+        case 'f':
+            JsonParser.parseWord(r, "false");
+            booleanValue = false;
+            return setToken(BOOLEAN);
+        case 'n':
+            JsonParser.parseWord(r, "null");
+            throw new JsonParseException("JSON null is not supported by Binson.", r);
+        case '"':
+            String string = JsonParser.parseString(r);
+            if (enableHex) {
+                Object value = JsonParser.stringOrBytes(string);
+                if (value instanceof byte[]) {
+                    bytesValue = (byte[]) value;
+                    return setToken(BYTES);
+                }
+            }
+            stringValue = string;
+            return setToken(STRING);
+        case '{':
+            push(false);
+            return setToken(BEGIN);
+        case '[':
+            push(true);
+            return setToken(BEGIN_ARRAY);
+        case '-':
+        case '0':
+        case '1':
+        case '2':
+        case '3':
+        case '4':
+        case '5':
+        case '6':
+        case '7':
+        case '8':
+        case '9':
+            r.pushBack(first);
+            Object number = numberParser.number(r);
+            if (number instanceof Long) {
+                integerValue = ((Long) number).longValue();
+                return setToken(INTEGER);
+            } else {
+                doubleValue = ((Double) number).doubleValue();
+                return setToken(DOUBLE);
+            }
+        default:
+            throw new JsonParseException("Bad char when parsing value, " + first + ".", r);
+        }
+    }
+
+    private void push(boolean array) {
+        if (depth == isArray.length) {
+            isArray = Arrays.copyOf(isArray, 2 * depth);
+            isFirst = Arrays.copyOf(isFirst, 2 * depth);
+        }
+
+        isArray[depth] = array;
+        isFirst[depth] = true;
+        depth++;
+    }
+
+    private int setToken(int token) {
+        this.token = token;
+        return token;
+    }
+
+    private void checkToken(int expected, String typeName) {
+        if (token != expected) {
+            throw new BinsonFormatException("Current token is not a " + typeName + ".");
+        }
+    }
+}
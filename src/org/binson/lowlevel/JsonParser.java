@@ -73,7 +73,7 @@ public class JsonParser {
                 if (c != '"') {
                     throw new JsonParseException("Expected '\"', got " + c + ".", r);
                 }
-                name = parseString();
+                name = parseString(r);
                 break;
             case '}':
                 break labelA;
@@ -133,22 +133,22 @@ public class JsonParser {
         
         switch (first) {
         case 't':
-            parseWord("true");
+            parseWord(r, "true");
             result = Boolean.TRUE;
             break;
         case 'f':
-            parseWord("false");
+            parseWord(r, "false");
             result = Boolean.FALSE;
             break;
         case 'n':
-            parseWord("null");
+            parseWord(r, "null");
             result = JsonNull.NULL;
             break;
         case '"':
             if (enableHex) {
-                result = parseStringOrBytes();
+                result = stringOrBytes(parseString(r));
             } else {
-                result = parseString();
+                result = parseString(r);
             }
             break;
         case '{':
@@ -184,7 +184,7 @@ public class JsonParser {
     /** 
      * Starts one character 'late' in word.
      */
-    private void parseWord(String word) throws IOException {
+    static void parseWord(TextReader r, String word) throws IOException {
         int length = word.length();
         for (int i = 1; i < length; i++) {
             char c = r.next();
@@ -212,21 +212,21 @@ public class JsonParser {
         if (c == '}') {
             return null;
         } else if (c == '"') {
-            return parseString();
+            return parseString(r);
         } else {
             throw new JsonParseException("Expected string start '\"'.", r);
         }
     }
     
     /** First quotation mark should have been consumed already. */
-    private final String parseString() throws IOException {
+    static String parseString(TextReader r) throws IOException {
         StringBuilder b = new StringBuilder();
         while (true) {
             char c = r.next();
             if (c == '"') {
                 break;
             } else if (c == '\\') {
-                b.append(parseEscapedChar());
+                b.append(parseEscapedChar(r));
             } else {
                 b.append(c);
             }
@@ -235,21 +235,11 @@ public class JsonParser {
         return b.toString();
     }
     
-    /** First quotation mark should have been consumed already. */
-    private final Object parseStringOrBytes() throws IOException {
-        StringBuilder b = new StringBuilder();
-        while (true) {
-            char c = r.next();
-            if (c == '"') {
-                break;
-            } else if (c == '\\') {
-                b.append(parseEscapedChar());
-            } else {
-                b.append(c);
-            }
-        }
-   
-        String string = b.toString();
+    /**
+     * Returns the bytes of a "0x..." hex string, or the string itself
+     * if it is not a valid hex string.
+     */
+    static Object stringOrBytes(String string) {
         Object result = string;
         
         if (string.startsWith("0x")) {
@@ -265,7 +255,7 @@ public class JsonParser {
         return result;
     }
     
-    private final char parseEscapedChar() throws IOException {
+    private static char parseEscapedChar(TextReader r) throws IOException {
         char c = r.next();
         char res;
         
@@ -281,7 +271,7 @@ public class JsonParser {
             res = c;
             break;
         case 'u':
-            res = parseUEscape();
+            res = parseUEscape(r);
             break;
         default:
             throw new JsonParseException("Bad character after back-slash escape.", r);
@@ -290,7 +280,7 @@ public class JsonParser {
         return res;
     }
     
-    private final char parseUEscape() throws IOException {
+    private static char parseUEscape(TextReader r) throws IOException {
         char[] chars = new char[4];
         for (int i = 0; i < 4; i++) {
             char c = r.next();
@@ -311,7 +301,7 @@ public class JsonParser {
         return (char) value;
     }
     
-    private boolean isHexChar(char c) {
+    private static boolean isHexChar(char c) {
         boolean isHex = false;
         switch (c) {
         case '0':
@@ -1,6 +1,7 @@
 package org.binson.lowlevel;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Interface for serialization; shared between JsonOutput and BinsonOutput.
@@ -25,6 +26,17 @@ public interface Output {
     public void writeString(String string) throws IOException;
 
     public void writeBytes(byte[] value) throws IOException;
+    
+    /**
+     * Writes the remaining bytes of a buffer as a bytes value. The position of 
+     * the buffer is not changed. The default implementation copies the bytes to 
+     * an array; implementations override it to avoid the copy.
+     */
+    public default void writeBytes(ByteBuffer value) throws IOException {
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        writeBytes(bytes);
+    }
 
     public void writeName(String name) throws IOException;
     
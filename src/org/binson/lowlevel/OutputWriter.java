@@ -1,6 +1,7 @@
 package org.binson.lowlevel;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.binson.BinsonArray;
 import org.binson.Binson;
@@ -13,9 +14,24 @@ import org.binson.Binson;
 public class OutputWriter {
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
     
+    /**
+     * Writes an object to an output. The output is flushed at the end.
+     */
     public static void writeToOutput(Binson obj, Output output) throws IOException {
-        String[] keys = obj.keySet().toArray(EMPTY_STRING_ARRAY);
-        Arrays.sort(keys, BinsonFieldNameComparator.INSTANCE);
+        writeObject(obj, output);
+        output.flush();
+    }
+    
+    private static void writeObject(Binson obj, Output output) throws IOException {
+        Iterable<String> keys;
+        
+        if (obj.hasSortedFields()) {
+            keys = obj.keySet();
+        } else {
+            String[] keyArray = obj.keySet().toArray(EMPTY_STRING_ARRAY);
+            Arrays.sort(keyArray, BinsonFieldNameComparator.INSTANCE);
+            keys = Arrays.asList(keyArray);
+        }
         
         boolean isFirstPair = true;
         
@@ -37,7 +53,6 @@ public class OutputWriter {
         }
         
         output.writeEnd();
-        output.flush();
     }
     
     private static void writeValue(Output output, ValueType type, Object value) throws IOException {
@@ -59,7 +74,11 @@ public class OutputWriter {
             break;
             
         case BYTES:
-            output.writeBytes((byte[]) value);
+            if (value instanceof byte[]) {
+                output.writeBytes((byte[]) value);
+            } else {
+                output.writeBytes((ByteBuffer) value);
+            }
             break;
             
         case ARRAY:
@@ -68,7 +87,7 @@ public class OutputWriter {
             break;
             
         case OBJECT:
-            writeToOutput((Binson) value, output);
+            writeObject((Binson) value, output);
             break;
             
         default:
@@ -78,17 +97,59 @@ public class OutputWriter {
 
     private static void writeArray(BinsonArray array, Output output) throws IOException {
         output.writeBeginArray();
+        
+        if (array.getPrimitiveType() != null) {
+            writePrimitives(array, output);
+            output.writeEndArray();
+            return;
+        }
+        
         boolean isFirst = true;
         
         for (int i = 0; i < array.size(); i++) {
-            Object element = array.getElement(i);
             if (isFirst) {
                 isFirst = false;
             } else {
                 output.writeArrayValueSeparator();
             }
-            writeValue(output, ValueType.fromObject(element), element);
+            writeValue(output, array.getType(i), array.getElement(i));
         }
         output.writeEndArray();
     }
+    
+    /**
+     * Writes the elements of an array stored in a primitive array, without boxing.
+     */
+    private static void writePrimitives(BinsonArray array, Output output) throws IOException {
+        int size = array.size();
+        
+        switch (array.getPrimitiveType()) {
+        case BOOLEAN:
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    output.writeArrayValueSeparator();
+                }
+                output.writeBoolean(array.getBoolean(i));
+            }
+            break;
+            
+        case INTEGER:
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    output.writeArrayValueSeparator();
+                }
+                output.writeInteger(array.getInteger(i));
+            }
+            break;
+            
+        default:
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    output.writeArrayValueSeparator();
+                }
+                output.writeDouble(array.getDouble(i));
+            }
+            break;
+        }
+    }
 }
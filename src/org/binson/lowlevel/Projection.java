@@ -0,0 +1,130 @@
+package org.binson.lowlevel;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The fields selected by BinsonParser.setProjection(); one instance per
+ * selected object level. Names are kept as UTF-8 bytes in Binson field order,
+ * so a field name read from the input is looked up without decoding it.
+ * The arrays for the names read from the input are reused, hence an instance
+ * must only be used by one parser.
+ *
+ * @author Frans Lundberg
+ */
+final class Projection {
+    private static final Projection WHOLE_VALUE = null;
+
+    final String[] names;
+    final byte[][] utf8Names;
+
+    /** Projection of each selected field; null means that the whole value is selected. */
+    final Projection[] children;
+
+    byte[] previousName = new byte[32];
+    byte[] currentName = new byte[32];
+
+    private Projection(String[] names, Projection[] children) {
+        this.names = names;
+        this.children = children;
+        this.utf8Names = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            utf8Names[i] = Bytes.stringToUtf8(names[i]);
+        }
+    }
+
+    /**
+     * Creates a projection from paths like "id" and "header.route".
+     */
+    static Projection compile(String[] paths) {
+        Map<String, Object> tree = new TreeMap<String, Object>(BinsonFieldNameComparator.INSTANCE);
+
+        for (String path : paths) {
+            if (path == null || path.length() == 0) {
+                throw new IllegalArgumentException("bad path, " + path);
+            }
+            add(tree, path.split("\\.", -1), 0);
+        }
+
+        return toProjection(tree);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Map<String, Object> tree, String[] names, int index) {
+        String name = names[index];
+        if (name.length() == 0) {
+            throw new IllegalArgumentException("empty field name in path");
+        }
+
+        boolean isLast = index == names.length - 1;
+        if (tree.containsKey(name) && tree.get(name) == WHOLE_VALUE) {
+            return;
+        }
+
+        if (isLast) {
+            tree.put(name, WHOLE_VALUE);
+            return;
+        }
+
+        Map<String, Object> subtree = (Map<String, Object>) tree.get(name);
+        if (subtree == null) {
+            subtree = new TreeMap<String, Object>(BinsonFieldNameComparator.INSTANCE);
+            tree.put(name, subtree);
+        }
+        add(subtree, names, index + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Projection toProjection(Map<String, Object> tree) {
+        String[] names = new String[tree.size()];
+        Projection[] children = new Projection[tree.size()];
+        int i = 0;
+
+        for (Map.Entry<String, Object> entry : tree.entrySet()) {
+            names[i] = entry.getKey();
+            Object value = entry.getValue();
+            children[i] = value == WHOLE_VALUE ? null : toProjection((Map<String, Object>) value);
+            i++;
+        }
+
+        return new Projection(names, children);
+    }
+
+    /**
+     * Returns the index of the name in currentName, or -1 if it is not selected.
+     */
+    int find(int length) {
+        int low = 0;
+        int high = utf8Names.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            byte[] name = utf8Names[mid];
+            int cmp = ByteArrayComparator.compareRanges(name, 0, name.length, currentName, 0, length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+
+    void ensureCapacity(int length) {
+        if (currentName.length < length) {
+            currentName = new byte[Math.max(length, 2 * currentName.length)];
+        }
+    }
+
+    /**
+     * Makes the current name the previous name.
+     */
+    void swapNames() {
+        byte[] temp = previousName;
+        previousName = currentName;
+        currentName = temp;
+    }
+}
@@ -0,0 +1,224 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+
+import org.binson.BinsonFormatException;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * Skips Binson values read from a ByteReader while checking that they follow
+ * the rules that BinsonParser enforces: known type bytes, integers and lengths
+ * stored with as few bytes as possible, field names in strictly increasing
+ * Binson field order, matching end bytes and maxFieldCount. The nesting depth
+ * is limited by maxDepth, so deeply nested input cannot overflow the call stack.
+ * The maxSize limit is enforced by the ByteReader. Optionally, strings and
+ * field names are also checked to be valid UTF-8, see setValidateUtf8().
+ *
+ * <p>No values are created; the contents of strings and bytes values are skipped.
+ * The previous field name of each open object is kept in an internal array that is
+ * reused, so memory is only allocated when that array needs to grow.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class Skimmer {
+    private final ByteReader reader;
+    private int maxFieldCount = 1000;
+    private int maxDepth = 1000;
+    private int depth;
+    private boolean validateUtf8 = false;
+    private byte[] names = new byte[256];
+
+    public Skimmer(ByteReader reader) {
+        if (reader == null) throw new IllegalArgumentException("reader == null not allowed");
+        this.reader = reader;
+    }
+
+    /**
+     * Sets the maximum number of fields of an object. Default is 1000,
+     * as for BinsonParser.
+     */
+    public void setMaxFieldCount(int maxFieldCount) {
+        if (maxFieldCount <= 0) {
+            throw new IllegalArgumentException("bad maxFieldCount, " + maxFieldCount);
+        }
+        this.maxFieldCount = maxFieldCount;
+    }
+
+    public int getMaxFieldCount() {
+        return maxFieldCount;
+    }
+
+    /**
+     * Sets the maximum nesting depth of objects and arrays, counted from the 
+     * value passed to skipValue(). Default is 1000.
+     */
+    public void setMaxDepth(int maxDepth) {
+        if (maxDepth <= 0) {
+            throw new IllegalArgumentException("bad maxDepth, " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * If set to true, strings and field names must be valid UTF-8 (see Utf8).
+     * Default is false. BinsonParser always rejects invalid UTF-8 since it decodes the strings.
+     */
+    public void setValidateUtf8(boolean validateUtf8) {
+        this.validateUtf8 = validateUtf8;
+    }
+
+    public boolean getValidateUtf8() {
+        return validateUtf8;
+    }
+
+    /**
+     * Skips a value. The type byte of the value has already been read.
+     *
+     * @throws BinsonFormatException If the value does not follow the Binson format.
+     * @throws MaxSizeException If maxFieldCount or maxDepth is exceeded.
+     */
+    public void skipValue(int type) throws IOException {
+        depth = 0;
+        skipValue(type, 0);
+    }
+
+    /**
+     * Skips a value; 'namesOffset' is the first free index of the names array.
+     */
+    private void skipValue(int type, int namesOffset) throws IOException {
+        switch (type) {
+        case BEGIN:
+            enter();
+            skipFields(namesOffset);
+            depth--;
+            break;
+
+        case BEGIN_ARRAY:
+            enter();
+            skipElements(namesOffset);
+            depth--;
+            break;
+
+        case TRUE:
+        case FALSE:
+            break;
+
+        case DOUBLE:
+            reader.skip(8);
+            break;
+
+        case INTEGER1:
+        case INTEGER2:
+        case INTEGER4:
+        case INTEGER8:
+            reader.readInteger(type);
+            break;
+
+        case STRING1:
+        case STRING2:
+        case STRING4:
+            if (validateUtf8) {
+                reader.skipUtf8(reader.readLength(type));
+            } else {
+                reader.skip(reader.readLength(type));
+            }
+            break;
+
+        case BYTES1:
+        case BYTES2:
+        case BYTES4:
+            reader.skip(reader.readLength(type));
+            break;
+
+        default:
+            throw new BinsonFormatException("Unexpected type: " + type + ".");
+        }
+    }
+
+    /**
+     * Skips the fields of an object and its END byte. The name of the previous field
+     * is kept at names[namesOffset]; the new name is read right after it, compared
+     * with it and then moved to namesOffset.
+     */
+    private void skipFields(int namesOffset) throws IOException {
+        int previousLength = -1;
+        int fieldCount = 0;
+
+        while (true) {
+            int type = reader.readOne();
+
+            switch (type) {
+            case STRING1:
+            case STRING2:
+            case STRING4:
+                break;
+            case END:
+                return;
+            default:
+                throw new BinsonFormatException("Expected string/end, got " + type + ".");
+            }
+
+            fieldCount++;
+            if (fieldCount > maxFieldCount) {
+                throw new MaxSizeException("The Binson object being parsed has more fields " +
+                        "than the maxFieldCount setting of the parser (" +
+                        maxFieldCount + ").");
+            }
+
+            int length = reader.readLength(type);
+            int nameOffset = namesOffset + Math.max(previousLength, 0);
+            ensureNamesCapacity(nameOffset + length);
+            reader.read(names, nameOffset, length);
+            if (validateUtf8 && !Utf8.isValid(names, nameOffset, length)) {
+                throw new BinsonFormatException("Invalid UTF-8 in field name.");
+            }
+
+            if (previousLength >= 0) {
+                if (ByteArrayComparator.compareRanges(names, namesOffset, previousLength,
+                        names, nameOffset, length) >= 0) {
+                    throw new BinsonFormatException("bad field order, "
+                            + Bytes.utf8ToString(copy(namesOffset, previousLength)) + ", "
+                            + Bytes.utf8ToString(copy(nameOffset, length)));
+                }
+                System.arraycopy(names, nameOffset, names, namesOffset, length);
+            }
+
+            previousLength = length;
+            skipValue(reader.readOne(), namesOffset + length);
+        }
+    }
+
+    private void skipElements(int namesOffset) throws IOException {
+        int type;
+        while ((type = reader.readOne()) != END_ARRAY) {
+            skipValue(type, namesOffset);
+        }
+    }
+
+    private void enter() {
+        depth++;
+        if (depth > maxDepth) {
+            throw new MaxSizeException("The Binson value being parsed is nested deeper " +
+                    "than the maxDepth setting (" + maxDepth + ").");
+        }
+    }
+
+    private void ensureNamesCapacity(int capacity) {
+        if (capacity > names.length) {
+            byte[] newNames = new byte[Math.max(capacity, 2 * names.length)];
+            System.arraycopy(names, 0, newNames, 0, names.length);
+            names = newNames;
+        }
+    }
+
+    private byte[] copy(int offset, int length) {
+        byte[] result = new byte[length];
+        System.arraycopy(names, offset, result, 0, length);
+        return result;
+    }
+}
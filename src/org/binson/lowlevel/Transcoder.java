@@ -0,0 +1,263 @@
+package org.binson.lowlevel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.binson.BinsonFormatException;
+
+import static org.binson.lowlevel.Constants.*;
+
+/**
+ * Converts between JSON and Binson (or any Input and Output) by passing tokens
+ * from an Input directly to an Output. No Binson objects are created.
+ *
+ * <p>Binson requires the fields of an object to be in Binson field order.
+ * When the input may have the fields in any order (JSON), use
+ * transcodeToBinson(). Since the first field in Binson order may be the last one
+ * read, the whole object is buffered: the values are serialized once, in the order they
+ * are read, to one buffer, and for each object the buffer ranges of its fields are kept 
+ * sorted by name. When the end of the top-level object has been read, the fields are 
+ * written in order by copying the ranges to the OutputStream.</p>
+ *
+ * @author Frans Lundberg
+ */
+public class Transcoder {
+
+    private Transcoder() {}
+
+    /**
+     * Reads a JSON object from a Reader and writes it as Binson bytes to
+     * an OutputStream.
+     */
+    public static void jsonToBinson(Reader reader, OutputStream out) throws IOException {
+        transcodeToBinson(new JsonInput(reader), out);
+    }
+
+    /**
+     * Reads a Binson object from an InputStream and writes it as JSON to a Writer.
+     */
+    public static void binsonToJson(InputStream in, Writer writer) throws IOException {
+        transcode(new BinsonInput(in), new JsonOutput(writer));
+    }
+
+    /**
+     * Passes all tokens of one object from the input to the output in the order
+     * they are read. The output is flushed at the end.
+     *
+     * @throws BinsonFormatException  If the input does not start with an object.
+     */
+    public static void transcode(Input input, Output output) throws IOException {
+        expectBegin(input.next());
+        copyObject(input, output);
+        output.flush();
+    }
+
+    /**
+     * Reads one object from the input and writes it as Binson bytes.
+     * Fields are sorted in Binson field order. If the input is a BinsonInput,
+     * the fields are already in order and the tokens are passed through
+     * without buffering.
+     */
+    public static void transcodeToBinson(Input input, OutputStream out) throws IOException {
+        if (input instanceof BinsonInput) {
+            transcode(input, new BinsonOutput(out));
+            return;
+        }
+
+        expectBegin(input.next());
+        copySortedObject(input, out);
+        out.flush();
+    }
+
+    private static void expectBegin(int token) {
+        if (token != BEGIN) {
+            throw new BinsonFormatException("Expected BEGIN, got " + token + ".");
+        }
+    }
+
+    private static void copyObject(Input input, Output output) throws IOException {
+        boolean isFirstPair = true;
+        int token;
+
+        output.writeBegin();
+
+        while ((token = input.next()) != END) {
+            if (isFirstPair) {
+                isFirstPair = false;
+            } else {
+                output.writePairSeparator();
+            }
+
+            output.writeName(input.getName());
+            output.writeNameValueSeparator();
+            copyValue(token, input, output);
+        }
+
+        output.writeEnd();
+    }
+
+    private static void copyArray(Input input, Output output) throws IOException {
+        boolean isFirst = true;
+        int token;
+
+        output.writeBeginArray();
+
+        while ((token = input.next()) != END_ARRAY) {
+            if (isFirst) {
+                isFirst = false;
+            } else {
+                output.writeArrayValueSeparator();
+            }
+            copyValue(token, input, output);
+        }
+
+        output.writeEndArray();
+    }
+
+    private static void copyValue(int token, Input input, Output output) throws IOException {
+        switch (token) {
+        case BEGIN:
+            copyObject(input, output);
+            break;
+        case BEGIN_ARRAY:
+            copyArray(input, output);
+            break;
+        case BOOLEAN:
+            output.writeBoolean(input.getBoolean());
+            break;
+        case INTEGER:
+            output.writeInteger(input.getInteger());
+            break;
+        case DOUBLE:
+            output.writeDouble(input.getDouble());
+            break;
+        case STRING:
+            output.writeString(input.getString());
+            break;
+        case BYTES:
+            output.writeBytes(input.getBytes());
+            break;
+        default:
+            throw new BinsonFormatException("Unexpected token: " + token + ".");
+        }
+    }
+
+    /**
+     * The BEGIN token has been read already.
+     */
+    private static void copySortedObject(Input input, OutputStream out) throws IOException {
+        Sorter sorter = new Sorter();
+        SortedObject obj = sorter.readObject(input);
+        sorter.write(obj, new BinsonOutput(out), out);
+    }
+
+    /**
+     * The fields of an object, sorted by name. The value of a field is a list
+     * of parts in the order they are written.
+     */
+    private static final class SortedObject {
+        final TreeMap<String, List<Part>> fields =
+                new TreeMap<String, List<Part>>(BinsonFieldNameComparator.INSTANCE);
+    }
+
+    /**
+     * Either a range of serialized bytes in the buffer or a nested object.
+     */
+    private static final class Part {
+        final int offset;
+        final int length;
+        final SortedObject object;
+
+        Part(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+            this.object = null;
+        }
+
+        Part(SortedObject object) {
+            this.offset = 0;
+            this.length = 0;
+            this.object = object;
+        }
+    }
+
+    /**
+     * Serializes values to one buffer in input order; nested objects are
+     * kept as SortedObject parts so their fields can be written in order.
+     */
+    private static final class Sorter {
+        private final BinsonBufferOutput buffer = new BinsonBufferOutput();
+        private int rangeStart;
+
+        SortedObject readObject(Input input) throws IOException {
+            SortedObject obj = new SortedObject();
+            int token;
+
+            while ((token = input.next()) != END) {
+                String name = input.getName();
+                List<Part> parts = new ArrayList<Part>(1);
+                rangeStart = buffer.size();
+                readValue(token, input, parts);
+                closeRange(parts);
+                obj.fields.put(name, parts);
+            }
+
+            return obj;
+        }
+
+        private void readValue(int token, Input input, List<Part> parts) throws IOException {
+            switch (token) {
+            case BEGIN:
+                closeRange(parts);
+                parts.add(new Part(readObject(input)));
+                rangeStart = buffer.size();
+                break;
+            case BEGIN_ARRAY:
+                buffer.writeBeginArray();
+                while ((token = input.next()) != END_ARRAY) {
+                    readValue(token, input, parts);
+                }
+                buffer.writeEndArray();
+                break;
+            default:
+                copyValue(token, input, buffer);
+                break;
+            }
+        }
+
+        private void closeRange(List<Part> parts) {
+            int end = buffer.size();
+            if (end > rangeStart) {
+                parts.add(new Part(rangeStart, end - rangeStart));
+            }
+            rangeStart = end;
+        }
+
+        /**
+         * Writes an object; 'output' writes to 'out'.
+         */
+        void write(SortedObject obj, BinsonOutput output, OutputStream out) throws IOException {
+            byte[] bytes = buffer.getBuffer();
+
+            output.writeBegin();
+            for (Map.Entry<String, List<Part>> field : obj.fields.entrySet()) {
+                output.writeName(field.getKey());
+                for (Part part : field.getValue()) {
+                    if (part.object != null) {
+                        write(part.object, output, out);
+                    } else {
+                        out.write(bytes, part.offset, part.length);
+                    }
+                }
+            }
+            output.writeEnd();
+        }
+    }
+}
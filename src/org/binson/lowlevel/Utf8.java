@@ -0,0 +1,306 @@
+package org.binson.lowlevel;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.binson.BinsonFormatException;
+
+/**
+ * UTF-8 encoding, decoding and validation. Bytes are checked with a small state
+ * machine that follows the well-formed byte sequences of the Unicode standard
+ * (table 3-7): overlong encodings, surrogates (U+D800..U+DFFF) and code points
+ * above U+10FFFF are rejected. ASCII bytes take a fast path.
+ *
+ * <p>The state is an int, so validation can be continued over input that
+ * arrives in chunks: pass the state returned for one chunk to the call for the next
+ * chunk. The bytes are valid if the final state is ACCEPT.</p>
+ *
+ * <p>encodedLength() and encode() write a String directly to a byte array, 
+ * so an output can write the length of a string followed by its bytes without 
+ * an intermediate array. The bytes are the same as those of 
+ * String.getBytes(StandardCharsets.UTF_8); an unpaired surrogate is encoded as '?'.
+ * decode() is strict, malformed input is rejected instead of replaced.</p>
+ *
+ * @author Frans Lundberg
+ */
+public final class Utf8 {
+    /** State between complete characters. */
+    public static final int ACCEPT = 0;
+
+    /** State after an invalid byte; it is never left. */
+    public static final int REJECT = -1;
+
+    // Other states: (number of continuation bytes left << 16) | (min << 8) | max,
+    // where min and max are the bounds of the next continuation byte.
+
+    private Utf8() {}
+
+    /**
+     * Returns the number of bytes of the UTF-8 encoding of a string.
+     *
+     * @throws IllegalArgumentException If the length exceeds 2^31-1 bytes.
+     */
+    public static int encodedLength(String s) {
+        int n = s.length();
+        int i = 0;
+        while (i < n && s.charAt(i) < 0x80) {
+            i++;
+        }
+
+        long length = n;
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            } else if (c < 0x800) {
+                length += 1;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            } else if (isPair(s, i, n)) {
+                length += 2;                    // 4 bytes for 2 chars
+                i++;
+            }                                   // else '?', 1 byte
+        }
+
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("string too long, " + length + " UTF-8 bytes");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Encodes a string to 'dest' starting at 'offset' and returns the number of bytes 
+     * written, that is, encodedLength(s). The caller makes sure 'dest' is large enough.
+     */
+    public static int encode(String s, byte[] dest, int offset) {
+        int n = s.length();
+        int j = offset;
+        int i = 0;
+
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            dest[j++] = (byte) c;
+        }
+
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dest[j++] = (byte) c;
+            } else if (c < 0x800) {
+                dest[j++] = (byte) (0xc0 | (c >> 6));
+                dest[j++] = (byte) (0x80 | (c & 0x3f));
+            } else if (!Character.isSurrogate(c)) {
+                dest[j++] = (byte) (0xe0 | (c >> 12));
+                dest[j++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dest[j++] = (byte) (0x80 | (c & 0x3f));
+            } else if (isPair(s, i, n)) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                dest[j++] = (byte) (0xf0 | (cp >> 18));
+                dest[j++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                dest[j++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                dest[j++] = (byte) (0x80 | (cp & 0x3f));
+            } else {
+                dest[j++] = '?';
+            }
+        }
+
+        return j - offset;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a string in a new array.
+     */
+    public static byte[] encode(String s) {
+        byte[] bytes = new byte[encodedLength(s)];
+        encode(s, bytes, 0);
+        return bytes;
+    }
+
+    private static boolean isPair(String s, int i, int n) {
+        return Character.isHighSurrogate(s.charAt(i)) && i + 1 < n 
+                && Character.isLowSurrogate(s.charAt(i + 1));
+    }
+
+    /**
+     * Decodes 'length' bytes of 'bytes' starting at 'offset'.
+     *
+     * @throws BinsonFormatException If the bytes are not valid UTF-8.
+     */
+    public static String decode(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && bytes[i] >= 0) {
+            i++;
+        }
+        if (i == end) {
+            // ASCII, a Latin-1 decode is a plain copy
+            return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+
+        char[] chars = new char[length];
+        int n = 0;
+        for (int k = offset; k < i; k++) {
+            chars[n++] = (char) bytes[k];
+        }
+
+        while (i < end) {
+            int b = bytes[i++];
+            if (b >= 0) {
+                chars[n++] = (char) b;
+                continue;
+            }
+
+            b &= 0xff;
+            if (b < 0xc2) {
+                throw malformed();
+            } else if (b < 0xe0) {
+                chars[n++] = (char) (((b & 0x1f) << 6) | next(bytes, i++, end, 0x80, 0xbf));
+            } else if (b < 0xf0) {
+                int min = b == 0xe0 ? 0xa0 : 0x80;
+                int max = b == 0xed ? 0x9f : 0xbf;
+                int c = ((b & 0x0f) << 12) | (next(bytes, i++, end, min, max) << 6);
+                chars[n++] = (char) (c | next(bytes, i++, end, 0x80, 0xbf));
+            } else if (b < 0xf5) {
+                int min = b == 0xf0 ? 0x90 : 0x80;
+                int max = b == 0xf4 ? 0x8f : 0xbf;
+                int cp = ((b & 0x07) << 18) | (next(bytes, i++, end, min, max) << 12);
+                cp |= next(bytes, i++, end, 0x80, 0xbf) << 6;
+                cp |= next(bytes, i++, end, 0x80, 0xbf);
+                chars[n++] = Character.highSurrogate(cp);
+                chars[n++] = Character.lowSurrogate(cp);
+            } else {
+                throw malformed();
+            }
+        }
+
+        return new String(chars, 0, n);
+    }
+
+    /**
+     * Decodes 'length' bytes of 'buffer' starting at 'index' (absolute).
+     * The position of the buffer is not changed.
+     *
+     * @throws BinsonFormatException If the bytes are not valid UTF-8.
+     */
+    public static String decode(ByteBuffer buffer, int index, int length) {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + index, length);
+        }
+
+        byte[] bytes = new byte[length];
+        ByteBuffer b = buffer.duplicate();
+        b.position(index);
+        b.get(bytes);
+        return decode(bytes, 0, length);
+    }
+
+    /**
+     * Returns the payload bits of the continuation byte at 'i'.
+     */
+    private static int next(byte[] bytes, int i, int end, int min, int max) {
+        if (i >= end) {
+            throw malformed();
+        }
+        int b = bytes[i] & 0xff;
+        if (b < min || b > max) {
+            throw malformed();
+        }
+        return b & 0x3f;
+    }
+
+    private static BinsonFormatException malformed() {
+        return new BinsonFormatException("Invalid UTF-8 in string.");
+    }
+
+    /**
+     * Returns true if 'length' bytes of 'bytes' starting at 'offset' are valid UTF-8.
+     */
+    public static boolean isValid(byte[] bytes, int offset, int length) {
+        return validate(ACCEPT, bytes, offset, length) == ACCEPT;
+    }
+
+    public static boolean isValid(byte[] bytes) {
+        return isValid(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Continues validation from 'state' with 'length' bytes of 'bytes' starting at 'offset'.
+     * Returns the new state.
+     */
+    public static int validate(int state, byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+
+        while (i < end && state != REJECT) {
+            if (state == ACCEPT) {
+                while (i < end && bytes[i] >= 0) {
+                    i++;
+                }
+                if (i == end) {
+                    break;
+                }
+            }
+            state = next(state, bytes[i++] & 0xff);
+        }
+
+        return state;
+    }
+
+    /**
+     * Continues validation from 'state' with 'length' bytes of 'buffer' starting at
+     * 'index' (absolute). The position of the buffer is not changed.
+     */
+    public static int validate(int state, ByteBuffer buffer, int index, int length) {
+        if (buffer.hasArray()) {
+            return validate(state, buffer.array(), buffer.arrayOffset() + index, length);
+        }
+
+        int end = index + length;
+        for (int i = index; i < end && state != REJECT; i++) {
+            state = next(state, buffer.get(i) & 0xff);
+        }
+        return state;
+    }
+
+    private static int next(int state, int b) {
+        if (state == ACCEPT) {
+            if (b < 0x80) {
+                return ACCEPT;
+            } else if (b < 0xc2) {
+                return REJECT;                  // continuation byte or overlong 2-byte
+            } else if (b < 0xe0) {
+                return state(1, 0x80, 0xbf);
+            } else if (b == 0xe0) {
+                return state(2, 0xa0, 0xbf);    // no overlong 3-byte
+            } else if (b == 0xed) {
+                return state(2, 0x80, 0x9f);    // no surrogates
+            } else if (b < 0xf0) {
+                return state(2, 0x80, 0xbf);
+            } else if (b == 0xf0) {
+                return state(3, 0x90, 0xbf);    // no overlong 4-byte
+            } else if (b < 0xf4) {
+                return state(3, 0x80, 0xbf);
+            } else if (b == 0xf4) {
+                return state(3, 0x80, 0x8f);    // max U+10FFFF
+            } else {
+                return REJECT;
+            }
+        }
+
+        int min = (state >> 8) & 0xff;
+        int max = state & 0xff;
+        if (b < min || b > max) {
+            return REJECT;
+        }
+
+        int left = (state >> 16) - 1;
+        return left == 0 ? ACCEPT : state(left, 0x80, 0xbf);
+    }
+
+    private static int state(int left, int min, int max) {
+        return (left << 16) | (min << 8) | max;
+    }
+}
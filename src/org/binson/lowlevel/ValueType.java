@@ -1,5 +1,7 @@
 package org.binson.lowlevel;
 
+import java.nio.ByteBuffer;
+
 import org.binson.Binson;
 import org.binson.BinsonArray;
 
@@ -62,6 +64,8 @@ public enum ValueType {
                 return OBJECT;
             } else if (value instanceof BinsonArray) {
                 return ARRAY;
+            } else if (value instanceof ByteBuffer) {
+                return BYTES;       // a slice, see BinsonParser.setSliceBytes()
             }
             
             break;
@@ -69,4 +73,37 @@ public enum ValueType {
         
         throw new IllegalArgumentException("not a Binson value, " + value.toString());
     }
+    
+    /**
+     * Returns the value type of a type byte, or null if the byte does not 
+     * start a value (for example END or an unknown byte).
+     */
+    public static ValueType fromType(int type) {
+        switch (type) {
+        case Constants.TRUE:
+        case Constants.FALSE:
+            return BOOLEAN;
+        case Constants.INTEGER1:
+        case Constants.INTEGER2:
+        case Constants.INTEGER4:
+        case Constants.INTEGER8:
+            return INTEGER;
+        case Constants.DOUBLE:
+            return DOUBLE;
+        case Constants.STRING1:
+        case Constants.STRING2:
+        case Constants.STRING4:
+            return STRING;
+        case Constants.BYTES1:
+        case Constants.BYTES2:
+        case Constants.BYTES4:
+            return BYTES;
+        case Constants.BEGIN_ARRAY:
+            return ARRAY;
+        case Constants.BEGIN:
+            return OBJECT;
+        default:
+            return null;
+        }
+    }
 }